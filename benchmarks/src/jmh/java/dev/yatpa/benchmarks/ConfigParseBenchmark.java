@@ -0,0 +1,57 @@
+package dev.yatpa.benchmarks;
+
+import dev.yatpa.paper.config.YatpaConfig;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import org.bukkit.configuration.InvalidConfigurationException;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+// /yatpa reload cost for the bundled config.yml: YatpaConfig.from on an already parsed YAML tree, and the full
+// YAML parse plus YatpaConfig.from.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ConfigParseBenchmark {
+    private String yaml;
+    private YamlConfiguration parsed;
+
+    @Setup
+    public void setUp() throws IOException, InvalidConfigurationException {
+        try (InputStream in = YatpaConfig.class.getResourceAsStream("/config.yml")) {
+            if (in == null) {
+                throw new IllegalStateException("config.yml is not on the classpath");
+            }
+            yaml = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        parsed = parse();
+    }
+
+    @Benchmark
+    public YatpaConfig from() {
+        return YatpaConfig.from(parsed);
+    }
+
+    @Benchmark
+    public YatpaConfig parseAndFrom() throws InvalidConfigurationException {
+        return YatpaConfig.from(parse());
+    }
+
+    // Sound and Particle names resolve through the server registry, which does not exist in a benchmark fork, so the
+    // sounds and effects sections are dropped; everything else is parsed as on a server.
+    private YamlConfiguration parse() throws InvalidConfigurationException {
+        YamlConfiguration config = new YamlConfiguration();
+        config.loadFromString(yaml);
+        config.set("sounds", null);
+        config.set("effects", null);
+        return config;
+    }
+}
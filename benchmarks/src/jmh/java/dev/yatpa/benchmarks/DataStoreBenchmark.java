@@ -0,0 +1,143 @@
+package dev.yatpa.benchmarks;
+
+import dev.yatpa.paper.data.HomeLocation;
+import dev.yatpa.paper.data.PlayerProfile;
+import dev.yatpa.paper.service.DataStore;
+import dev.yatpa.paper.storage.StorageBackend;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+// DataStore reads with every profile cached, as with the default eager loading: /home and tab completion read
+// homes(), every incoming request checks isBlocked(). Players are looked up in a shuffled order so the profile map is
+// not walked sequentially.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class DataStoreBenchmark {
+    private static final String[] WORLDS = { "world", "world_nether", "world_the_end" };
+
+    @Param({ "10000", "100000" })
+    public int players;
+
+    private DataStore store;
+    private UUID[] ids;
+    private UUID[] others;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        Map<UUID, PlayerProfile> profiles = new HashMap<>();
+        ids = new UUID[players];
+        for (int i = 0; i < players; i++) {
+            ids[i] = new UUID(random.nextLong(), random.nextLong());
+        }
+        for (UUID id : ids) {
+            PlayerProfile profile = new PlayerProfile(id);
+            Map<String, HomeLocation> homes = new LinkedHashMap<>();
+            for (int j = 0; j < 3; j++) {
+                homes.put("home" + j, new HomeLocation(WORLDS[random.nextInt(WORLDS.length)],
+                        random.nextInt(60_000) - 30_000, random.nextInt(300) - 60, random.nextInt(60_000) - 30_000,
+                        0f, 0f));
+            }
+            profile.setHomes(homes);
+            Set<UUID> blocked = new HashSet<>();
+            for (int j = 0; j < 5; j++) {
+                blocked.add(ids[random.nextInt(players)]);
+            }
+            profile.setBlocked(blocked);
+            profiles.put(id, profile);
+        }
+        store = new DataStore(new MemoryBackend(profiles), Logger.getLogger("YATPA"), false, 0L, Runnable::run,
+                Runnable::run);
+        others = ids.clone();
+        for (int i = players - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            UUID swap = ids[i];
+            ids[i] = ids[j];
+            ids[j] = swap;
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        store.close();
+    }
+
+    @Benchmark
+    public Map<String, HomeLocation> homes() {
+        return store.homes(nextId());
+    }
+
+    @Benchmark
+    public boolean isBlocked() {
+        UUID owner = nextId();
+        return store.isBlocked(owner, others[next]);
+    }
+
+    private UUID nextId() {
+        UUID id = ids[next];
+        next = next + 1 == ids.length ? 0 : next + 1;
+        return id;
+    }
+
+    // Hands the generated profiles to DataStore.load() and discards writes.
+    private static final class MemoryBackend implements StorageBackend {
+        private final Map<UUID, PlayerProfile> profiles;
+
+        private MemoryBackend(Map<UUID, PlayerProfile> profiles) {
+            this.profiles = profiles;
+        }
+
+        @Override
+        public String name() {
+            return "MEMORY";
+        }
+
+        @Override
+        public void loadAll(Map<UUID, PlayerProfile> into, Map<String, HomeLocation> offlineLocations) {
+            into.putAll(profiles);
+        }
+
+        @Override
+        public PlayerProfile loadProfile(UUID uuid) {
+            return profiles.get(uuid);
+        }
+
+        @Override
+        public HomeLocation loadOfflineLocation(String name) {
+            return null;
+        }
+
+        @Override
+        public List<String> offlineNames(String prefix, int limit) {
+            return List.of();
+        }
+
+        @Override
+        public void write(Batch batch) {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
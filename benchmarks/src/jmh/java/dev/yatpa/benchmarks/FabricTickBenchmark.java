@@ -0,0 +1,60 @@
+package dev.yatpa.benchmarks;
+
+import dev.yatpa.core.data.RequestType;
+import dev.yatpa.core.service.RequestService;
+import dev.yatpa.core.service.TickScheduler;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+// One Fabric server tick: RequestService.purgeExpired over requests that are not due yet, then TickScheduler over
+// running countdowns that restart instead of finishing, so every iteration sees the same load. With the gc profiler,
+// gc.alloc.rate.norm should read 0 B/op for every parameter combination, the idle one (0/0) included.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class FabricTickBenchmark {
+    private static final int TIMEOUT_SECONDS = 60;
+    private static final int COUNTDOWN_TICKS = 100;
+
+    @Param({ "0", "200" })
+    public int requests;
+
+    @Param({ "0", "50" })
+    public int countdowns;
+
+    private RequestService requestService;
+    private TickScheduler<int[]> scheduler;
+
+    @Setup
+    public void setUp() {
+        requestService = new RequestService(TIMEOUT_SECONDS, 0, 1);
+        for (int i = 0; i < requests; i++) {
+            requestService.create(UUID.randomUUID(), UUID.randomUUID(), RequestType.TPA);
+        }
+        scheduler = new TickScheduler<>(countdown -> {
+            if (--countdown[0] <= 0) {
+                countdown[0] = COUNTDOWN_TICKS;
+            }
+            return true;
+        });
+        for (int i = 0; i < countdowns; i++) {
+            scheduler.add(new int[] { 1 + i % COUNTDOWN_TICKS });
+        }
+    }
+
+    @Benchmark
+    public List<?> tick() {
+        List<?> expired = requestService.purgeExpired();
+        scheduler.tick();
+        return expired;
+    }
+}
@@ -0,0 +1,57 @@
+package dev.yatpa.benchmarks;
+
+import dev.yatpa.paper.config.XmlMessages;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+// XmlMessages.format against the bundled messages.xml: a message without placeholders, the one-placeholder message
+// every request sends, and the five-placeholder bulk-accept summary.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class MessageFormatBenchmark {
+    private final XmlMessages messages = new XmlMessages();
+    private final Map<String, String> onePlaceholder = Map.of("player", "Steve");
+    private final Map<String, String> fivePlaceholders = Map.of("accepted", "7", "total", "10", "offline", "1",
+            "unpaid", "1", "blocked", "0", "skipped", "1");
+
+    @Setup
+    public void setUp() throws IOException {
+        Path file = Files.createTempFile("yatpa-messages", ".xml");
+        try (InputStream in = XmlMessages.class.getResourceAsStream("/messages.xml")) {
+            if (in == null) {
+                throw new IllegalStateException("messages.xml is not on the classpath");
+            }
+            Files.copy(in, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+        messages.load(file.toFile());
+        Files.delete(file);
+    }
+
+    @Benchmark
+    public String noPlaceholders() {
+        return messages.format("teleport_success", Map.of());
+    }
+
+    @Benchmark
+    public String onePlaceholder() {
+        return messages.format("request_received", onePlaceholder);
+    }
+
+    @Benchmark
+    public String fivePlaceholders() {
+        return messages.format("requests_accepted", fivePlaceholders);
+    }
+}
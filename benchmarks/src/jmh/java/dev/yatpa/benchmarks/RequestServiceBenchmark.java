@@ -0,0 +1,91 @@
+package dev.yatpa.benchmarks;
+
+import dev.yatpa.core.data.RequestType;
+import dev.yatpa.core.data.TeleportRequest;
+import dev.yatpa.core.service.RequestService;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+// RequestService under contention: many senders compete for the inboxes of a few receivers (an event host, a shop
+// owner), every inbox sits one short of the configured size, and the deadline queue holds every pending request.
+// RequestService is main-thread only, so contention here means crowded inboxes rather than concurrent callers.
+// createAndAnswer adds a request and answers it again so the state does not drift between invocations.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class RequestServiceBenchmark {
+    private static final int INBOX_SIZE = 10;
+    private static final int SENDERS = 1024;
+
+    @Param({ "1", "100", "10000" })
+    public int receivers;
+
+    private RequestService service;
+    private UUID[] receiverIds;
+    private UUID[][] waiting;
+    private UUID[] senderIds;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(11);
+        service = new RequestService(3600, 0, INBOX_SIZE);
+        receiverIds = new UUID[receivers];
+        waiting = new UUID[receivers][INBOX_SIZE - 1];
+        for (int i = 0; i < receivers; i++) {
+            receiverIds[i] = new UUID(random.nextLong(), random.nextLong());
+            for (int j = 0; j < INBOX_SIZE - 1; j++) {
+                waiting[i][j] = new UUID(random.nextLong(), random.nextLong());
+                service.create(waiting[i][j], receiverIds[i], j % 2 == 0 ? RequestType.TPA : RequestType.TPAHERE);
+            }
+        }
+        senderIds = new UUID[SENDERS];
+        for (int i = 0; i < SENDERS; i++) {
+            senderIds[i] = new UUID(random.nextLong(), random.nextLong());
+        }
+    }
+
+    @Benchmark
+    public Optional<TeleportRequest> createAndAnswer() {
+        int i = advance();
+        UUID receiver = receiverIds[i % receivers];
+        service.create(senderIds[i % SENDERS], receiver, RequestType.TPA);
+        return service.removeFor(receiver);
+    }
+
+    @Benchmark
+    public Optional<TeleportRequest> pendingFor() {
+        return service.pendingFor(receiverIds[advance() % receivers]);
+    }
+
+    @Benchmark
+    public Optional<TeleportRequest> pendingForSender() {
+        int i = advance();
+        int receiver = i % receivers;
+        return service.pendingFor(receiverIds[receiver], waiting[receiver][i % (INBOX_SIZE - 1)]);
+    }
+
+    // The per-tick call with nothing due yet, which is almost every tick.
+    @Benchmark
+    public List<TeleportRequest> purgeExpired() {
+        return service.purgeExpired();
+    }
+
+    private int advance() {
+        int i = next;
+        next = i == Integer.MAX_VALUE ? 0 : i + 1;
+        return i;
+    }
+}
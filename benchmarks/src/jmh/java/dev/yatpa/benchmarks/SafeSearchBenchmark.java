@@ -0,0 +1,195 @@
+package dev.yatpa.benchmarks;
+
+import dev.yatpa.core.service.BlockView;
+import dev.yatpa.paper.service.SafeLocationFinder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.bukkit.Location;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+// /ytp safe-landing search on a synthetic world: rolling terrain with oceans below sea level and a cave layer with
+// lava. "ring" is the previous ring-by-ring algorithm with three block lookups per Y step; "spiral" is
+// SafeLocationFinder. The blocksProbed counter shows how many block reads each needs.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SafeSearchBenchmark {
+    private static final int MIN_Y = -63;
+    private static final int MAX_Y = 318;
+    private static final int SEA_LEVEL = 62;
+    private static final int RADIUS = 48;
+    private static final int VERTICAL_RANGE = 64;
+
+    @Param({ "surface", "underground", "ocean" })
+    public String scenario;
+
+    private final SyntheticWorld world = new SyntheticWorld();
+    private Location[] origins;
+    private int next;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Counters {
+        public long blocksProbed;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            blocksProbed = 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(7);
+        List<Location> found = new ArrayList<>();
+        while (found.size() < 64) {
+            int x = random.nextInt(20_000) - 10_000;
+            int z = random.nextInt(20_000) - 10_000;
+            int ground = world.ground(x, z);
+            switch (scenario) {
+                case "surface" -> found.add(new Location(null, x + 0.5, ground + 6, z + 0.5));
+                case "underground" -> found.add(new Location(null, x + 0.5, 10, z + 0.5));
+                default -> {
+                    if (ground < SEA_LEVEL - 8) {
+                        found.add(new Location(null, x + 0.5, SEA_LEVEL, z + 0.5));
+                    }
+                }
+            }
+        }
+        origins = found.toArray(new Location[0]);
+    }
+
+    @Benchmark
+    public Location spiral(Counters counters) {
+        SafeLocationFinder finder = new SafeLocationFinder(null, world, MIN_Y, MAX_Y);
+        Location desired = nextOrigin();
+        Location result = finder.isSafe(desired) ? desired : finder.findNearest(desired, RADIUS, VERTICAL_RANGE);
+        counters.blocksProbed += finder.blocksProbed();
+        return result;
+    }
+
+    @Benchmark
+    public long[] ring(Counters counters) {
+        long[] probes = new long[1];
+        Location desired = nextOrigin();
+        long[] result = safe(desired.getBlockX(), desired.getBlockY(), desired.getBlockZ(), probes)
+                ? new long[] { desired.getBlockX(), desired.getBlockY(), desired.getBlockZ() }
+                : ringSearch(desired, probes);
+        counters.blocksProbed += probes[0];
+        return result;
+    }
+
+    private Location nextOrigin() {
+        Location origin = origins[next];
+        next = (next + 1) % origins.length;
+        return origin;
+    }
+
+    // The algorithm SafeLocationFinder replaced, minus the spawn fallback.
+    private long[] ringSearch(Location desired, long[] probes) {
+        int originX = desired.getBlockX();
+        int originZ = desired.getBlockZ();
+        int startY = Math.max(MIN_Y, Math.min(MAX_Y, desired.getBlockY()));
+        double bestDistanceSq = Double.MAX_VALUE;
+        long[] best = null;
+        for (int radius = 0; radius <= RADIUS; radius++) {
+            for (int dx = -radius; dx <= radius; dx++) {
+                for (int dz = -radius; dz <= radius; dz++) {
+                    if (Math.abs(dx) != radius && Math.abs(dz) != radius) {
+                        continue;
+                    }
+                    int x = originX + dx;
+                    int z = originZ + dz;
+                    int y = ringColumn(x, z, startY, probes);
+                    if (y == Integer.MIN_VALUE) {
+                        continue;
+                    }
+                    double ddx = x + 0.5 - desired.getX();
+                    double ddy = y - desired.getY();
+                    double ddz = z + 0.5 - desired.getZ();
+                    double distanceSq = ddx * ddx + ddy * ddy + ddz * ddz;
+                    if (distanceSq < bestDistanceSq) {
+                        bestDistanceSq = distanceSq;
+                        best = new long[] { x, y, z };
+                    }
+                }
+            }
+            if (best != null && bestDistanceSq <= radius * radius) {
+                break;
+            }
+        }
+        return best;
+    }
+
+    private int ringColumn(int x, int z, int startY, long[] probes) {
+        for (int dy = 0; dy <= VERTICAL_RANGE; dy++) {
+            int up = startY + dy;
+            if (up <= MAX_Y && safe(x, up, z, probes)) {
+                return up;
+            }
+            if (dy > 0) {
+                int down = startY - dy;
+                if (down >= MIN_Y && safe(x, down, z, probes)) {
+                    return down;
+                }
+            }
+        }
+        int surfaceY = Math.max(MIN_Y, Math.min(MAX_Y, world.highestY(x, z) + 1));
+        return safe(x, surfaceY, z, probes) ? surfaceY : Integer.MIN_VALUE;
+    }
+
+    private boolean safe(int x, int y, int z, long[] probes) {
+        if (y < MIN_Y || y > MAX_Y) {
+            return false;
+        }
+        probes[0] += 3;
+        return (world.kind(x, y, z) & BlockView.CLEAR) != 0
+                && (world.kind(x, y + 1, z) & BlockView.CLEAR) != 0
+                && (world.kind(x, y - 1, z) & BlockView.FLOOR) != 0;
+    }
+
+    // Deterministic terrain: stone up to ground level, water up to sea level, and a two-block cave layer at y 30-31
+    // that sits on lava in some places.
+    private static final class SyntheticWorld implements BlockView {
+        int ground(int x, int z) {
+            return 64 + (int) (14 * Math.sin(x / 23.0) * Math.cos(z / 31.0) + 6 * Math.sin((x + z) / 11.0));
+        }
+
+        @Override
+        public int kind(int x, int y, int z) {
+            int ground = ground(x, z);
+            if (y > ground) {
+                return y <= SEA_LEVEL ? 0 : BlockView.CLEAR;
+            }
+            boolean cave = Math.floorMod((x >> 2) + (z >> 2), 3) == 0;
+            if (cave && (y == 30 || y == 31)) {
+                return BlockView.CLEAR;
+            }
+            if (cave && y == 29 && ((x ^ z) & 7) == 0) {
+                return 0;
+            }
+            return BlockView.FLOOR;
+        }
+
+        @Override
+        public int highestY(int x, int z) {
+            return Math.max(ground(x, z), SEA_LEVEL);
+        }
+
+        @Override
+        public boolean insideBorder(int x, int z) {
+            return Math.abs(x) < 29_999_984 && Math.abs(z) < 29_999_984;
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package dev.yatpa.benchmarks;
+
+import dev.yatpa.paper.data.HomeLocation;
+import dev.yatpa.paper.data.PlayerProfile;
+import dev.yatpa.paper.storage.BinarySnapshot;
+import dev.yatpa.paper.storage.StorageBackend;
+import dev.yatpa.paper.storage.YamlStorageBackend;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class SnapshotLoadBenchmark {
+    private static final String[] WORLDS = { "world", "world_nether", "world_the_end" };
+
+    @Param({ "100000" })
+    public int homes;
+
+    private Path directory;
+    private File[] sources;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("yatpa-snapshot");
+        Random random = new Random(42);
+        List<StorageBackend.ProfileChange> changes = new ArrayList<>();
+        Map<String, HomeLocation> offline = new HashMap<>();
+        int perPlayer = 5;
+        for (int i = 0; i < homes / perPlayer; i++) {
+            PlayerProfile profile = new PlayerProfile(new UUID(random.nextLong(), random.nextLong()));
+            Map<String, HomeLocation> playerHomes = new LinkedHashMap<>();
+            for (int j = 0; j < perPlayer; j++) {
+                playerHomes.put("home" + j, location(random));
+            }
+            profile.setHomes(playerHomes);
+            profile.setAccepting(random.nextBoolean());
+            changes.add(new StorageBackend.ProfileChange(profile, EnumSet.allOf(StorageBackend.Section.class)));
+            offline.put("player" + i, location(random));
+        }
+        YamlStorageBackend yaml = new YamlStorageBackend(directory.toFile(), true);
+        yaml.write(new StorageBackend.Batch(changes, offline, Map.of()));
+        sources = new File[] { directory.resolve("players.yml").toFile(), directory.resolve("homes.yml").toFile(),
+                directory.resolve("offline.yml").toFile() };
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Benchmark
+    public Map<UUID, PlayerProfile> loadYaml() {
+        Map<UUID, PlayerProfile> profiles = new HashMap<>();
+        new YamlStorageBackend(directory.toFile()).loadAll(profiles, new HashMap<>());
+        return profiles;
+    }
+
+    @Benchmark
+    public Map<UUID, PlayerProfile> loadBinary() throws IOException {
+        Map<UUID, PlayerProfile> profiles = new HashMap<>();
+        if (!BinarySnapshot.read(directory.resolve("snapshot.bin"), BinarySnapshot.stamps(sources), profiles,
+                new HashMap<>())) {
+            throw new IllegalStateException("Snapshot is stale");
+        }
+        return profiles;
+    }
+
+    private static HomeLocation location(Random random) {
+        return new HomeLocation(WORLDS[random.nextInt(WORLDS.length)], random.nextInt(60_000) - 30_000,
+                random.nextInt(300) - 60, random.nextInt(60_000) - 30_000, random.nextFloat() * 360 - 180,
+                random.nextFloat() * 180 - 90);
+    }
+}
@@ -0,0 +1,77 @@
+package dev.yatpa.benchmarks;
+
+import dev.yatpa.paper.service.TeleportLogService;
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+// TeleportLogService.record and recent with a full in-memory index, so every record also evicts the oldest entry.
+// The log directory is left unset: appending to disk happens on the writer thread, not in the caller.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class TeleportLogBenchmark {
+    @Param({ "1000", "50000" })
+    public int indexedEntries;
+
+    @Param({ "10" })
+    public int page;
+
+    private TeleportLogService log;
+    private Location[] from;
+    private Location[] to;
+    private String[] actors;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        World overworld = world("world");
+        World nether = world("world_nether");
+        from = new Location[256];
+        to = new Location[256];
+        actors = new String[256];
+        for (int i = 0; i < from.length; i++) {
+            from[i] = new Location(overworld, i * 31.5, 64, i * -17.5);
+            to[i] = new Location(i % 4 == 0 ? nether : overworld, i * -11.5, 70, i * 23.5);
+            actors[i] = "player" + (i % 64);
+        }
+        log = new TeleportLogService(indexedEntries);
+        for (int i = 0; i < indexedEntries; i++) {
+            record();
+        }
+    }
+
+    @Benchmark
+    public void record() {
+        int i = next;
+        next = (i + 1) & (from.length - 1);
+        log.record(i % 3 == 0 ? "TPA" : "HOME", actors[i], actors[i], "", from[i], to[i]);
+    }
+
+    @Benchmark
+    public List<TeleportLogService.Entry> recent() {
+        return log.recent(page);
+    }
+
+    // Only the name is read; a real World needs a running server.
+    private static World world(String name) {
+        return (World) Proxy.newProxyInstance(World.class.getClassLoader(), new Class<?>[] { World.class },
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "getName", "toString" -> name;
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    default -> null;
+                });
+    }
+}
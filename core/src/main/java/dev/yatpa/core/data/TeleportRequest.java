@@ -1,4 +1,4 @@
-package dev.yatpa.paper.data;
+package dev.yatpa.core.data;
 
 import java.util.UUID;
 
@@ -0,0 +1,16 @@
+package dev.yatpa.core.service;
+
+// Read-only block data for SafeSpotSearch. Paper backs it with chunk snapshots, Fabric with the live level, and the
+// benchmarks with a synthetic world.
+public interface BlockView {
+    int CLEAR = 1;
+    int FLOOR = 2;
+
+    // CLEAR and/or FLOOR bits for the block at x, y, z.
+    int kind(int x, int y, int z);
+
+    // Highest non-air block in the column; nothing above it can be a floor.
+    int highestY(int x, int z);
+
+    boolean insideBorder(int x, int z);
+}
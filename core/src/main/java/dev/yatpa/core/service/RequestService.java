@@ -0,0 +1,196 @@
+package dev.yatpa.core.service;
+
+import dev.yatpa.core.data.RequestType;
+import dev.yatpa.core.data.TeleportRequest;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+// Each receiver has an inbox of pending requests keyed by sender in arrival order, and each sender has the set of
+// receivers holding one of their requests. Lookups by receiver and sender, accept/deny and sender cleanup are O(1) per
+// request. Called from the main thread.
+public class RequestService {
+    private int timeoutSeconds;
+    private int cooldownSeconds;
+    private int inboxSize;
+    private final Map<UUID, LinkedHashMap<UUID, TeleportRequest>> inboxByReceiver = new ConcurrentHashMap<>();
+    private final Map<UUID, Set<UUID>> receiversBySender = new ConcurrentHashMap<>();
+    private final Map<UUID, Long> cooldownBySender = new ConcurrentHashMap<>();
+    // Every request gets the same timeout, so creation order is deadline order and a FIFO queue is enough. Requests that
+    // were accepted, denied or replaced stay queued and are skipped when they reach the head.
+    private final Queue<TeleportRequest> byDeadline = new ConcurrentLinkedQueue<>();
+
+    public RequestService(int timeoutSeconds, int cooldownSeconds, int inboxSize) {
+        setLimits(timeoutSeconds, cooldownSeconds, inboxSize);
+    }
+
+    // Lets a config reload keep the pending requests. Queued deadlines stay in order because every request shares the
+    // new timeout.
+    public final void setLimits(int timeoutSeconds, int cooldownSeconds, int inboxSize) {
+        this.timeoutSeconds = timeoutSeconds;
+        this.cooldownSeconds = cooldownSeconds;
+        this.inboxSize = Math.max(1, inboxSize);
+    }
+
+    public int cooldownRemaining(UUID sender) {
+        long last = cooldownBySender.getOrDefault(sender, 0L);
+        long elapsed = (System.currentTimeMillis() - last) / 1000L;
+        long remaining = cooldownSeconds - elapsed;
+        return (int) Math.max(0, remaining);
+    }
+
+    public boolean canSend(UUID sender) {
+        return cooldownRemaining(sender) <= 0;
+    }
+
+    public boolean create(UUID sender, UUID receiver, RequestType type) {
+        if (hasPair(sender, receiver) || inboxFull(receiver)) {
+            return false;
+        }
+        TeleportRequest request = new TeleportRequest(sender, receiver, type, System.currentTimeMillis());
+        LinkedHashMap<UUID, TeleportRequest> inbox = inboxByReceiver.computeIfAbsent(receiver,
+                k -> new LinkedHashMap<>());
+        // An expired request from the same sender may still be waiting for purgeExpired; re-inserting moves the new
+        // one to the end of the arrival order.
+        inbox.remove(sender);
+        inbox.put(sender, request);
+        receiversBySender.computeIfAbsent(sender, k -> new LinkedHashSet<>()).add(receiver);
+        byDeadline.offer(request);
+        cooldownBySender.put(sender, request.createdAtMillis());
+        return true;
+    }
+
+    public boolean hasPair(UUID sender, UUID receiver) {
+        return pendingFor(receiver, sender).isPresent();
+    }
+
+    // Expired requests stay in the inbox until purgeExpired reports them, so only live ones count.
+    public boolean inboxFull(UUID receiver) {
+        LinkedHashMap<UUID, TeleportRequest> inbox = inboxByReceiver.get(receiver);
+        if (inbox == null || inbox.size() < inboxSize) {
+            return false;
+        }
+        long now = System.currentTimeMillis();
+        int live = 0;
+        for (TeleportRequest request : inbox.values()) {
+            if (!expired(request, now) && ++live >= inboxSize) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // The most recent request, which is what /tpaccept and /tpdeny without a name act on.
+    public Optional<TeleportRequest> pendingFor(UUID receiver) {
+        LinkedHashMap<UUID, TeleportRequest> inbox = inboxByReceiver.get(receiver);
+        if (inbox == null || inbox.isEmpty()) {
+            return Optional.empty();
+        }
+        return live(inbox.lastEntry().getValue());
+    }
+
+    public Optional<TeleportRequest> pendingFor(UUID receiver, UUID sender) {
+        LinkedHashMap<UUID, TeleportRequest> inbox = inboxByReceiver.get(receiver);
+        if (inbox == null) {
+            return Optional.empty();
+        }
+        TeleportRequest request = inbox.get(sender);
+        return request == null ? Optional.empty() : live(request);
+    }
+
+    // Oldest first; expired requests are left for purgeExpired to report.
+    public List<TeleportRequest> pendingAll(UUID receiver) {
+        LinkedHashMap<UUID, TeleportRequest> inbox = inboxByReceiver.get(receiver);
+        if (inbox == null) {
+            return List.of();
+        }
+        long now = System.currentTimeMillis();
+        List<TeleportRequest> out = new ArrayList<>(inbox.size());
+        for (TeleportRequest request : inbox.values()) {
+            if (!expired(request, now)) {
+                out.add(request);
+            }
+        }
+        return out;
+    }
+
+    public Optional<TeleportRequest> removeFor(UUID receiver) {
+        Optional<TeleportRequest> latest = pendingFor(receiver);
+        latest.ifPresent(this::remove);
+        return latest;
+    }
+
+    public boolean remove(TeleportRequest request) {
+        LinkedHashMap<UUID, TeleportRequest> inbox = inboxByReceiver.get(request.receiver());
+        if (inbox == null || !inbox.remove(request.sender(), request)) {
+            return false;
+        }
+        if (inbox.isEmpty()) {
+            inboxByReceiver.remove(request.receiver());
+        }
+        Set<UUID> receivers = receiversBySender.get(request.sender());
+        if (receivers != null) {
+            receivers.remove(request.receiver());
+            if (receivers.isEmpty()) {
+                receiversBySender.remove(request.sender());
+            }
+        }
+        return true;
+    }
+
+    // Withdraws every request the sender still has open, e.g. when they quit.
+    public List<TeleportRequest> removeFromSender(UUID sender) {
+        Set<UUID> receivers = receiversBySender.remove(sender);
+        if (receivers == null) {
+            return List.of();
+        }
+        List<TeleportRequest> removed = new ArrayList<>(receivers.size());
+        for (UUID receiver : receivers) {
+            LinkedHashMap<UUID, TeleportRequest> inbox = inboxByReceiver.get(receiver);
+            TeleportRequest request = inbox == null ? null : inbox.remove(sender);
+            if (request == null) {
+                continue;
+            }
+            removed.add(request);
+            if (inbox.isEmpty()) {
+                inboxByReceiver.remove(receiver);
+            }
+        }
+        return removed;
+    }
+
+    // Only touches requests whose deadline has passed. A request that was already answered is not reported. Runs every
+    // tick on Fabric, so nothing is allocated unless a request actually expires.
+    public List<TeleportRequest> purgeExpired() {
+        long now = System.currentTimeMillis();
+        List<TeleportRequest> expired = List.of();
+        TeleportRequest head;
+        while ((head = byDeadline.peek()) != null && expired(head, now)) {
+            byDeadline.poll();
+            if (remove(head)) {
+                if (expired.isEmpty()) {
+                    expired = new ArrayList<>();
+                }
+                expired.add(head);
+            }
+        }
+        return expired;
+    }
+
+    // Expired requests are reported by purgeExpired within a second, so lookups only hide them.
+    private Optional<TeleportRequest> live(TeleportRequest request) {
+        return expired(request, System.currentTimeMillis()) ? Optional.empty() : Optional.of(request);
+    }
+
+    private boolean expired(TeleportRequest request, long now) {
+        return (now - request.createdAtMillis()) / 1000L > timeoutSeconds;
+    }
+}
@@ -0,0 +1,198 @@
+package dev.yatpa.core.service;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Safe-landing search over a BlockView. Every block of a column is read at most once, and columns are visited in
+// increasing horizontal distance so the search can stop as soon as nothing left can beat the best spot. Instances are
+// single-use and not thread-safe; they are as thread-bound as the view they read.
+public final class SafeSpotSearch {
+    public static final int NONE = Integer.MIN_VALUE;
+
+    private static final Map<Integer, int[]> OFFSETS = new ConcurrentHashMap<>();
+
+    private final BlockView view;
+    private final int minY;
+    private final int maxY;
+    // kinds[y - minY + 1] covers minY - 1 .. maxY + 1; a cell is valid for the current column while its stamp matches.
+    private final int[] kinds;
+    private final int[] stamps;
+    private int generation;
+    private int columnX = Integer.MIN_VALUE;
+    private int columnZ = Integer.MIN_VALUE;
+    private int foundX;
+    private int foundY = NONE;
+    private int foundZ;
+    private long blocksProbed;
+    private int columnsVisited;
+    private int columnsSkipped;
+
+    public SafeSpotSearch(BlockView view, int minY, int maxY) {
+        this.view = view;
+        this.minY = minY;
+        this.maxY = maxY;
+        this.kinds = new int[maxY - minY + 3];
+        this.stamps = new int[kinds.length];
+    }
+
+    public boolean isSafe(int x, int y, int z) {
+        if (y < minY || y > maxY) {
+            return false;
+        }
+        beginColumn(x, z);
+        return safeAt(y);
+    }
+
+    // Closest safe Y to targetY within verticalRange, then the surface; NONE if the column has neither.
+    public int findInColumn(int x, int z, int targetY, int verticalRange) {
+        if (!view.insideBorder(x, z)) {
+            return NONE;
+        }
+        int startY = clamp(targetY, minY, maxY);
+        return bestY(x, z, startY, verticalRange, view.highestY(x, z), 0L, Long.MAX_VALUE);
+    }
+
+    // Columns whose heightmap rules out anything closer are skipped without reading blocks. Returns false when nothing
+    // within the radius is safe; otherwise the spot is in foundX/foundY/foundZ.
+    public boolean findNearest(int originX, int originY, int originZ, int maxHorizontalRadius, int verticalRange) {
+        int startY = clamp(originY, minY, maxY);
+        int[] offsets = offsets(maxHorizontalRadius);
+        long bestSq = Long.MAX_VALUE;
+        foundY = NONE;
+
+        for (int i = 0; i < offsets.length; i += 2) {
+            int dx = offsets[i];
+            int dz = offsets[i + 1];
+            long horizontalSq = (long) dx * dx + (long) dz * dz;
+            if (horizontalSq >= bestSq) {
+                break;
+            }
+            int x = originX + dx;
+            int z = originZ + dz;
+            if (!view.insideBorder(x, z)) {
+                continue;
+            }
+            int highest = view.highestY(x, z);
+            long belowSurface = Math.max(0, startY - Math.min(maxY, highest + 1));
+            if (horizontalSq + belowSurface * belowSurface >= bestSq) {
+                columnsSkipped++;
+                continue;
+            }
+            columnsVisited++;
+            int y = bestY(x, z, startY, verticalRange, highest, horizontalSq, bestSq);
+            if (y != NONE) {
+                bestSq = horizontalSq + (long) (y - startY) * (y - startY);
+                foundX = x;
+                foundY = y;
+                foundZ = z;
+            }
+        }
+        return foundY != NONE;
+    }
+
+    public int foundX() {
+        return foundX;
+    }
+
+    public int foundY() {
+        return foundY;
+    }
+
+    public int foundZ() {
+        return foundZ;
+    }
+
+    public long blocksProbed() {
+        return blocksProbed;
+    }
+
+    public int columnsVisited() {
+        return columnsVisited;
+    }
+
+    public int columnsSkipped() {
+        return columnsSkipped;
+    }
+
+    // Alternates up and down from startY while a hit could still beat bestSq, then tries the surface itself.
+    private int bestY(int x, int z, int startY, int verticalRange, int highest, long horizontalSq, long bestSq) {
+        beginColumn(x, z);
+        int surfaceY = clamp(highest + 1, minY, maxY);
+        int top = Math.min(Math.min(maxY, startY + verticalRange), surfaceY);
+        int bottom = Math.max(minY, startY - verticalRange);
+        // Nothing above the surface can stand on a floor, so start where the downward scan first reaches it.
+        for (int dy = Math.max(0, startY - top); horizontalSq + (long) dy * dy < bestSq; dy++) {
+            int up = startY + dy;
+            int down = startY - dy;
+            if (up > top && down < bottom) {
+                break;
+            }
+            if (up <= top && safeAt(up)) {
+                return up;
+            }
+            if (dy > 0 && down >= bottom && down <= top && safeAt(down)) {
+                return down;
+            }
+        }
+        long surfaceDy = surfaceY - startY;
+        if (horizontalSq + surfaceDy * surfaceDy < bestSq && safeAt(surfaceY)) {
+            return surfaceY;
+        }
+        return NONE;
+    }
+
+    private void beginColumn(int x, int z) {
+        if (x != columnX || z != columnZ) {
+            columnX = x;
+            columnZ = z;
+            if (++generation == 0) {
+                Arrays.fill(stamps, 0);
+                generation = 1;
+            }
+        }
+    }
+
+    private boolean safeAt(int y) {
+        return (kindAt(y - 1) & BlockView.FLOOR) != 0 && (kindAt(y) & BlockView.CLEAR) != 0
+                && (kindAt(y + 1) & BlockView.CLEAR) != 0;
+    }
+
+    private int kindAt(int y) {
+        int index = y - minY + 1;
+        if (stamps[index] != generation) {
+            kinds[index] = view.kind(columnX, y, columnZ);
+            stamps[index] = generation;
+            blocksProbed++;
+        }
+        return kinds[index];
+    }
+
+    private static int clamp(int value, int min, int max) {
+        return Math.max(min, Math.min(max, value));
+    }
+
+    // Offsets of the square around the origin as dx, dz pairs, sorted by horizontal distance; built once per radius.
+    private static int[] offsets(int radius) {
+        return OFFSETS.computeIfAbsent(Math.max(0, radius), r -> {
+            int side = r * 2 + 1;
+            Integer[] order = new Integer[side * side];
+            for (int i = 0; i < order.length; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> Integer.compare(distanceSq(a, side, r), distanceSq(b, side, r)));
+            int[] out = new int[order.length * 2];
+            for (int i = 0; i < order.length; i++) {
+                out[i * 2] = order[i] % side - r;
+                out[i * 2 + 1] = order[i] / side - r;
+            }
+            return out;
+        });
+    }
+
+    private static int distanceSq(int index, int side, int radius) {
+        int dx = index % side - radius;
+        int dz = index / side - radius;
+        return dx * dx + dz * dz;
+    }
+}
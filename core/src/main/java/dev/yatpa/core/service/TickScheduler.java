@@ -0,0 +1,42 @@
+package dev.yatpa.core.service;
+
+import java.util.ArrayList;
+import java.util.function.Predicate;
+
+// Runs per-tick countdowns such as teleport warmups. They sit in one list that is compacted in place, so a tick with
+// nothing due allocates nothing. Request expiry lives in RequestService. Server thread only.
+public final class TickScheduler<C> {
+    // Advances a countdown by one tick; returns false once it has finished or was cancelled.
+    private final Predicate<C> step;
+    private final ArrayList<C> countdowns = new ArrayList<>();
+
+    public TickScheduler(Predicate<C> step) {
+        this.step = step;
+    }
+
+    public void add(C countdown) {
+        countdowns.add(countdown);
+    }
+
+    public void clear() {
+        countdowns.clear();
+    }
+
+    public void tick() {
+        int kept = 0;
+        int size = countdowns.size();
+        for (int i = 0; i < size; i++) {
+            C countdown = countdowns.get(i);
+            if (step.test(countdown)) {
+                countdowns.set(kept++, countdown);
+            }
+        }
+        // Countdowns started from inside a tick (e.g. a follow-up teleport) were appended past size.
+        for (int i = size; i < countdowns.size(); i++) {
+            countdowns.set(kept++, countdowns.get(i));
+        }
+        for (int i = countdowns.size() - 1; i >= kept; i--) {
+            countdowns.remove(i);
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package dev.yatpa.core.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import dev.yatpa.core.data.RequestType;
+import dev.yatpa.core.data.TeleportRequest;
+import java.util.List;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+
+// Expiry is driven through setLimits: a negative timeout makes every queued request due without waiting.
+class RequestServiceTest {
+    private final UUID receiver = UUID.randomUUID();
+    private final UUID alice = UUID.randomUUID();
+    private final UUID bob = UUID.randomUUID();
+    private final UUID carol = UUID.randomUUID();
+
+    @Test
+    void fullInboxRefusesNewSendersUntilOneIsAnswered() {
+        RequestService requests = new RequestService(60, 0, 2);
+
+        assertTrue(requests.create(alice, receiver, RequestType.TPA));
+        assertTrue(requests.create(bob, receiver, RequestType.TPA));
+        assertTrue(requests.inboxFull(receiver));
+        assertFalse(requests.create(carol, receiver, RequestType.TPA));
+
+        requests.remove(requests.pendingFor(receiver, alice).orElseThrow());
+
+        assertFalse(requests.inboxFull(receiver));
+        assertTrue(requests.create(carol, receiver, RequestType.TPA));
+    }
+
+    @Test
+    void expiredRequestsDoNotCountTowardsAFullInbox() {
+        RequestService requests = new RequestService(60, 0, 1);
+        requests.create(alice, receiver, RequestType.TPA);
+        assertTrue(requests.inboxFull(receiver));
+
+        requests.setLimits(-1, 0, 1);
+
+        assertFalse(requests.inboxFull(receiver));
+        assertTrue(requests.create(bob, receiver, RequestType.TPA));
+    }
+
+    @Test
+    void secondRequestForSamePairIsRefused() {
+        RequestService requests = new RequestService(60, 0, 10);
+
+        assertTrue(requests.create(alice, receiver, RequestType.TPA));
+        assertFalse(requests.create(alice, receiver, RequestType.TPAHERE));
+        assertEquals(RequestType.TPA, requests.pendingFor(receiver, alice).orElseThrow().type());
+    }
+
+    @Test
+    void newestRequestIsAnsweredFirstAndOthersStayPending() {
+        RequestService requests = new RequestService(60, 0, 10);
+        requests.create(alice, receiver, RequestType.TPA);
+        requests.create(bob, receiver, RequestType.TPAHERE);
+
+        assertEquals(bob, requests.pendingFor(receiver).orElseThrow().sender());
+        assertEquals(List.of(alice, bob), senders(requests.pendingAll(receiver)));
+
+        assertEquals(bob, requests.removeFor(receiver).orElseThrow().sender());
+        assertEquals(alice, requests.pendingFor(receiver).orElseThrow().sender());
+        assertEquals(List.of(alice), senders(requests.pendingAll(receiver)));
+    }
+
+    @Test
+    void removingASenderWithdrawsAllTheirRequests() {
+        UUID other = UUID.randomUUID();
+        RequestService requests = new RequestService(60, 0, 10);
+        requests.create(alice, receiver, RequestType.TPA);
+        requests.create(alice, other, RequestType.TPA);
+        requests.create(bob, receiver, RequestType.TPA);
+
+        assertEquals(2, requests.removeFromSender(alice).size());
+
+        assertFalse(requests.hasPair(alice, receiver));
+        assertFalse(requests.hasPair(alice, other));
+        assertTrue(requests.pendingFor(other).isEmpty());
+        assertEquals(List.of(bob), senders(requests.pendingAll(receiver)));
+    }
+
+    @Test
+    void purgeReportsOnlyRequestsThatAreStillPending() {
+        RequestService requests = new RequestService(60, 0, 10);
+        requests.create(alice, receiver, RequestType.TPA);
+        requests.create(bob, receiver, RequestType.TPA);
+        requests.create(carol, receiver, RequestType.TPA);
+        requests.remove(requests.pendingFor(receiver, alice).orElseThrow());
+        requests.removeFromSender(carol);
+
+        assertTrue(requests.purgeExpired().isEmpty());
+
+        requests.setLimits(-1, 0, 10);
+        List<TeleportRequest> expired = requests.purgeExpired();
+
+        assertEquals(List.of(bob), senders(expired));
+        assertTrue(requests.pendingFor(receiver).isEmpty());
+        assertTrue(requests.purgeExpired().isEmpty());
+    }
+
+    @Test
+    void purgeSkipsARequestReplacedAfterItExpired() {
+        RequestService requests = new RequestService(-1, 0, 10);
+        requests.create(alice, receiver, RequestType.TPA);
+
+        // The first request is already expired, so it no longer blocks a new one from the same sender.
+        assertFalse(requests.hasPair(alice, receiver));
+        assertTrue(requests.create(alice, receiver, RequestType.TPAHERE));
+
+        List<TeleportRequest> expired = requests.purgeExpired();
+
+        assertEquals(1, expired.size());
+        assertEquals(RequestType.TPAHERE, expired.get(0).type());
+    }
+
+    @Test
+    void expiredRequestsAreHiddenFromLookupsBeforeThePurge() {
+        RequestService requests = new RequestService(60, 0, 10);
+        requests.create(alice, receiver, RequestType.TPA);
+
+        requests.setLimits(-1, 0, 10);
+
+        assertTrue(requests.pendingFor(receiver).isEmpty());
+        assertTrue(requests.pendingFor(receiver, alice).isEmpty());
+        assertTrue(requests.pendingAll(receiver).isEmpty());
+        assertEquals(1, requests.purgeExpired().size());
+    }
+
+    @Test
+    void cooldownStartsWhenARequestIsSent() {
+        RequestService requests = new RequestService(60, 30, 10);
+
+        assertTrue(requests.canSend(alice));
+        assertEquals(0, requests.cooldownRemaining(alice));
+
+        requests.create(alice, receiver, RequestType.TPA);
+
+        assertFalse(requests.canSend(alice));
+        int remaining = requests.cooldownRemaining(alice);
+        assertTrue(remaining > 28 && remaining <= 30, "remaining " + remaining);
+        assertTrue(requests.canSend(bob));
+    }
+
+    @Test
+    void refusedRequestDoesNotStartACooldown() {
+        RequestService requests = new RequestService(60, 30, 1);
+        requests.create(alice, receiver, RequestType.TPA);
+
+        assertFalse(requests.create(bob, receiver, RequestType.TPA));
+
+        assertTrue(requests.canSend(bob));
+    }
+
+    @Test
+    void setLimitsKeepsPendingRequests() {
+        RequestService requests = new RequestService(60, 30, 2);
+        requests.create(alice, receiver, RequestType.TPA);
+        requests.create(bob, receiver, RequestType.TPA);
+
+        requests.setLimits(120, 0, 3);
+
+        assertEquals(List.of(alice, bob), senders(requests.pendingAll(receiver)));
+        assertTrue(requests.canSend(alice));
+        assertTrue(requests.create(carol, receiver, RequestType.TPA));
+
+        requests.setLimits(120, 0, 1);
+
+        assertEquals(3, requests.pendingAll(receiver).size());
+        assertFalse(requests.create(UUID.randomUUID(), receiver, RequestType.TPA));
+    }
+
+    private static List<UUID> senders(List<TeleportRequest> requests) {
+        return requests.stream().map(TeleportRequest::sender).toList();
+    }
+}
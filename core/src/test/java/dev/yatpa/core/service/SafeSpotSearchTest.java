@@ -0,0 +1,203 @@
+package dev.yatpa.core.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+
+class SafeSpotSearchTest {
+    private static final int MIN_Y = -63;
+    private static final int MAX_Y = 318;
+    private static final int GROUND = 64;
+
+    // Flat ground at GROUND: solid floor up to it and clear above. Single blocks can be overridden, a "hazard" top
+    // block is neither floor nor clear (lava, magma), and every read is recorded.
+    private static final class World implements BlockView {
+        private final Map<Long, Integer> blocks = new HashMap<>();
+        private final Set<Long> readColumns = new HashSet<>();
+        private final Set<Long> readBlocks = new HashSet<>();
+        private int reads;
+        private int borderRadius = Integer.MAX_VALUE;
+
+        World set(int x, int y, int z, int kind) {
+            blocks.put(key(x, y, z), kind);
+            return this;
+        }
+
+        World hazardTop(int x, int z) {
+            return set(x, GROUND, z, 0);
+        }
+
+        // Every column in the square is unsafe at the surface.
+        World hazardSquare(int radius) {
+            for (int x = -radius; x <= radius; x++) {
+                for (int z = -radius; z <= radius; z++) {
+                    hazardTop(x, z);
+                }
+            }
+            return this;
+        }
+
+        // A two-block air pocket standing on the floor at floorY.
+        World cave(int x, int z, int floorY) {
+            return set(x, floorY + 1, z, CLEAR).set(x, floorY + 2, z, CLEAR);
+        }
+
+        @Override
+        public int kind(int x, int y, int z) {
+            readColumns.add(key(x, 0, z));
+            readBlocks.add(key(x, y, z));
+            reads++;
+            Integer kind = blocks.get(key(x, y, z));
+            if (kind != null) {
+                return kind;
+            }
+            return y <= GROUND ? FLOOR : CLEAR;
+        }
+
+        @Override
+        public int highestY(int x, int z) {
+            return GROUND;
+        }
+
+        @Override
+        public boolean insideBorder(int x, int z) {
+            return Math.abs(x) <= borderRadius && Math.abs(z) <= borderRadius;
+        }
+
+        private static long key(int x, int y, int z) {
+            return ((long) x & 0xFFFFF) << 40 | ((long) y & 0xFFFFF) << 20 | ((long) z & 0xFFFFF);
+        }
+    }
+
+    private final World world = new World();
+    private final SafeSpotSearch search = new SafeSpotSearch(world, MIN_Y, MAX_Y);
+
+    @Test
+    void standingOnTheSurfaceIsSafe() {
+        assertTrue(search.isSafe(0, GROUND + 1, 0));
+        assertFalse(search.isSafe(0, GROUND, 0));
+        assertFalse(search.isSafe(0, GROUND + 2, 0));
+    }
+
+    @Test
+    void spotsOutsideTheVerticalLimitsAreNeverSafe() {
+        SafeSpotSearch low = new SafeSpotSearch(world, MIN_Y, GROUND);
+
+        assertFalse(low.isSafe(0, GROUND + 1, 0));
+        assertFalse(search.isSafe(0, MIN_Y - 1, 0));
+    }
+
+    @Test
+    void columnPrefersTheSpotClosestToTheTargetWithinRange() {
+        world.cave(0, 0, 40);
+
+        assertEquals(41, search.findInColumn(0, 0, 44, 5));
+        assertEquals(GROUND + 1, search.findInColumn(0, 0, 60, 5));
+    }
+
+    @Test
+    void columnOutsideTheVerticalRangeFallsBackToTheSurface() {
+        world.cave(0, 0, 40);
+
+        assertEquals(GROUND + 1, search.findInColumn(0, 0, 20, 5));
+    }
+
+    @Test
+    void columnWithNothingSafeReturnsNone() {
+        world.cave(0, 0, 40).hazardTop(0, 0);
+
+        assertEquals(SafeSpotSearch.NONE, search.findInColumn(0, 0, 50, 5));
+        assertEquals(41, search.findInColumn(0, 0, 50, 10));
+    }
+
+    @Test
+    void nearestFindsTheClosestSafeColumn() {
+        world.hazardSquare(6);
+        world.set(5, GROUND, 0, BlockView.FLOOR);
+        world.set(0, GROUND, -3, BlockView.FLOOR);
+        world.set(-4, GROUND, 4, BlockView.FLOOR);
+
+        assertTrue(search.findNearest(0, GROUND + 1, 0, 8, 16));
+
+        assertEquals(0, search.foundX());
+        assertEquals(GROUND + 1, search.foundY());
+        assertEquals(-3, search.foundZ());
+    }
+
+    @Test
+    void nearestWeighsVerticalDistanceAgainstHorizontal() {
+        // Origin underground: a cave two columns away beats the surface straight above.
+        world.cave(2, 0, 29);
+
+        assertTrue(search.findNearest(0, 30, 0, 8, 64));
+
+        assertEquals(2, search.foundX());
+        assertEquals(30, search.foundY());
+        assertEquals(0, search.foundZ());
+    }
+
+    @Test
+    void nearestKeepsTheOriginWhenItIsSafe() {
+        assertTrue(search.findNearest(3, GROUND + 1, -7, 8, 16));
+
+        assertEquals(3, search.foundX());
+        assertEquals(GROUND + 1, search.foundY());
+        assertEquals(-7, search.foundZ());
+        assertEquals(1, search.columnsVisited());
+    }
+
+    @Test
+    void heightmapSkipsColumnsThatCannotBeatTheBest() {
+        // High above flat ground the best spot is the surface straight below, 35 blocks down. No other column within
+        // radius 10 can be closer, and the heightmap alone proves it.
+        assertTrue(search.findNearest(0, 100, 0, 10, 64));
+
+        assertEquals(0, search.foundX());
+        assertEquals(GROUND + 1, search.foundY());
+        assertEquals(0, search.foundZ());
+        assertEquals(1, search.columnsVisited());
+        assertEquals(21 * 21 - 1, search.columnsSkipped());
+        assertEquals(Set.of(World.key(0, 0, 0)), world.readColumns);
+    }
+
+    @Test
+    void nearestIgnoresColumnsOutsideTheBorder() {
+        world.borderRadius = 2;
+        world.hazardSquare(6);
+        world.set(3, GROUND, 0, BlockView.FLOOR);
+        world.set(-2, GROUND, -2, BlockView.FLOOR);
+
+        assertTrue(search.findNearest(0, GROUND + 1, 0, 6, 16));
+
+        assertEquals(-2, search.foundX());
+        assertEquals(-2, search.foundZ());
+        assertEquals(SafeSpotSearch.NONE, search.findInColumn(3, 0, GROUND + 1, 16));
+        assertFalse(world.readColumns.contains(World.key(3, 0, 0)));
+    }
+
+    @Test
+    void nearestReportsNothingWhenNoColumnIsSafe() {
+        world.hazardSquare(4);
+
+        assertFalse(search.findNearest(0, GROUND + 1, 0, 4, 16));
+
+        assertEquals(SafeSpotSearch.NONE, search.foundY());
+        assertEquals(81, search.columnsVisited());
+    }
+
+    @Test
+    void eachBlockIsReadOnce() {
+        world.hazardSquare(4).cave(1, 1, 50);
+
+        search.findNearest(0, GROUND + 1, 0, 4, 16);
+
+        assertEquals(world.readBlocks.size(), world.reads);
+        assertEquals(world.reads, search.blocksProbed());
+    }
+}
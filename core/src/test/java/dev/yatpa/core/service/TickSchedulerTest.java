@@ -0,0 +1,95 @@
+package dev.yatpa.core.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class TickSchedulerTest {
+    // A countdown that finishes after the given number of steps; steps are recorded in order across all countdowns.
+    private static final class Countdown {
+        private final String name;
+        private int left;
+        private Runnable onStep = () -> { };
+
+        private Countdown(String name, int left) {
+            this.name = name;
+            this.left = left;
+        }
+    }
+
+    private final List<String> stepped = new ArrayList<>();
+    private final TickScheduler<Countdown> scheduler = new TickScheduler<>(countdown -> {
+        stepped.add(countdown.name);
+        countdown.onStep.run();
+        return --countdown.left > 0;
+    });
+
+    @Test
+    void finishedCountdownsAreDroppedAndTheRestKeepTheirOrder() {
+        scheduler.add(new Countdown("a", 1));
+        scheduler.add(new Countdown("b", 3));
+        scheduler.add(new Countdown("c", 1));
+        scheduler.add(new Countdown("d", 2));
+
+        assertEquals(List.of("a", "b", "c", "d"), tick());
+        assertEquals(List.of("b", "d"), tick());
+        assertEquals(List.of("b"), tick());
+        assertEquals(List.of(), tick());
+    }
+
+    @Test
+    void countdownsAddedBetweenTicksRunAfterTheSurvivors() {
+        scheduler.add(new Countdown("a", 2));
+        scheduler.add(new Countdown("b", 1));
+        tick();
+
+        scheduler.add(new Countdown("c", 1));
+
+        assertEquals(List.of("a", "c"), tick());
+        assertEquals(List.of(), tick());
+    }
+
+    @Test
+    void countdownAddedDuringATickStartsOnTheNextOne() {
+        Countdown first = new Countdown("a", 1);
+        Countdown kept = new Countdown("b", 3);
+        first.onStep = () -> scheduler.add(new Countdown("follow-up", 2));
+        scheduler.add(first);
+        scheduler.add(kept);
+        scheduler.add(new Countdown("c", 1));
+
+        assertEquals(List.of("a", "b", "c"), tick());
+        assertEquals(List.of("b", "follow-up"), tick());
+        assertEquals(List.of("b", "follow-up"), tick());
+        assertEquals(List.of(), tick());
+    }
+
+    @Test
+    void countdownAddedDuringTheLastStepIsKept() {
+        Countdown last = new Countdown("a", 1);
+        last.onStep = () -> scheduler.add(new Countdown("follow-up", 1));
+        scheduler.add(last);
+
+        assertEquals(List.of("a"), tick());
+        assertEquals(List.of("follow-up"), tick());
+        assertEquals(List.of(), tick());
+    }
+
+    @Test
+    void clearDropsEveryCountdown() {
+        scheduler.add(new Countdown("a", 5));
+        scheduler.add(new Countdown("b", 5));
+
+        scheduler.clear();
+
+        assertEquals(List.of(), tick());
+    }
+
+    private List<String> tick() {
+        stepped.clear();
+        scheduler.tick();
+        return List.copyOf(stepped);
+    }
+}
@@ -18,6 +18,8 @@ dependencies {
     mappings(loom.officialMojangMappings())
     modImplementation("net.fabricmc:fabric-loader:0.16.10")
     modImplementation("net.fabricmc.fabric-api:fabric-api:0.116.6+1.21.1")
+    implementation(project(":core"))
+    include(project(":core"))
 }
 
 tasks.withType<JavaCompile>().configureEach {
@@ -1,8 +1,8 @@
 package dev.yatpa.fabric;
 
 import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
 import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
 import com.mojang.brigadier.Command;
 import com.mojang.brigadier.arguments.DoubleArgumentType;
 import com.mojang.brigadier.CommandDispatcher;
@@ -12,19 +12,41 @@ import com.mojang.brigadier.context.CommandContext;
 import com.mojang.brigadier.exceptions.CommandSyntaxException;
 import com.mojang.brigadier.suggestion.Suggestions;
 import com.mojang.brigadier.suggestion.SuggestionsBuilder;
+import dev.yatpa.core.data.RequestType;
+import dev.yatpa.core.data.TeleportKind;
+import dev.yatpa.core.data.TeleportRequest;
+import dev.yatpa.core.service.BlockView;
+import dev.yatpa.core.service.RequestService;
+import dev.yatpa.core.service.SafeSpotSearch;
+import dev.yatpa.core.service.TickScheduler;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.Reader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
 import java.io.Writer;
 import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.ArrayDeque;
+import java.util.Arrays;
 import java.util.Deque;
 import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
@@ -34,6 +56,7 @@ import java.util.Properties;
 import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 import java.time.Instant;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
@@ -42,10 +65,12 @@ import net.fabricmc.api.DedicatedServerModInitializer;
 import net.fabricmc.fabric.api.command.v2.CommandRegistrationCallback;
 import net.fabricmc.fabric.api.entity.event.v1.ServerLivingEntityEvents;
 import net.fabricmc.fabric.api.entity.event.v1.ServerPlayerEvents;
+import net.fabricmc.fabric.api.event.lifecycle.v1.ServerLifecycleEvents;
 import net.fabricmc.fabric.api.event.lifecycle.v1.ServerTickEvents;
 import net.fabricmc.fabric.api.networking.v1.ServerPlayConnectionEvents;
 import net.fabricmc.loader.api.FabricLoader;
 import net.minecraft.ChatFormatting;
+import net.minecraft.Util;
 import net.minecraft.commands.CommandSourceStack;
 import net.minecraft.commands.Commands;
 import net.minecraft.commands.CommandBuildContext;
@@ -67,6 +92,7 @@ import net.minecraft.server.level.ServerPlayer;
 import net.minecraft.server.network.ServerGamePacketListenerImpl;
 import net.minecraft.sounds.SoundEvent;
 import net.minecraft.sounds.SoundSource;
+import net.minecraft.util.Mth;
 import net.minecraft.world.item.Item;
 import net.minecraft.world.item.ItemStack;
 import net.minecraft.world.item.Items;
@@ -77,6 +103,8 @@ import net.minecraft.world.level.border.WorldBorder;
 import net.minecraft.world.level.levelgen.Heightmap;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.w3c.dom.NodeList;
 
 public class YatpaFabricMod implements DedicatedServerModInitializer {
@@ -85,8 +113,13 @@ public class YatpaFabricMod implements DedicatedServerModInitializer {
     private static final int TPALOG_MAX_ENTRIES = 200;
     private static final DateTimeFormatter TPALOG_TIME = DateTimeFormatter.ofPattern("HH:mm:ss")
         .withZone(ZoneId.systemDefault());
-    private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
-    private static final Type STORE_TYPE = new TypeToken<Store>() {}.getType();
+    private static final Logger LOGGER = LoggerFactory.getLogger("YATPA");
+    private static final Gson GSON = new Gson();
+    private static final Type POSITIONS_TYPE = new TypeToken<Map<String, Position>>() {}.getType();
+    // Changes are collected for this long after the first one, so a burst of disconnects or /sethome costs one write.
+    private static final long STORE_SAVE_DELAY_MILLIS = 2000L;
+    // How often clean records of offline players (looked up by a command but never changed) are dropped from memory.
+    private static final long STORE_EVICT_INTERVAL_MILLIS = 60_000L;
     private static final List<String> FEATURE_PATHS = List.of(
         "settings.features.enabled",
         "settings.features.tpa",
@@ -97,17 +130,26 @@ public class YatpaFabricMod implements DedicatedServerModInitializer {
     );
 
     private final Map<String, String> messages = new HashMap<>();
-    private final Map<UUID, Request> pendingByReceiver = new HashMap<>();
-    private final Map<UUID, Long> cooldownBySender = new HashMap<>();
+    // One pending request per receiver; a new one from another sender replaces it. Limits are set in loadConfig.
+    private final RequestService requests = new RequestService(60, 30, 1);
     private final Map<UUID, PendingTeleport> pendingTeleports = new HashMap<>();
+    private final TickScheduler<PendingTeleport> scheduler = new TickScheduler<>(this::tickPendingTeleport);
     private final Map<UUID, Long> rtpCooldownByPlayer = new HashMap<>();
     private final Deque<TeleportLogEntry> teleportLogEntries = new ArrayDeque<>();
+    private final Set<UUID> dirtyPlayers = new HashSet<>();
+    private final Set<String> dirtyOfflineNames = new HashSet<>();
+    private final Map<UUID, CompletableFuture<Void>> loadingPlayers = new HashMap<>();
 
     private Store store = new Store();
     private Config config = new Config();
     private Properties rawConfig = new Properties();
     private Path configDir;
     private Path storePath;
+    private StoreFile storeFile;
+    private long storeDirtySinceMillis;
+    private long storeEvictedAtMillis;
+    // Countdown action-bar messages by remaining seconds, built on first use; cleared when messages are reloaded.
+    private Component[] countdownMessages = new Component[0];
     private Path runtimeMessagesPath;
     private Path runtimeConfigPath;
     private MinecraftServer server;
@@ -226,20 +268,28 @@ public class YatpaFabricMod implements DedicatedServerModInitializer {
         });
 
         ServerTickEvents.START_SERVER_TICK.register(server -> this.tick((MinecraftServer) server));
+        ServerPlayConnectionEvents.JOIN.register((handler, sender, minecraftServer) ->
+            loadPlayerData(minecraftServer, ((ServerGamePacketListenerImpl) handler).getPlayer().getUUID()));
         ServerPlayConnectionEvents.DISCONNECT.register((handler, minecraftServer) -> {
             ServerPlayer player = ((ServerGamePacketListenerImpl) handler).getPlayer();
             String name = player.getGameProfile().getName().toLowerCase(Locale.ROOT);
             store.offlineLocations.put(name, Position.fromPlayer(player));
-            pendingTeleports.remove(player.getUUID());
-            saveStore();
+            removePendingTeleport(player.getUUID());
+            saveOfflineLocation(name);
+            // A clean record can be dropped right away; a dirty one is dropped once submitStore has serialized it.
+            if (!dirtyPlayers.contains(player.getUUID())) {
+                store.players.remove(player.getUUID());
+            }
         });
         ServerPlayerEvents.AFTER_RESPAWN.register((oldPlayer, newPlayer, alive) -> {
             ServerPlayer oldP = (ServerPlayer) oldPlayer;
             ServerPlayer newP = (ServerPlayer) newPlayer;
-            pendingTeleports.remove(newP.getUUID());
-            store.deathLocations.put(newP.getUUID().toString(), Position.fromPlayer(oldP));
-            store.usedDeathLocations.remove(newP.getUUID().toString());
-            saveStore();
+            removePendingTeleport(newP.getUUID());
+            Position death = Position.fromPlayer(oldP);
+            editPlayerData(newP.getServer(), newP.getUUID(), data -> {
+                data.deathLocation = death;
+                data.deathUsed = false;
+            });
         });
         ServerLivingEntityEvents.ALLOW_DAMAGE.register((entity, source, amount) -> {
             if (entity instanceof ServerPlayer player && config.cancelOnDamage) {
@@ -247,86 +297,119 @@ public class YatpaFabricMod implements DedicatedServerModInitializer {
             }
             return true;
         });
+        // Players are only kicked after SERVER_STOPPING, so their offline locations are flushed again once stopped.
+        ServerLifecycleEvents.SERVER_STOPPING.register(minecraftServer -> flushStore());
+        ServerLifecycleEvents.SERVER_STOPPED.register(minecraftServer -> {
+            flushStore();
+            storeFile.close();
+        });
     }
 
     private void tick(MinecraftServer minecraftServer) {
         this.server = minecraftServer;
-        purgeExpiredRequests();
+        expireRequests();
+        scheduler.tick();
+        long now = System.currentTimeMillis();
+        if (storeDirtySinceMillis != 0L && now - storeDirtySinceMillis >= STORE_SAVE_DELAY_MILLIS) {
+            submitStore();
+        }
+        if (now - storeEvictedAtMillis >= STORE_EVICT_INTERVAL_MILLIS) {
+            storeEvictedAtMillis = now;
+            evictOfflineRecords(minecraftServer);
+        }
+    }
 
-        List<UUID> finished = new ArrayList<>();
-        for (Map.Entry<UUID, PendingTeleport> entry : pendingTeleports.entrySet()) {
-            ServerPlayer player = minecraftServer.getPlayerList().getPlayer(entry.getKey());
-            if (player == null) {
-                finished.add(entry.getKey());
-                continue;
+    private void expireRequests() {
+        List<TeleportRequest> expired = requests.purgeExpired();
+        for (int i = 0; i < expired.size(); i++) {
+            expireRequest(expired.get(i));
+        }
+    }
+
+    private void expireRequest(TeleportRequest request) {
+        String receiverName = playerName(request.receiver());
+        String senderName = playerName(request.sender());
+        if (server != null) {
+            ServerPlayer sender = server.getPlayerList().getPlayer(request.sender());
+            if (sender != null) {
+                send(sender, "request_sender_expired", Map.of("target", receiverName));
             }
-            PendingTeleport pending = entry.getValue();
-            if (config.cancelOnMove && hasMovedBlock(player, pending.startPos)) {
-                cancelPending(player, "cancelled_move");
-                finished.add(entry.getKey());
-                continue;
-            }
-            if (pending.ticksLeft % 20 == 0) {
-                String countdown = format("countdown", Map.of("seconds", Integer.toString(pending.ticksLeft / 20)));
-                player.displayClientMessage(Component.literal(countdown), true);
-                play(player, "countdown");
-            }
-            pending.ticksLeft--;
-            if (pending.ticksLeft <= 0) {
-                ServerPlayer payer = minecraftServer.getPlayerList().getPlayer(pending.payerId);
-                if (payer == null) {
-                    sendRaw(player, "Teleport cancelled because payment could not be collected.");
-                    finished.add(entry.getKey());
-                    continue;
-                }
-                ChargeResult charge = charge(payer, pending.kind);
-                if (!charge.success) {
-                    String template = messages.getOrDefault("cost_failed", "cost_failed");
-                    if (!template.contains("%required%")) {
-                        sendRaw(payer, "You require " + charge.required + " to teleport.");
-                    } else {
-                        send(payer, "cost_failed", Map.of("required", charge.required));
-                    }
-                    finished.add(entry.getKey());
-                    continue;
-                }
-                if (charge.paid != null && !charge.paid.isBlank()) {
-                    sendRaw(payer, "Paid " + charge.paid + ".");
-                }
-                if (teleport(player, pending.targetSupplier.get(), pending.kind.name(), pending.logDetail)) {
-                    pending.onSuccess.run();
-                    send(player, "teleport_success");
-                    play(player, "success");
-                }
-                finished.add(entry.getKey());
+            ServerPlayer receiver = server.getPlayerList().getPlayer(request.receiver());
+            if (receiver != null) {
+                send(receiver, "request_receiver_expired", Map.of("player", senderName));
             }
         }
-        finished.forEach(pendingTeleports::remove);
     }
 
-    private void purgeExpiredRequests() {
-        long now = System.currentTimeMillis();
-        List<ExpiredRequest> expired = new ArrayList<>();
-        for (Map.Entry<UUID, Request> entry : pendingByReceiver.entrySet()) {
-            if ((now - entry.getValue().createdAtMillis) / 1000L > config.requestTimeoutSeconds) {
-                expired.add(new ExpiredRequest(entry.getKey(), entry.getValue()));
-            }
-        }
-        for (ExpiredRequest entry : expired) {
-            pendingByReceiver.remove(entry.receiver);
-            String receiverName = playerName(entry.receiver);
-            String senderName = playerName(entry.request.sender);
-            if (server != null) {
-                ServerPlayer sender = server.getPlayerList().getPlayer(entry.request.sender);
-                if (sender != null) {
-                    send(sender, "request_sender_expired", Map.of("target", receiverName));
-                }
-                ServerPlayer receiver = server.getPlayerList().getPlayer(entry.receiver);
-                if (receiver != null) {
-                    send(receiver, "request_receiver_expired", Map.of("player", senderName));
-                }
+    // Returns false once the countdown is over, one way or another.
+    private boolean tickPendingTeleport(PendingTeleport pending) {
+        if (pending.cancelled) {
+            return false;
+        }
+        ServerPlayer player = server.getPlayerList().getPlayer(pending.playerId);
+        if (player == null) {
+            removePendingTeleport(pending.playerId);
+            return false;
+        }
+        if (config.cancelOnMove && hasMovedBlock(player, pending.startPos)) {
+            cancelPending(player, "cancelled_move");
+            return false;
+        }
+        if (pending.ticksLeft % 20 == 0) {
+            player.displayClientMessage(countdownMessage(pending.ticksLeft / 20), true);
+            play(player, "countdown");
+        }
+        pending.ticksLeft--;
+        if (pending.ticksLeft > 0) {
+            return true;
+        }
+        // Removed before running onSuccess, which may queue the next teleport for the same player.
+        removePendingTeleport(pending.playerId);
+        ServerPlayer payer = server.getPlayerList().getPlayer(pending.payerId);
+        if (payer == null) {
+            sendRaw(player, "Teleport cancelled because payment could not be collected.");
+            return false;
+        }
+        ChargeResult charge = charge(payer, pending.kind);
+        if (!charge.success) {
+            String template = messages.getOrDefault("cost_failed", "cost_failed");
+            if (!template.contains("%required%")) {
+                sendRaw(payer, "You require " + charge.required + " to teleport.");
+            } else {
+                send(payer, "cost_failed", Map.of("required", charge.required));
             }
+            return false;
+        }
+        if (charge.paid != null && !charge.paid.isBlank()) {
+            sendRaw(payer, "Paid " + charge.paid + ".");
+        }
+        if (teleport(player, pending.targetSupplier.get(), pending.kind.name(), pending.logDetail)) {
+            pending.onSuccess.run();
+            send(player, "teleport_success");
+            play(player, "success");
         }
+        return false;
+    }
+
+    private Component countdownMessage(int seconds) {
+        if (seconds >= countdownMessages.length) {
+            countdownMessages = Arrays.copyOf(countdownMessages, seconds + 1);
+        }
+        Component message = countdownMessages[seconds];
+        if (message == null) {
+            message = Component.literal(format("countdown", Map.of("seconds", Integer.toString(seconds))));
+            countdownMessages[seconds] = message;
+        }
+        return message;
+    }
+
+    // The scheduler drops a cancelled countdown on its next tick.
+    private PendingTeleport removePendingTeleport(UUID playerId) {
+        PendingTeleport pending = pendingTeleports.remove(playerId);
+        if (pending != null) {
+            pending.cancelled = true;
+        }
+        return pending;
     }
 
     private String playerName(UUID uuid) {
@@ -597,6 +680,9 @@ public class YatpaFabricMod implements DedicatedServerModInitializer {
 
     private int reload(CommandContext<CommandSourceStack> ctx) {
         loadFiles();
+        for (ServerPlayer player : ctx.getSource().getServer().getPlayerList().getPlayers()) {
+            loadPlayerData(ctx.getSource().getServer(), player.getUUID());
+        }
         send(ctx.getSource(), "config_reloaded");
         return Command.SINGLE_SUCCESS;
     }
@@ -854,18 +940,21 @@ public class YatpaFabricMod implements DedicatedServerModInitializer {
             return 0;
         }
 
-        int cooldown = cooldownRemaining(sender.getUUID());
+        int cooldown = requests.cooldownRemaining(sender.getUUID());
         if (cooldown > 0) {
             sendRaw(sender, "Please wait " + cooldown + "s before sending another request.");
             return 0;
         }
 
-        PlayerPrefs prefs = store.playerPrefs.computeIfAbsent(target.getUUID().toString(), k -> new PlayerPrefs());
+        if (deferUntilLoaded(ctx, target.getUUID())) {
+            return 0;
+        }
+        PlayerPrefs prefs = playerData(target.getUUID()).prefs;
         if (!prefs.acceptingRequests) {
             send(sender, "target_not_accepting", Map.of("target", target.getName().getString()));
             return 0;
         }
-        if (prefs.blocked.contains(sender.getUUID().toString())) {
+        if (prefs.blocked.contains(sender.getUUID())) {
             send(sender, "you_are_blocked");
             return 0;
         }
@@ -882,14 +971,15 @@ public class YatpaFabricMod implements DedicatedServerModInitializer {
                 return 0;
             }
         }
-        Request existing = pendingByReceiver.get(target.getUUID());
-        if (existing != null && existing.sender.equals(sender.getUUID())) {
+        // A request that timed out since the last tick would still fill the inbox, so report it first.
+        expireRequests();
+        if (requests.hasPair(sender.getUUID(), target.getUUID())) {
             send(sender, "request_exists");
             return 0;
         }
 
-        pendingByReceiver.put(target.getUUID(), new Request(sender.getUUID(), type, System.currentTimeMillis()));
-        cooldownBySender.put(sender.getUUID(), System.currentTimeMillis());
+        requests.removeFor(target.getUUID());
+        requests.create(sender.getUUID(), target.getUUID(), type);
 
         send(sender, "request_sent", Map.of("target", target.getName().getString()));
         send(target, "request_received", Map.of("player", sender.getName().getString()));
@@ -927,20 +1017,20 @@ public class YatpaFabricMod implements DedicatedServerModInitializer {
             return 0;
         }
 
-        Request request = pendingByReceiver.get(receiver.getUUID());
+        TeleportRequest request = requests.pendingFor(receiver.getUUID()).orElse(null);
         if (request == null) {
             send(receiver, "request_none");
             return 0;
         }
 
         MinecraftServer minecraftServer = Objects.requireNonNull(receiver.getServer());
-        ServerPlayer sender = minecraftServer.getPlayerList().getPlayer(request.sender);
+        ServerPlayer sender = minecraftServer.getPlayerList().getPlayer(request.sender());
         if (sender == null) {
             send(receiver, "player_not_online");
             return 0;
         }
 
-        if (request.type == RequestType.TPA) {
+        if (request.type() == RequestType.TPA) {
             if (!config.tpaEnabled) {
                 send(receiver, "feature_tpa_disabled");
                 send(sender, "request_denied");
@@ -957,7 +1047,7 @@ public class YatpaFabricMod implements DedicatedServerModInitializer {
                 send(sender, "cost_failed", Map.of("required", charge.required));
                 return 0;
             }
-            pendingByReceiver.remove(receiver.getUUID());
+            requests.remove(request);
             queueDelayedTeleport(
                 sender,
                 sender,
@@ -989,7 +1079,7 @@ public class YatpaFabricMod implements DedicatedServerModInitializer {
                 send(sender, "cost_failed", Map.of("required", charge.required));
                 return 0;
             }
-            pendingByReceiver.remove(receiver.getUUID());
+            requests.remove(request);
             queueDelayedTeleport(
                 receiver,
                 sender,
@@ -1020,13 +1110,13 @@ public class YatpaFabricMod implements DedicatedServerModInitializer {
             send(ctx.getSource(), "player_only");
             return 0;
         }
-        Request request = pendingByReceiver.remove(receiver.getUUID());
+        TeleportRequest request = requests.removeFor(receiver.getUUID()).orElse(null);
         if (request == null) {
             send(receiver, "request_none");
             return 0;
         }
         MinecraftServer minecraftServer = Objects.requireNonNull(receiver.getServer());
-        ServerPlayer sender = minecraftServer.getPlayerList().getPlayer(request.sender);
+        ServerPlayer sender = minecraftServer.getPlayerList().getPlayer(request.sender());
         if (sender != null) {
             send(sender, "request_denied");
         }
@@ -1043,9 +1133,12 @@ public class YatpaFabricMod implements DedicatedServerModInitializer {
             send(ctx.getSource(), "player_only");
             return 0;
         }
-        PlayerPrefs prefs = store.playerPrefs.computeIfAbsent(player.getUUID().toString(), k -> new PlayerPrefs());
+        if (deferUntilLoaded(ctx, player.getUUID())) {
+            return 0;
+        }
+        PlayerPrefs prefs = playerData(player.getUUID()).prefs;
         prefs.acceptingRequests = !prefs.acceptingRequests;
-        saveStore();
+        saveStore(player.getUUID());
         send(player, prefs.acceptingRequests ? "toggle_on" : "toggle_off");
         return Command.SINGLE_SUCCESS;
     }
@@ -1059,11 +1152,14 @@ public class YatpaFabricMod implements DedicatedServerModInitializer {
             send(ctx.getSource(), "player_only");
             return 0;
         }
+        if (deferUntilLoaded(ctx, player.getUUID())) {
+            return 0;
+        }
         String name = StringArgumentType.getString(ctx, "name");
         UUID target = uuidForName(ctx.getSource().getServer(), name);
-        PlayerPrefs prefs = store.playerPrefs.computeIfAbsent(player.getUUID().toString(), k -> new PlayerPrefs());
-        prefs.blocked.add(target.toString());
-        saveStore();
+        PlayerPrefs prefs = playerData(player.getUUID()).prefs;
+        prefs.blocked.add(target);
+        saveStore(player.getUUID());
         send(player, "blocked_target", Map.of("target", name.toLowerCase(Locale.ROOT)));
         return Command.SINGLE_SUCCESS;
     }
@@ -1077,11 +1173,14 @@ public class YatpaFabricMod implements DedicatedServerModInitializer {
             send(ctx.getSource(), "player_only");
             return 0;
         }
+        if (deferUntilLoaded(ctx, player.getUUID())) {
+            return 0;
+        }
         String name = StringArgumentType.getString(ctx, "name");
         UUID target = uuidForName(ctx.getSource().getServer(), name);
-        PlayerPrefs prefs = store.playerPrefs.computeIfAbsent(player.getUUID().toString(), k -> new PlayerPrefs());
-        prefs.blocked.remove(target.toString());
-        saveStore();
+        PlayerPrefs prefs = playerData(player.getUUID()).prefs;
+        prefs.blocked.remove(target);
+        saveStore(player.getUUID());
         send(player, "unblocked_target", Map.of("target", name.toLowerCase(Locale.ROOT)));
         return Command.SINGLE_SUCCESS;
     }
@@ -1353,8 +1452,11 @@ public class YatpaFabricMod implements DedicatedServerModInitializer {
             send(ctx.getSource(), "player_only");
             return 0;
         }
-        String key = player.getUUID().toString();
-        Position pos = store.deathLocations.get(key);
+        if (deferUntilLoaded(ctx, player.getUUID())) {
+            return 0;
+        }
+        UUID id = player.getUUID();
+        Position pos = playerData(id).deathLocation;
         if (pos == null) {
             send(player, "death_used");
             return 0;
@@ -1362,11 +1464,11 @@ public class YatpaFabricMod implements DedicatedServerModInitializer {
         MinecraftServer minecraftServer = Objects.requireNonNull(player.getServer());
         ServerLevel level = resolveStoredLevel(minecraftServer, pos.dimension, minecraftServer.overworld());
         final ServerLevel finalLevel = level;
-        queueDelayedTeleport(player, player, TeleportKind.BACK, () -> finalLevel, () -> pos.x, () -> pos.y, () -> pos.z, pos.yaw, pos.pitch, () -> {
-            store.deathLocations.remove(key);
-            store.usedDeathLocations.add(key);
-            saveStore();
-        }, null, "death");
+        queueDelayedTeleport(player, player, TeleportKind.BACK, () -> finalLevel, () -> pos.x, () -> pos.y, () -> pos.z, pos.yaw, pos.pitch, () ->
+            editPlayerData(minecraftServer, id, data -> {
+                data.deathLocation = null;
+                data.deathUsed = true;
+            }), null, "death");
         return Command.SINGLE_SUCCESS;
     }
 
@@ -1488,6 +1590,9 @@ public class YatpaFabricMod implements DedicatedServerModInitializer {
             send(ctx.getSource(), "player_only");
             return 0;
         }
+        if (deferUntilLoaded(ctx, player.getUUID())) {
+            return 0;
+        }
         return setHome(player, "default");
     }
 
@@ -1504,23 +1609,26 @@ public class YatpaFabricMod implements DedicatedServerModInitializer {
             send(ctx.getSource(), "player_only");
             return 0;
         }
+        if (deferUntilLoaded(ctx, player.getUUID())) {
+            return 0;
+        }
         return setHome(player, StringArgumentType.getString(ctx, "name"));
     }
 
     private int setHome(ServerPlayer player, String name) {
-        String key = player.getUUID().toString();
-        Map<String, Position> homes = store.homes.computeIfAbsent(key, k -> new HashMap<>());
-        int limit = store.homeLimits.getOrDefault(key, config.maxHomesDefault);
+        PlayerData data = playerData(player.getUUID());
+        Map<String, Position> homes = data.homes;
+        int limit = data.homeLimit != null ? data.homeLimit : config.maxHomesDefault;
         String id = name.toLowerCase(Locale.ROOT);
         if (!homes.containsKey(id) && homes.size() >= limit) {
             send(player, "home_limit", Map.of("limit", Integer.toString(limit)));
             return 0;
         }
         homes.put(id, Position.fromPlayer(player));
-        if (!store.defaultHomes.containsKey(key) && homes.size() == 1) {
-            store.defaultHomes.put(key, id);
+        if (data.defaultHome == null && homes.size() == 1) {
+            data.defaultHome = id;
         }
-        saveStore();
+        saveStore(player.getUUID());
         send(player, "home_set", Map.of("name", id));
         return Command.SINGLE_SUCCESS;
     }
@@ -1538,13 +1646,16 @@ public class YatpaFabricMod implements DedicatedServerModInitializer {
             send(ctx.getSource(), "player_only");
             return 0;
         }
+        if (deferUntilLoaded(ctx, player.getUUID())) {
+            return 0;
+        }
         String id = StringArgumentType.getString(ctx, "name").toLowerCase(Locale.ROOT);
-        Map<String, Position> homes = store.homes.computeIfAbsent(player.getUUID().toString(), k -> new HashMap<>());
+        Map<String, Position> homes = playerData(player.getUUID()).homes;
         if (homes.remove(id) == null) {
             send(player, "home_missing", Map.of("name", id));
             return 0;
         }
-        saveStore();
+        saveStore(player.getUUID());
         send(player, "home_deleted", Map.of("name", id));
         return Command.SINGLE_SUCCESS;
     }
@@ -1562,13 +1673,16 @@ public class YatpaFabricMod implements DedicatedServerModInitializer {
             send(ctx.getSource(), "player_only");
             return 0;
         }
-        Map<String, Position> homes = store.homes.computeIfAbsent(player.getUUID().toString(), k -> new HashMap<>());
+        if (deferUntilLoaded(ctx, player.getUUID())) {
+            return 0;
+        }
+        Map<String, Position> homes = playerData(player.getUUID()).homes;
         sendHomeList(player, homes);
         return Command.SINGLE_SUCCESS;
     }
 
     private void sendHomeList(ServerPlayer player, Map<String, Position> homes) {
-        String defaultHome = store.defaultHomes.get(player.getUUID().toString());
+        String defaultHome = playerData(player.getUUID()).defaultHome;
         sendComponent(player, Component.literal("----- ").withStyle(ChatFormatting.DARK_GRAY)
             .append(Component.literal("Your Homes").withStyle(ChatFormatting.GOLD))
             .append(Component.literal(" -----").withStyle(ChatFormatting.DARK_GRAY)));
@@ -1609,9 +1723,12 @@ public class YatpaFabricMod implements DedicatedServerModInitializer {
             send(ctx.getSource(), "player_only");
             return 0;
         }
+        if (deferUntilLoaded(ctx, player.getUUID())) {
+            return 0;
+        }
         String name = StringArgumentType.getString(ctx, "name").toLowerCase(Locale.ROOT);
-        store.defaultHomes.put(player.getUUID().toString(), name);
-        saveStore();
+        playerData(player.getUUID()).defaultHome = name;
+        saveStore(player.getUUID());
         send(player, "home_default_set", Map.of("name", name));
         return Command.SINGLE_SUCCESS;
     }
@@ -1629,7 +1746,10 @@ public class YatpaFabricMod implements DedicatedServerModInitializer {
             send(ctx.getSource(), "player_only");
             return 0;
         }
-        String defaultHome = store.defaultHomes.getOrDefault(player.getUUID().toString(), "default");
+        if (deferUntilLoaded(ctx, player.getUUID())) {
+            return 0;
+        }
+        String defaultHome = Objects.requireNonNullElse(playerData(player.getUUID()).defaultHome, "default");
         return teleportHome(player, defaultHome);
     }
 
@@ -1646,12 +1766,15 @@ public class YatpaFabricMod implements DedicatedServerModInitializer {
             send(ctx.getSource(), "player_only");
             return 0;
         }
+        if (deferUntilLoaded(ctx, player.getUUID())) {
+            return 0;
+        }
         return teleportHome(player, StringArgumentType.getString(ctx, "name"));
     }
 
     private int teleportHome(ServerPlayer player, String name) {
         String id = name.toLowerCase(Locale.ROOT);
-        Map<String, Position> homes = store.homes.computeIfAbsent(player.getUUID().toString(), k -> new HashMap<>());
+        Map<String, Position> homes = playerData(player.getUUID()).homes;
         Position home = homes.get(id);
         if (home == null) {
             send(player, "home_missing", Map.of("name", id));
@@ -1718,7 +1841,7 @@ public class YatpaFabricMod implements DedicatedServerModInitializer {
             }
             return;
         }
-        pendingTeleports.remove(player.getUUID());
+        removePendingTeleport(player.getUUID());
         TargetSupplier supplier = () -> new TeleportTarget(level.get(), x.get(), y.get(), z.get(), yaw, pitch);
         int delayTicks = Math.max(0, config.teleportDelaySeconds * 20);
         if (delayTicks == 0) {
@@ -1743,19 +1866,19 @@ public class YatpaFabricMod implements DedicatedServerModInitializer {
             return;
         }
 
-        pendingTeleports.put(
+        PendingTeleport pending = new PendingTeleport(
             player.getUUID(),
-            new PendingTeleport(
-                BlockPos.containing(player.getX(), player.getY(), player.getZ()),
-                delayTicks,
-                supplier,
-                onSuccess,
-                payer.getUUID(),
-                kind,
-                notifyPlayer == null ? null : notifyPlayer.getUUID(),
-                logDetail
-            )
+            BlockPos.containing(player.getX(), player.getY(), player.getZ()),
+            delayTicks,
+            supplier,
+            onSuccess,
+            payer.getUUID(),
+            kind,
+            notifyPlayer == null ? null : notifyPlayer.getUUID(),
+            logDetail
         );
+        pendingTeleports.put(player.getUUID(), pending);
+        scheduler.add(pending);
     }
 
     private void queueDelayedTeleport(
@@ -1848,7 +1971,7 @@ public class YatpaFabricMod implements DedicatedServerModInitializer {
     }
 
     private void cancelPending(ServerPlayer player, String messageKey) {
-        PendingTeleport pending = pendingTeleports.remove(player.getUUID());
+        PendingTeleport pending = removePendingTeleport(player.getUUID());
         if (pending != null) {
             send(player, messageKey);
             if (pending.notifyPlayerId != null && server != null) {
@@ -1863,8 +1986,8 @@ public class YatpaFabricMod implements DedicatedServerModInitializer {
     }
 
     private boolean hasMovedBlock(ServerPlayer player, BlockPos start) {
-        BlockPos now = BlockPos.containing(player.getX(), player.getY(), player.getZ());
-        return now.getX() != start.getX() || now.getY() != start.getY() || now.getZ() != start.getZ();
+        return Mth.floor(player.getX()) != start.getX() || Mth.floor(player.getY()) != start.getY()
+            || Mth.floor(player.getZ()) != start.getZ();
     }
 
     private boolean teleport(ServerPlayer player, TeleportTarget target) {
@@ -1904,76 +2027,18 @@ public class YatpaFabricMod implements DedicatedServerModInitializer {
 
     private TeleportTarget findNearestSafeYtp(TeleportTarget desired, int maxHorizontalRadius, int verticalRange) {
         ServerLevel level = desired.level;
-        int originX = (int) Math.floor(desired.x);
-        int originY = (int) Math.floor(desired.y);
-        int originZ = (int) Math.floor(desired.z);
         int minY = level.getMinBuildHeight() + 1;
         int maxY = maxSafeStandY(level);
-        int startY = clamp(originY, minY, maxY);
-        double bestDistanceSq = Double.MAX_VALUE;
-        TeleportTarget best = null;
-
-        for (int radius = 0; radius <= maxHorizontalRadius; radius++) {
-            for (int dx = -radius; dx <= radius; dx++) {
-                for (int dz = -radius; dz <= radius; dz++) {
-                    if (Math.abs(dx) != radius && Math.abs(dz) != radius) {
-                        continue;
-                    }
-                    int x = originX + dx;
-                    int z = originZ + dz;
-                    TeleportTarget candidate = findSafeInColumn(level, x, z, startY, verticalRange, desired.yaw, desired.pitch);
-                    if (candidate == null) {
-                        continue;
-                    }
-                    double distanceSq = distanceSquared(desired.x, desired.y, desired.z, candidate.x, candidate.y, candidate.z);
-                    if (distanceSq < bestDistanceSq) {
-                        bestDistanceSq = distanceSq;
-                        best = candidate;
-                    }
-                }
-            }
-            if (best != null && bestDistanceSq <= radius * radius) {
-                break;
-            }
+        SafeSpotSearch search = new SafeSpotSearch(new LevelBlockView(level), minY, maxY);
+        if (search.findNearest((int) Math.floor(desired.x), (int) Math.floor(desired.y), (int) Math.floor(desired.z), maxHorizontalRadius, verticalRange)) {
+            return new TeleportTarget(level, search.foundX() + 0.5, search.foundY(), search.foundZ() + 0.5, desired.yaw, desired.pitch);
         }
-
-        if (best == null) {
-            BlockPos spawn = level.getSharedSpawnPos();
-            best = findSafeInColumn(level, spawn.getX(), spawn.getZ(), spawn.getY(), verticalRange, desired.yaw, desired.pitch);
-            if (best == null) {
-                int fallbackY = clamp(spawn.getY() + 1, minY, maxY);
-                best = new TeleportTarget(level, spawn.getX() + 0.5, fallbackY, spawn.getZ() + 0.5, desired.yaw, desired.pitch);
-            }
-        }
-        return best;
-    }
-
-    private TeleportTarget findSafeInColumn(ServerLevel level, int x, int z, int targetY, int verticalRange, float yaw, float pitch) {
-        if (!level.getWorldBorder().isWithinBounds(x, z)) {
-            return null;
-        }
-        int minY = level.getMinBuildHeight() + 1;
-        int maxY = maxSafeStandY(level);
-        int startY = clamp(targetY, minY, maxY);
-
-        for (int dy = 0; dy <= verticalRange; dy++) {
-            int up = startY + dy;
-            if (up <= maxY && isSafeStandLocation(level, x, up, z)) {
-                return new TeleportTarget(level, x + 0.5, up, z + 0.5, yaw, pitch);
-            }
-            if (dy > 0) {
-                int down = startY - dy;
-                if (down >= minY && isSafeStandLocation(level, x, down, z)) {
-                    return new TeleportTarget(level, x + 0.5, down, z + 0.5, yaw, pitch);
-                }
-            }
-        }
-
-        int surfaceY = clamp(level.getHeight(Heightmap.Types.MOTION_BLOCKING_NO_LEAVES, x, z) + 1, minY, maxY);
-        if (isSafeStandLocation(level, x, surfaceY, z)) {
-            return new TeleportTarget(level, x + 0.5, surfaceY, z + 0.5, yaw, pitch);
+        BlockPos spawn = level.getSharedSpawnPos();
+        int spawnY = search.findInColumn(spawn.getX(), spawn.getZ(), spawn.getY(), verticalRange);
+        if (spawnY == SafeSpotSearch.NONE) {
+            spawnY = clamp(spawn.getY() + 1, minY, maxY);
         }
-        return null;
+        return new TeleportTarget(level, spawn.getX() + 0.5, spawnY, spawn.getZ() + 0.5, desired.yaw, desired.pitch);
     }
 
     private boolean isSafeStandLocation(ServerLevel level, int x, int y, int z) {
@@ -1984,26 +2049,44 @@ public class YatpaFabricMod implements DedicatedServerModInitializer {
         }
 
         BlockPos feet = new BlockPos(x, y, z);
-        BlockPos head = feet.above();
-        BlockPos below = feet.below();
-        return isClear(level, feet) && isClear(level, head) && isSolid(level, below);
+        return (blockKind(level, feet) & BlockView.CLEAR) != 0
+            && (blockKind(level, feet.above()) & BlockView.CLEAR) != 0
+            && (blockKind(level, feet.below()) & BlockView.FLOOR) != 0;
     }
 
-    private boolean isClear(ServerLevel level, BlockPos pos) {
+    // Fluids are neither; otherwise a block without a collision shape can be stood in and one with a shape stood on.
+    private static int blockKind(ServerLevel level, BlockPos pos) {
         BlockState state = level.getBlockState(pos);
-        return state.getCollisionShape(level, pos).isEmpty() && state.getFluidState().isEmpty();
+        if (!state.getFluidState().isEmpty()) {
+            return 0;
+        }
+        return state.getCollisionShape(level, pos).isEmpty() ? BlockView.CLEAR : BlockView.FLOOR;
     }
 
-    private boolean isSolid(ServerLevel level, BlockPos pos) {
-        BlockState state = level.getBlockState(pos);
-        return !state.getCollisionShape(level, pos).isEmpty() && state.getFluidState().isEmpty();
-    }
+    // Reads the live level on the server thread; the search reads each block of a column at most once.
+    private static final class LevelBlockView implements BlockView {
+        private final ServerLevel level;
+        private final BlockPos.MutableBlockPos pos = new BlockPos.MutableBlockPos();
+
+        private LevelBlockView(ServerLevel level) {
+            this.level = level;
+        }
 
-    private double distanceSquared(double x1, double y1, double z1, double x2, double y2, double z2) {
-        double dx = x1 - x2;
-        double dy = y1 - y2;
-        double dz = z1 - z2;
-        return dx * dx + dy * dy + dz * dz;
+        @Override
+        public int kind(int x, int y, int z) {
+            return blockKind(level, pos.set(x, y, z));
+        }
+
+        // WORLD_SURFACE counts every non-air block, so nothing above it can be a floor.
+        @Override
+        public int highestY(int x, int z) {
+            return level.getHeight(Heightmap.Types.WORLD_SURFACE, x, z) - 1;
+        }
+
+        @Override
+        public boolean insideBorder(int x, int z) {
+            return level.getWorldBorder().isWithinBounds(x, z);
+        }
     }
 
     private int maxSafeStandY(ServerLevel level) {
@@ -2145,13 +2228,6 @@ public class YatpaFabricMod implements DedicatedServerModInitializer {
         };
     }
 
-    private int cooldownRemaining(UUID sender) {
-        long last = cooldownBySender.getOrDefault(sender, 0L);
-        long elapsed = (System.currentTimeMillis() - last) / 1000L;
-        long remain = config.requestCooldownSeconds - elapsed;
-        return (int) Math.max(0, remain);
-    }
-
     private int rtpCooldownRemaining(UUID playerId) {
         long last = rtpCooldownByPlayer.getOrDefault(playerId, 0L);
         long elapsed = (System.currentTimeMillis() - last) / 1000L;
@@ -2401,6 +2477,7 @@ public class YatpaFabricMod implements DedicatedServerModInitializer {
 
             loadMessages(runtimeMessagesPath);
             messages.putIfAbsent("death_used", "You already used /tpaback for your last death. Die again to refresh it.");
+            messages.putIfAbsent("player_data_unavailable", "Player data could not be loaded. Please try again.");
             loadConfig(runtimeConfigPath);
             loadStore();
         } catch (IOException e) {
@@ -2419,6 +2496,7 @@ public class YatpaFabricMod implements DedicatedServerModInitializer {
 
     private void loadMessages(Path path) {
         messages.clear();
+        countdownMessages = new Component[0];
         try {
             Document doc = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(path.toFile());
             NodeList nodes = doc.getElementsByTagName("message");
@@ -2445,6 +2523,7 @@ public class YatpaFabricMod implements DedicatedServerModInitializer {
         }
         this.rawConfig = properties;
         this.config = Config.from(properties);
+        requests.setLimits(config.requestTimeoutSeconds, config.requestCooldownSeconds, 1);
         if (changed) {
             saveConfigProperties();
         }
@@ -2458,27 +2537,209 @@ public class YatpaFabricMod implements DedicatedServerModInitializer {
     }
 
     private void loadStore() throws IOException {
+        if (storeFile == null) {
+            this.storeFile = new StoreFile(storePath);
+        } else {
+            // A reload reads the file back, so anything still queued has to reach it first.
+            flushStore();
+        }
+        this.store = new Store();
+        loadingPlayers.clear();
         if (!Files.exists(storePath)) {
-            this.store = new Store();
-            saveStore();
+            storeFile.reset();
             return;
         }
-        try (Reader reader = Files.newBufferedReader(storePath, StandardCharsets.UTF_8)) {
-            Store loaded = GSON.fromJson(reader, STORE_TYPE);
-            this.store = loaded == null ? new Store() : loaded;
+        Map<String, Position> offline = storeFile.open();
+        if (offline != null) {
+            store.offlineLocations.putAll(offline);
+        } else {
+            migrateLegacyStore();
+        }
+    }
+
+    // store.json files from before the per-player layout hold one map per field, keyed by UUID string. They are streamed
+    // once, folded into per-player records and written straight back in the new layout.
+    private void migrateLegacyStore() throws IOException {
+        try (JsonReader reader = new JsonReader(Files.newBufferedReader(storePath, StandardCharsets.UTF_8))) {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String section = reader.nextName();
+                switch (section) {
+                    case "offlineLocations" -> store.offlineLocations.putAll(GSON.fromJson(reader, POSITIONS_TYPE));
+                    case "usedDeathLocations" -> {
+                        reader.beginArray();
+                        while (reader.hasNext()) {
+                            legacyPlayer(reader.nextString()).deathUsed = true;
+                        }
+                        reader.endArray();
+                    }
+                    case "playerPrefs", "homes", "defaultHomes", "homeLimits", "deathLocations" -> {
+                        reader.beginObject();
+                        while (reader.hasNext()) {
+                            PlayerData data = legacyPlayer(reader.nextName());
+                            switch (section) {
+                                case "playerPrefs" -> data.prefs = GSON.fromJson(reader, PlayerPrefs.class);
+                                case "homes" -> data.homes = GSON.fromJson(reader, POSITIONS_TYPE);
+                                case "defaultHomes" -> data.defaultHome = reader.nextString();
+                                case "homeLimits" -> data.homeLimit = reader.nextInt();
+                                default -> data.deathLocation = GSON.fromJson(reader, Position.class);
+                            }
+                        }
+                        reader.endObject();
+                    }
+                    default -> reader.skipValue();
+                }
+            }
+            reader.endObject();
+        }
+        storeFile.reset();
+        dirtyPlayers.addAll(store.players.keySet());
+        dirtyOfflineNames.addAll(store.offlineLocations.keySet());
+        submitStore();
+    }
+
+    private PlayerData legacyPlayer(String id) {
+        return store.players.computeIfAbsent(UUID.fromString(id), k -> new PlayerData());
+    }
+
+    // Only reads memory. Records are loaded at join by loadPlayerData, and commands that may run before that has
+    // finished wait for it through deferUntilLoaded.
+    private PlayerData playerData(UUID id) {
+        PlayerData data = store.players.get(id);
+        if (data == null) {
+            throw new IllegalStateException("YATPA data for " + id + " is not loaded");
         }
+        return data;
+    }
+
+    // Reads a player's record on the IO pool and adds it to the store on the server thread, so ticks and commands
+    // never wait on store.json. Calls for a player whose read is running share it; the future completes on the server
+    // thread. Records nobody asks for stay on disk, and those of offline players are dropped again by
+    // evictOfflineRecords or submitStore.
+    private CompletableFuture<Void> loadPlayerData(MinecraftServer minecraftServer, UUID id) {
+        if (store.players.containsKey(id)) {
+            return CompletableFuture.completedFuture(null);
+        }
+        CompletableFuture<Void> running = loadingPlayers.get(id);
+        if (running != null) {
+            return running;
+        }
+        CompletableFuture<Void> loading = new CompletableFuture<>();
+        loadingPlayers.put(id, loading);
+        Store target = store;
+        StoreFile file = storeFile;
+        CompletableFuture.supplyAsync(() -> readPlayerData(file, id), Util.ioPool()).handleAsync((data, error) -> {
+            loadingPlayers.remove(id, loading);
+            if (error != null) {
+                LOGGER.warn("Failed to read YATPA data for {}", id, error);
+                loading.completeExceptionally(error);
+                return null;
+            }
+            // A reload replaced the store while this read ran; the new one reads the record again when asked.
+            if (target == store) {
+                target.players.putIfAbsent(id, data);
+            }
+            loading.complete(null);
+            return null;
+        }, minecraftServer);
+        return loading;
     }
 
-    private void saveStore() {
+    private static PlayerData readPlayerData(StoreFile file, UUID id) {
+        String json;
         try {
-            Files.createDirectories(storePath.getParent());
-            try (Writer writer = Files.newBufferedWriter(storePath, StandardCharsets.UTF_8)) {
-                GSON.toJson(store, STORE_TYPE, writer);
+            json = file.read(id);
+        } catch (IOException e) {
+            // Handing out an empty record here would overwrite the player's data on the next save.
+            throw new UncheckedIOException("Failed to read YATPA data for " + id, e);
+        }
+        return json == null ? new PlayerData() : GSON.fromJson(json, PlayerData.class);
+    }
+
+    // Applies a change now if the record is in memory, otherwise once loadPlayerData has brought it in.
+    private void editPlayerData(MinecraftServer minecraftServer, UUID id, Consumer<PlayerData> change) {
+        PlayerData data = store.players.get(id);
+        if (data != null) {
+            change.accept(data);
+            saveStore(id);
+            return;
+        }
+        loadPlayerData(minecraftServer, id).thenRun(() -> editPlayerData(minecraftServer, id, change));
+    }
+
+    // Returns true when the command has to wait for a player's record; it then runs again once the record has loaded.
+    private boolean deferUntilLoaded(CommandContext<CommandSourceStack> ctx, UUID id) {
+        if (store.players.containsKey(id)) {
+            return false;
+        }
+        CommandSourceStack source = ctx.getSource();
+        String input = ctx.getInput();
+        loadPlayerData(source.getServer(), id).whenComplete((ignored, error) -> {
+            ServerPlayer player = source.getPlayer();
+            if (player != null && player.hasDisconnected()) {
+                return;
             }
-        } catch (IOException ignored) {
+            if (error != null) {
+                send(source, "player_data_unavailable");
+                return;
+            }
+            source.getServer().getCommands().performPrefixedCommand(source, input);
+        });
+        return true;
+    }
+
+    // Marks a player's record for the background writer; the tick hands it over once STORE_SAVE_DELAY_MILLIS has passed.
+    private void saveStore(UUID player) {
+        dirtyPlayers.add(player);
+        markStoreDirty();
+    }
+
+    private void saveOfflineLocation(String name) {
+        dirtyOfflineNames.add(name);
+        markStoreDirty();
+    }
+
+    private void markStoreDirty() {
+        if (storeDirtySinceMillis == 0L) {
+            storeDirtySinceMillis = System.currentTimeMillis();
         }
     }
 
+    // Runs on the server thread: only dirty records are serialized, and the writer owns the results from then on.
+    // Records of players who are no longer online are dropped once serialized.
+    private void submitStore() {
+        storeDirtySinceMillis = 0L;
+        if (dirtyPlayers.isEmpty() && dirtyOfflineNames.isEmpty()) {
+            return;
+        }
+        Map<UUID, String> records = new HashMap<>();
+        for (UUID id : dirtyPlayers) {
+            records.put(id, GSON.toJson(store.players.get(id)));
+            if (server == null || server.getPlayerList().getPlayer(id) == null) {
+                store.players.remove(id);
+            }
+        }
+        Map<String, Position> offline = new HashMap<>();
+        for (String name : dirtyOfflineNames) {
+            offline.put(name, store.offlineLocations.get(name));
+        }
+        storeFile.submit(records, offline);
+        dirtyPlayers.clear();
+        dirtyOfflineNames.clear();
+    }
+
+    // A clean record is only a copy of what is on disk; dirty ones are left for submitStore, which drops them once
+    // serialized.
+    private void evictOfflineRecords(MinecraftServer minecraftServer) {
+        store.players.keySet().removeIf(
+            id -> !dirtyPlayers.contains(id) && minecraftServer.getPlayerList().getPlayer(id) == null);
+    }
+
+    private void flushStore() {
+        submitStore();
+        storeFile.awaitIdle();
+    }
+
     private ServerLevel resolveStoredLevel(MinecraftServer minecraftServer, String storedDimension, ServerLevel fallback) {
         if (storedDimension == null || storedDimension.isBlank()) {
             return fallback;
@@ -2564,10 +2825,6 @@ public class YatpaFabricMod implements DedicatedServerModInitializer {
         return defaults;
     }
 
-    private enum RequestType { TPA, TPAHERE }
-
-    private enum TeleportKind { TPA, TPAHERE, HOME, RTP, SPAWN, BACK }
-
     private enum LandingMode { EXACT, RANDOM_OFFSET }
 
     private enum CostMode { NONE, XP_LEVELS, ITEM, CURRENCY }
@@ -2578,8 +2835,6 @@ public class YatpaFabricMod implements DedicatedServerModInitializer {
         private static ChargeResult fail(String required) { return new ChargeResult(false, required, ""); }
     }
 
-    private record ExpiredRequest(UUID receiver, Request request) {}
-
     private record TeleportLogEntry(
         long timestampMillis,
         String action,
@@ -2596,19 +2851,8 @@ public class YatpaFabricMod implements DedicatedServerModInitializer {
         double toZ
     ) {}
 
-    private static class Request {
-        private final UUID sender;
-        private final RequestType type;
-        private final long createdAtMillis;
-
-        private Request(UUID sender, RequestType type, long createdAtMillis) {
-            this.sender = sender;
-            this.type = type;
-            this.createdAtMillis = createdAtMillis;
-        }
-    }
-
     private static class PendingTeleport {
+        private final UUID playerId;
         private final BlockPos startPos;
         private int ticksLeft;
         private final TargetSupplier targetSupplier;
@@ -2617,8 +2861,10 @@ public class YatpaFabricMod implements DedicatedServerModInitializer {
         private final TeleportKind kind;
         private final UUID notifyPlayerId;
         private final String logDetail;
+        private boolean cancelled;
 
         private PendingTeleport(
+            UUID playerId,
             BlockPos startPos,
             int ticksLeft,
             TargetSupplier targetSupplier,
@@ -2628,6 +2874,7 @@ public class YatpaFabricMod implements DedicatedServerModInitializer {
             UUID notifyPlayerId,
             String logDetail
         ) {
+            this.playerId = playerId;
             this.startPos = startPos;
             this.ticksLeft = ticksLeft;
             this.targetSupplier = targetSupplier;
@@ -3093,20 +3340,304 @@ public class YatpaFabricMod implements DedicatedServerModInitializer {
         }
     }
 
+    // Owns store.json. The first line holds the format version and the offline locations; after it every player record
+    // sits on its own line as "<uuid>":{...}, so opening the file only indexes where each record starts and a record is
+    // parsed when its player is first needed. Writes happen on a background thread: the latest serialized form of each
+    // changed record is kept until it is on disk, submissions arriving during a write are coalesced into the next one,
+    // and untouched records are copied over from the previous file. Each write goes to a temp file that is synced and
+    // renamed over store.json, so a crash never leaves a torn file. A failed write is logged and retried.
+    private static final class StoreFile {
+        private static final String HEADER_PREFIX = "{\"version\":2,";
+        // "<uuid>": in front of every record.
+        private static final int KEY_LENGTH = 39;
+        private static final long RETRY_MILLIS = 5000L;
+        private static final byte[] RECORD_SEPARATOR = ",\n".getBytes(StandardCharsets.US_ASCII);
+        private static final byte[] LINE_END = "\n".getBytes(StandardCharsets.US_ASCII);
+        private static final byte[] FOOTER = "}}\n".getBytes(StandardCharsets.US_ASCII);
+
+        private record Span(long offset, int length) {}
+
+        private final Path path;
+        private final Path temp;
+        private final Thread thread;
+        // Guarded by this. spans is replaced, never modified, so the writer thread can use it outside the lock.
+        private Map<UUID, Span> spans = new HashMap<>();
+        private final Map<UUID, String> pending = new HashMap<>();
+        private final Map<String, Position> offline = new HashMap<>();
+        private long submitted;
+        private long written;
+        private boolean failing;
+        private boolean closed;
+
+        StoreFile(Path path) {
+            this.path = path;
+            this.temp = path.resolveSibling(path.getFileName() + ".tmp");
+            this.thread = new Thread(this::run, "YATPA store writer");
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        synchronized void reset() {
+            spans = new HashMap<>();
+            pending.clear();
+            offline.clear();
+        }
+
+        // Reads the first line and indexes every record. Returns the offline locations, or null when the file predates
+        // the per-player layout. Call only while the writer is idle.
+        synchronized Map<String, Position> open() throws IOException {
+            reset();
+            ByteArrayOutputStream header = new ByteArrayOutputStream();
+            Map<UUID, Span> index = new HashMap<>();
+            try (InputStream in = Files.newInputStream(path)) {
+                byte[] buffer = new byte[1 << 16];
+                int limit = in.readNBytes(buffer, 0, HEADER_PREFIX.length());
+                if (!HEADER_PREFIX.equals(new String(buffer, 0, limit, StandardCharsets.US_ASCII))) {
+                    return null;
+                }
+                header.write(buffer, 0, limit);
+                byte[] key = new byte[KEY_LENGTH];
+                boolean inHeader = true;
+                long offset = limit;
+                long lineStart = 0;
+                int length = limit;
+                int last = 0;
+                while ((limit = in.read(buffer)) > 0) {
+                    for (int i = 0; i < limit; i++) {
+                        byte b = buffer[i];
+                        if (b != '\n') {
+                            if (!inHeader && length < KEY_LENGTH) {
+                                key[length] = b;
+                            }
+                            length++;
+                            last = b;
+                            continue;
+                        }
+                        if (inHeader) {
+                            header.write(buffer, 0, i);
+                            inHeader = false;
+                        } else {
+                            indexRecord(index, key, lineStart, length, last);
+                        }
+                        lineStart = offset + i + 1;
+                        length = 0;
+                    }
+                    if (inHeader) {
+                        header.write(buffer, 0, limit);
+                    }
+                    offset += limit;
+                }
+                if (!inHeader) {
+                    indexRecord(index, key, lineStart, length, last);
+                }
+            }
+            try (JsonReader reader = new JsonReader(new StringReader(header.toString(StandardCharsets.UTF_8)))) {
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    String name = reader.nextName();
+                    if (name.equals("players")) {
+                        break;
+                    }
+                    if (!name.equals("offline")) {
+                        reader.skipValue();
+                        continue;
+                    }
+                    reader.beginObject();
+                    while (reader.hasNext()) {
+                        offline.put(reader.nextName(), GSON.fromJson(reader, Position.class));
+                    }
+                    reader.endObject();
+                }
+            }
+            spans = index;
+            return new HashMap<>(offline);
+        }
+
+        // The line closing the players object is shorter than a key and is skipped.
+        private static void indexRecord(Map<UUID, Span> index, byte[] key, long lineStart, int length, int last) {
+            if (length <= KEY_LENGTH || key[0] != '"') {
+                return;
+            }
+            UUID id = UUID.fromString(new String(key, 1, 36, StandardCharsets.US_ASCII));
+            index.put(id, new Span(lineStart + KEY_LENGTH, length - KEY_LENGTH - (last == ',' ? 1 : 0)));
+        }
+
+        // The record as last submitted or, failing that, as stored in the file; null for a player with no record.
+        synchronized String read(UUID id) throws IOException {
+            String record = pending.get(id);
+            if (record != null) {
+                return record;
+            }
+            Span span = spans.get(id);
+            if (span == null) {
+                return null;
+            }
+            byte[] bytes = new byte[span.length()];
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                readFully(channel, span.offset(), bytes);
+            }
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        synchronized void submit(Map<UUID, String> records, Map<String, Position> locations) {
+            pending.putAll(records);
+            offline.putAll(locations);
+            submitted++;
+            notifyAll();
+        }
+
+        // Returns once everything submitted so far is on disk, or the writer has given up on the current attempt.
+        synchronized void awaitIdle() {
+            long target = submitted;
+            boolean interrupted = false;
+            while (written < target && !failing && !closed) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        void close() {
+            synchronized (this) {
+                closed = true;
+                notifyAll();
+            }
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private void run() {
+            while (true) {
+                Map<UUID, Span> previous;
+                Map<UUID, String> records;
+                Map<String, Position> locations;
+                long version;
+                synchronized (this) {
+                    while (written == submitted && !closed) {
+                        try {
+                            wait();
+                        } catch (InterruptedException e) {
+                            return;
+                        }
+                    }
+                    if (written == submitted) {
+                        return;
+                    }
+                    previous = spans;
+                    records = new HashMap<>(pending);
+                    locations = new HashMap<>(offline);
+                    version = submitted;
+                }
+                try {
+                    Map<UUID, Span> next = write(previous, records, locations);
+                    synchronized (this) {
+                        try {
+                            Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                        } catch (AtomicMoveNotSupportedException e) {
+                            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+                        }
+                        spans = next;
+                        // Records submitted again while this write ran are still newer than the file.
+                        pending.entrySet().removeIf(entry -> entry.getValue() == records.get(entry.getKey()));
+                        written = version;
+                        failing = false;
+                        notifyAll();
+                    }
+                } catch (IOException | RuntimeException e) {
+                    LOGGER.warn("Failed to save {}", path, e);
+                    synchronized (this) {
+                        failing = true;
+                        notifyAll();
+                        if (closed) {
+                            return;
+                        }
+                        try {
+                            wait(RETRY_MILLIS);
+                        } catch (InterruptedException interrupted) {
+                            return;
+                        }
+                    }
+                }
+            }
+        }
+
+        // Writes the new file to the temp path and returns where each record landed in it.
+        private Map<UUID, Span> write(Map<UUID, Span> previous, Map<UUID, String> records,
+                Map<String, Position> locations) throws IOException {
+            Files.createDirectories(path.getParent());
+            Set<UUID> ids = new LinkedHashSet<>(previous.keySet());
+            ids.addAll(records.keySet());
+            Map<UUID, Span> next = HashMap.newHashMap(ids.size());
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+                    FileChannel source = previous.isEmpty() ? null : FileChannel.open(path, StandardOpenOption.READ)) {
+                OutputStream out = new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16);
+                byte[] header = (HEADER_PREFIX + "\"offline\":" + GSON.toJson(locations) + ",\"players\":{\n")
+                    .getBytes(StandardCharsets.UTF_8);
+                out.write(header);
+                long position = header.length;
+                int remaining = ids.size();
+                for (UUID id : ids) {
+                    String record = records.get(id);
+                    byte[] bytes;
+                    if (record != null) {
+                        bytes = record.getBytes(StandardCharsets.UTF_8);
+                    } else {
+                        Span span = previous.get(id);
+                        bytes = new byte[span.length()];
+                        readFully(source, span.offset(), bytes);
+                    }
+                    out.write(("\"" + id + "\":").getBytes(StandardCharsets.US_ASCII));
+                    out.write(bytes);
+                    next.put(id, new Span(position + KEY_LENGTH, bytes.length));
+                    byte[] end = --remaining > 0 ? RECORD_SEPARATOR : LINE_END;
+                    out.write(end);
+                    position += KEY_LENGTH + bytes.length + end.length;
+                }
+                out.write(FOOTER);
+                out.flush();
+                channel.force(true);
+            }
+            return next;
+        }
+
+        private static void readFully(FileChannel channel, long position, byte[] into) throws IOException {
+            ByteBuffer buffer = ByteBuffer.wrap(into);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, position + buffer.position()) < 0) {
+                    throw new EOFException("store.json ended inside a record");
+                }
+            }
+        }
+    }
+
+    // What is left in memory of store.json: the offline locations, and the records of players who are online or were
+    // asked about since they were last saved.
     private static class Store {
-        Map<String, PlayerPrefs> playerPrefs = new HashMap<>();
-        Map<String, Map<String, Position>> homes = new HashMap<>();
-        Map<String, String> defaultHomes = new HashMap<>();
-        Map<String, Integer> homeLimits = new HashMap<>();
-        Map<String, Position> offlineLocations = new HashMap<>();
-        Map<String, Position> deathLocations = new HashMap<>();
-        Set<String> usedDeathLocations = new HashSet<>();
-        Set<String> joinedPlayers = new HashSet<>();
+        final Map<UUID, PlayerData> players = new HashMap<>();
+        final Map<String, Position> offlineLocations = new HashMap<>();
+    }
+
+    private static class PlayerData {
+        PlayerPrefs prefs = new PlayerPrefs();
+        Map<String, Position> homes = new HashMap<>();
+        String defaultHome;
+        Integer homeLimit;
+        Position deathLocation;
+        boolean deathUsed;
     }
 
     private static class PlayerPrefs {
         boolean acceptingRequests = true;
-        Set<String> blocked = new HashSet<>();
+        Set<UUID> blocked = new HashSet<>();
     }
 
     private static class Position {
@@ -8,9 +8,21 @@ java {
     }
 }
 
+// Classes from :core are copied into the plugin jar so it stays a single drop-in file.
+val bundled: Configuration by configurations.creating
+
+configurations.implementation {
+    extendsFrom(bundled)
+}
+
 dependencies {
+    bundled(project(":core"))
     compileOnly("io.papermc.paper:paper-api:1.21.4-R0.1-SNAPSHOT")
     compileOnly("com.github.MilkBowl:VaultAPI:1.7.1")
+    testImplementation("io.papermc.paper:paper-api:1.21.4-R0.1-SNAPSHOT")
+    testImplementation(platform("org.junit:junit-bom:5.11.4"))
+    testImplementation("org.junit.jupiter:junit-jupiter")
+    testRuntimeOnly("org.junit.platform:junit-platform-launcher")
 }
 
 tasks.withType<JavaCompile>().configureEach {
@@ -18,6 +30,14 @@ tasks.withType<JavaCompile>().configureEach {
     options.release.set(21)
 }
 
+tasks.test {
+    useJUnitPlatform()
+}
+
 tasks.jar {
+    dependsOn(bundled)
+    from(provider { bundled.map { zipTree(it) } }) {
+        exclude("META-INF/MANIFEST.MF")
+    }
     archiveFileName.set("YATPA-v${project.version}-Paper.jar")
 }
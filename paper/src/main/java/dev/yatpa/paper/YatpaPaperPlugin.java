@@ -1,5 +1,7 @@
 package dev.yatpa.paper;
 
+import dev.yatpa.core.data.TeleportRequest;
+import dev.yatpa.core.service.RequestService;
 import dev.yatpa.paper.command.YatpaCommandHandler;
 import dev.yatpa.paper.config.XmlMessages;
 import dev.yatpa.paper.config.YatpaConfig;
@@ -7,11 +9,20 @@ import dev.yatpa.paper.gui.SettingsGui;
 import dev.yatpa.paper.listener.PlayerEventListener;
 import dev.yatpa.paper.service.CostService;
 import dev.yatpa.paper.service.DataStore;
-import dev.yatpa.paper.service.RequestService;
+import dev.yatpa.paper.service.GroupTeleportService;
+import dev.yatpa.paper.service.RtpPool;
+import dev.yatpa.paper.service.RtpSearch;
 import dev.yatpa.paper.service.TeleportLogService;
 import dev.yatpa.paper.service.TeleportService;
+import dev.yatpa.paper.storage.ShardedYamlStorageBackend;
+import dev.yatpa.paper.storage.SqlStorageBackend;
+import dev.yatpa.paper.storage.StorageBackend;
+import dev.yatpa.paper.storage.YamlStorageBackend;
 import java.io.File;
+import java.util.List;
 import java.util.Map;
+import java.util.UUID;
+import java.util.logging.Level;
 import net.milkbowl.vault.economy.Economy;
 import org.bukkit.Bukkit;
 import org.bukkit.configuration.file.FileConfiguration;
@@ -28,6 +39,7 @@ public class YatpaPaperPlugin extends JavaPlugin {
     private RequestService requests;
     private TeleportService teleports;
     private TeleportLogService teleportLog;
+    private RtpPool rtpPool;
     private Economy economy;
 
     @Override
@@ -35,9 +47,45 @@ public class YatpaPaperPlugin extends JavaPlugin {
         bootstrap();
     }
 
+    @Override
+    public void onDisable() {
+        getServer().getScheduler().cancelTasks(this);
+        if (teleports != null) {
+            teleports.cancelAll();
+            teleports = null;
+        }
+        if (dataStore != null) {
+            dataStore.close();
+            dataStore = null;
+        }
+        if (teleportLog != null) {
+            teleportLog.close();
+            teleportLog = null;
+        }
+        if (rtpPool != null) {
+            rtpPool.close();
+            rtpPool = null;
+        }
+    }
+
     public void bootstrap() {
         getServer().getScheduler().cancelTasks(this);
         HandlerList.unregisterAll(this);
+        if (this.teleports != null) {
+            this.teleports.cancelAll();
+        }
+        if (this.dataStore != null) {
+            this.dataStore.close();
+        }
+        // Closing drains queued entries to disk; the new service reloads them, so /tpalog keeps its history.
+        if (this.teleportLog != null) {
+            this.teleportLog.close();
+            this.teleportLog = null;
+        }
+        if (this.rtpPool != null) {
+            this.rtpPool.close();
+            this.rtpPool = null;
+        }
 
         if (!new File(getDataFolder(), "config.yml").exists()) {
             saveDefaultConfig();
@@ -51,20 +99,40 @@ public class YatpaPaperPlugin extends JavaPlugin {
         this.messages.load(new File(getDataFolder(), "messages.xml"));
         this.configModel = YatpaConfig.from(getConfig());
         this.economy = setupEconomy();
-        this.dataStore = new DataStore(getDataFolder());
-        this.requests = new RequestService(configModel.requestTimeoutSeconds(), configModel.requestCooldownSeconds());
-        if (this.teleportLog == null) {
-            this.teleportLog = new TeleportLogService(200);
+        this.dataStore = new DataStore(openStorage(configModel.storageType()), getLogger(),
+                configModel.storageLazyLoading(), configModel.storageEvictAfterMinutes() * 60_000L,
+                task -> getServer().getScheduler().runTaskAsynchronously(this, task),
+                task -> getServer().getScheduler().runTask(this, task));
+        if (dataStore.lazy() && "YAML".equals(dataStore.backendName())) {
+            getLogger().info("settings.storage.lazy_loading has no memory benefit with YAML storage; use SQLITE.");
         }
+        if (dataStore.lazy()) {
+            for (Player online : getServer().getOnlinePlayers()) {
+                dataStore.loaded(online.getUniqueId());
+            }
+        }
+        this.requests = new RequestService(configModel.requestTimeoutSeconds(), configModel.requestCooldownSeconds(),
+                configModel.requestInboxSize());
+        this.teleportLog = new TeleportLogService(configModel.tpalogIndexedEntries(), new File(getDataFolder(), "logs"),
+                configModel.tpalogSegmentKb() * 1024L, configModel.tpalogRetentionDays() * 86_400_000L,
+                configModel.tpalogMaxTotalMb() * 1024L * 1024L, getLogger());
         this.teleports = new TeleportService(this, configModel, messages, new CostService(configModel, economy), teleportLog);
 
         SettingsGui settingsGui = new SettingsGui(this, messages);
+        RtpSearch rtpSearch = new RtpSearch(this, configModel.rtpSearchAttempts(), configModel.rtpSearchTimeoutSeconds());
+        // Pooled spots are rolled around world spawn, so they only serve spawn-centered /rtp.
+        if (configModel.rtpPoolEnabled() && configModel.rtpCenterOnSpawn()) {
+            this.rtpPool = new RtpPool(this, configModel, rtpSearch, new File(getDataFolder(), "rtp-pool.yml"),
+                    configModel.rtpPoolSize(), configModel.rtpPoolLowWatermark());
+        }
+        GroupTeleportService groupTeleports = new GroupTeleportService(this, teleports, teleportLog,
+                configModel.groupTeleportMaxPerTick(), configModel.groupTeleportTickBudgetMs());
         YatpaCommandHandler handler = new YatpaCommandHandler(this, messages, configModel, dataStore, requests,
-                teleports, settingsGui, teleportLog);
+                teleports, settingsGui, teleportLog, rtpSearch, rtpPool, groupTeleports);
         for (String command : new String[] { "tp", "tpa", "yatpa", "tpahelp", "tphelp", "tpahere", "tphere", "tpaccept", "tpdeny",
                 "tpatoggle", "tpablock", "tpaunblock", "tphome", "tpahome", "rtp", "spawn", "ytp", "tpoffline", "tpaback",
                 "tpalog",
-                "setspawn" }) {
+                "setspawn", "tpparty" }) {
             PluginCommand pluginCommand = getCommand(command);
             if (pluginCommand != null) {
                 pluginCommand.setExecutor(handler);
@@ -75,30 +143,46 @@ public class YatpaPaperPlugin extends JavaPlugin {
             }
         }
 
-        getServer().getPluginManager().registerEvents(new PlayerEventListener(teleports, dataStore), this);
+        getServer().getPluginManager().registerEvents(new PlayerEventListener(teleports, dataStore, requests, messages), this);
         getServer().getPluginManager().registerEvents(settingsGui, this);
         getServer().getScheduler().runTaskTimer(this, () -> {
-            for (var expired : requests.purgeExpired()) {
-                String receiverName = Bukkit.getOfflinePlayer(expired.receiver()).getName();
-                if (receiverName == null) {
-                    receiverName = expired.receiver().toString();
-                }
-                String senderName = Bukkit.getOfflinePlayer(expired.sender()).getName();
-                if (senderName == null) {
-                    senderName = expired.sender().toString();
-                }
+            List<TeleportRequest> expiredBatch = requests.purgeExpired();
+            if (expiredBatch.isEmpty()) {
+                return;
+            }
+            String prefix = messages.get("prefix");
+            for (TeleportRequest expired : expiredBatch) {
                 Player sender = Bukkit.getPlayer(expired.sender());
+                Player receiver = Bukkit.getPlayer(expired.receiver());
                 if (sender != null) {
-                    sender.sendMessage(messages.get("prefix")
-                            + messages.format("request_sender_expired", Map.of("target", receiverName)));
+                    sender.sendMessage(prefix + messages.format("request_sender_expired",
+                            Map.of("target", playerName(receiver, expired.receiver()))));
                 }
-                Player receiver = Bukkit.getPlayer(expired.receiver());
                 if (receiver != null) {
-                    receiver.sendMessage(messages.get("prefix")
-                            + messages.format("request_receiver_expired", Map.of("player", senderName)));
+                    receiver.sendMessage(prefix + messages.format("request_receiver_expired",
+                            Map.of("player", playerName(sender, expired.sender()))));
                 }
             }
         }, 20L, 20L);
+        long flushTicks = Math.max(1, configModel.storageFlushIntervalSeconds()) * 20L;
+        getServer().getScheduler().runTaskTimerAsynchronously(this, dataStore::flush, flushTicks, flushTicks);
+        if (rtpPool != null) {
+            long fillTicks = Math.max(1, configModel.rtpPoolFillIntervalTicks());
+            getServer().getScheduler().runTaskTimer(this, rtpPool::fill, 100L, fillTicks);
+        }
+        if (dataStore.lazy()) {
+            getServer().getScheduler().runTaskTimer(this,
+                    () -> dataStore.evictIdle(uuid -> getServer().getPlayer(uuid) != null), 1200L, 1200L);
+        }
+    }
+
+    // Online players are resolved without touching the offline-player cache.
+    private static String playerName(Player online, UUID uuid) {
+        if (online != null) {
+            return online.getName();
+        }
+        String name = Bukkit.getOfflinePlayer(uuid).getName();
+        return name == null ? uuid.toString() : name;
     }
 
     public void reloadAll() {
@@ -116,9 +200,21 @@ public class YatpaPaperPlugin extends JavaPlugin {
         changed |= ensureDefault(cfg, "settings.features.homes", true);
         changed |= ensureDefault(cfg, "settings.features.rtp", true);
         changed |= ensureDefault(cfg, "settings.features.tpaback", true);
+        changed |= ensureDefault(cfg, "settings.request_inbox_size", 10);
+        changed |= ensureDefault(cfg, "settings.bulk_accept_per_tick", 5);
+        changed |= ensureDefault(cfg, "settings.group_teleport.max_per_tick", 10);
+        changed |= ensureDefault(cfg, "settings.group_teleport.tick_budget_ms", 2);
+        changed |= ensureDefault(cfg, "settings.group_teleport.party_radius", 16);
         changed |= ensureDefault(cfg, "settings.rtp.rtp_to_overworld", false);
+        changed |= ensureDefault(cfg, "settings.rtp.center_on_spawn", false);
         changed |= ensureDefault(cfg, "settings.rtp.blacklisted_worlds", java.util.List.of());
         changed |= ensureDefault(cfg, "settings.rtp.overworld_name", "world");
+        changed |= ensureDefault(cfg, "settings.rtp.search_attempts", 32);
+        changed |= ensureDefault(cfg, "settings.rtp.search_timeout_seconds", 10);
+        changed |= ensureDefault(cfg, "settings.rtp.pool.enabled", true);
+        changed |= ensureDefault(cfg, "settings.rtp.pool.size", 32);
+        changed |= ensureDefault(cfg, "settings.rtp.pool.low_watermark", 8);
+        changed |= ensureDefault(cfg, "settings.rtp.pool.fill_interval_ticks", 20);
         changed |= ensureDefault(cfg, "settings.dimension_restrictions.disable_rtp.overworld", false);
         changed |= ensureDefault(cfg, "settings.dimension_restrictions.disable_rtp.nether", false);
         changed |= ensureDefault(cfg, "settings.dimension_restrictions.disable_rtp.end", false);
@@ -143,6 +239,15 @@ public class YatpaPaperPlugin extends JavaPlugin {
         changed |= ensureDefault(cfg, "settings.costs.xp_levels.back", 0);
         changed |= ensureDefault(cfg, "settings.costs.item.back", 0);
         changed |= ensureDefault(cfg, "settings.costs.currency.back", 0.0);
+        changed |= ensureDefault(cfg, "settings.storage.backend", "YAML");
+        changed |= ensureDefault(cfg, "settings.storage.flush_interval_seconds", 5);
+        changed |= ensureDefault(cfg, "settings.storage.lazy_loading", false);
+        changed |= ensureDefault(cfg, "settings.storage.evict_after_minutes", 10);
+        changed |= ensureDefault(cfg, "settings.storage.binary_snapshot", false);
+        changed |= ensureDefault(cfg, "settings.tpalog.indexed_entries", 50000);
+        changed |= ensureDefault(cfg, "settings.tpalog.segment_kb", 1024);
+        changed |= ensureDefault(cfg, "settings.tpalog.retention_days", 30);
+        changed |= ensureDefault(cfg, "settings.tpalog.max_total_mb", 64);
 
         // Migrate accidental string booleans (e.g. rtp_to_overworld: "true") into real booleans.
         changed |= coerceStringBoolean(cfg, "settings.rtp.rtp_to_overworld");
@@ -198,6 +303,24 @@ public class YatpaPaperPlugin extends JavaPlugin {
         return true;
     }
 
+    private StorageBackend openStorage(YatpaConfig.StorageType type) {
+        if (type == YatpaConfig.StorageType.SHARDED) {
+            return new ShardedYamlStorageBackend(dataDirectory(), getLogger());
+        }
+        if (type == YatpaConfig.StorageType.SQLITE) {
+            try {
+                return new SqlStorageBackend(dataDirectory());
+            } catch (IllegalStateException e) {
+                getLogger().log(Level.SEVERE, "Could not open SQLite storage, falling back to YAML.", e);
+            }
+        }
+        return new YamlStorageBackend(dataDirectory(), configModel.storageBinarySnapshot());
+    }
+
+    public File dataDirectory() {
+        return new File(getDataFolder(), "data");
+    }
+
     public XmlMessages messages() {
         return messages;
     }
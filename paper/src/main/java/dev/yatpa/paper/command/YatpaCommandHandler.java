@@ -1,29 +1,44 @@
 package dev.yatpa.paper.command;
 
+import dev.yatpa.core.data.RequestType;
+import dev.yatpa.core.data.TeleportKind;
+import dev.yatpa.core.data.TeleportRequest;
+import dev.yatpa.core.service.RequestService;
 import dev.yatpa.paper.YatpaPaperPlugin;
 import dev.yatpa.paper.config.XmlMessages;
 import dev.yatpa.paper.config.YatpaConfig;
 import dev.yatpa.paper.data.HomeLocation;
-import dev.yatpa.paper.data.RequestType;
-import dev.yatpa.paper.data.TeleportKind;
-import dev.yatpa.paper.data.TeleportRequest;
 import dev.yatpa.paper.gui.SettingsGui;
 import dev.yatpa.paper.service.DataStore;
-import dev.yatpa.paper.service.RequestService;
+import dev.yatpa.paper.service.GroupTeleportService;
+import dev.yatpa.paper.service.RtpPool;
+import dev.yatpa.paper.service.RtpSearch;
+import dev.yatpa.paper.service.SafeLocationFinder;
+import dev.yatpa.paper.service.TeleportLogIndex;
 import dev.yatpa.paper.service.TeleportLogService;
 import dev.yatpa.paper.service.TeleportService;
+import dev.yatpa.paper.service.WriteBehindWriter;
+import dev.yatpa.paper.storage.ShardedYamlStorageBackend;
+import dev.yatpa.paper.storage.SqlStorageBackend;
+import dev.yatpa.paper.storage.StorageBackend;
+import dev.yatpa.paper.storage.StorageMigrator;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+import java.util.logging.Level;
 import java.util.stream.Collectors;
 import net.kyori.adventure.text.Component;
 import net.kyori.adventure.text.event.ClickEvent;
@@ -33,6 +48,7 @@ import org.bukkit.GameMode;
 import org.bukkit.Bukkit;
 import org.bukkit.Location;
 import org.bukkit.Material;
+import org.bukkit.OfflinePlayer;
 import org.bukkit.Particle;
 import org.bukkit.Sound;
 import org.bukkit.World;
@@ -46,7 +62,8 @@ import org.bukkit.entity.Player;
 public class YatpaCommandHandler implements CommandExecutor, TabCompleter {
     private static final int PLAYER_PAGE_SIZE = 5;
     private static final int TPALOG_PAGE_SIZE = 5;
-    private static final int TPALOG_MAX_ENTRIES = 200;
+    private static final int YTP_SAFE_RADIUS = 48;
+    private static final int YTP_SAFE_VERTICAL_RANGE = 64;
     private static final DateTimeFormatter TPALOG_TIME = DateTimeFormatter.ofPattern("HH:mm:ss")
             .withZone(ZoneId.systemDefault());
     private static final List<String> FEATURE_PATHS = List.of(
@@ -65,7 +82,14 @@ public class YatpaCommandHandler implements CommandExecutor, TabCompleter {
     private final TeleportService teleports;
     private final SettingsGui settingsGui;
     private final TeleportLogService teleportLog;
+    private final RtpSearch rtpSearch;
+    private final RtpPool rtpPool;
+    private final GroupTeleportService groupTeleports;
     private final Map<UUID, Long> rtpCooldowns = new ConcurrentHashMap<>();
+    private final Set<UUID> rtpSearching = ConcurrentHashMap.newKeySet();
+    private long safeSearches;
+    private long safeSearchProbes;
+    private long lastSafeSearchProbes;
 
     public YatpaCommandHandler(
             YatpaPaperPlugin plugin,
@@ -75,7 +99,10 @@ public class YatpaCommandHandler implements CommandExecutor, TabCompleter {
             RequestService requests,
             TeleportService teleports,
             SettingsGui settingsGui,
-            TeleportLogService teleportLog) {
+            TeleportLogService teleportLog,
+            RtpSearch rtpSearch,
+            RtpPool rtpPool,
+            GroupTeleportService groupTeleports) {
         this.plugin = plugin;
         this.messages = messages;
         this.config = config;
@@ -84,6 +111,9 @@ public class YatpaCommandHandler implements CommandExecutor, TabCompleter {
         this.teleports = teleports;
         this.settingsGui = settingsGui;
         this.teleportLog = teleportLog;
+        this.rtpSearch = rtpSearch;
+        this.rtpPool = rtpPool;
+        this.groupTeleports = groupTeleports;
     }
 
     @Override
@@ -93,14 +123,18 @@ public class YatpaCommandHandler implements CommandExecutor, TabCompleter {
             send(sender, "app_disabled");
             return true;
         }
+        if (sender instanceof Player player && !dataStore.isLoaded(player.getUniqueId())) {
+            whenLoaded(player, player.getUniqueId(), () -> onCommand(sender, command, label, args));
+            return true;
+        }
         return switch (name) {
             case "tp" -> handleTpMenu(sender, args);
             case "tpa" -> handleTpa(sender, args);
             case "yatpa" -> handleYatpa(sender, args);
             case "tphelp", "tpahelp" -> handleHelp(sender);
             case "tpahere", "tphere" -> handleTpaHere(sender, args);
-            case "tpaccept" -> handleAccept(sender);
-            case "tpdeny" -> handleDeny(sender);
+            case "tpaccept" -> handleAccept(sender, args);
+            case "tpdeny" -> handleDeny(sender, args);
             case "tpatoggle" -> handleToggle(sender);
             case "tpablock" -> handleBlock(sender, args);
             case "tpaunblock" -> handleUnblock(sender, args);
@@ -112,10 +146,27 @@ public class YatpaCommandHandler implements CommandExecutor, TabCompleter {
             case "tpaback", "tpdeath" -> handleTpaBack(sender, args);
             case "tpalog" -> handleTpaLog(sender, args);
             case "setspawn" -> handleSetSpawn(sender);
+            case "tpparty" -> handleTpParty(sender, args);
             default -> false;
         };
     }
 
+    // With lazy storage a profile can still be loading, e.g. right after login or a reload. Runs the action once it is in
+    // memory instead of reading storage here or answering as if the player had no data.
+    private void whenLoaded(Player player, UUID uuid, Runnable action) {
+        dataStore.loaded(uuid).whenComplete((ignored, error) -> plugin.getServer().getScheduler().runTask(plugin, () -> {
+            if (!player.isOnline()) {
+                return;
+            }
+            if (error != null) {
+                plugin.getLogger().log(Level.WARNING, "Failed loading player data of " + uuid, error);
+                send(player, "player_data_unavailable");
+                return;
+            }
+            action.run();
+        }));
+    }
+
     private boolean handleTpMenu(CommandSender sender, String[] args) {
         if (!(sender instanceof Player player)) {
             send(sender, "player_only");
@@ -307,6 +358,13 @@ public class YatpaCommandHandler implements CommandExecutor, TabCompleter {
             showSettings(sender);
             return true;
         }
+        if (args.length == 1 && args[0].equalsIgnoreCase("stats")) {
+            showStats(sender);
+            return true;
+        }
+        if (args.length == 2 && args[0].equalsIgnoreCase("migrate")) {
+            return migrateStorage(sender, args[1]);
+        }
         if (args.length == 1 && args[0].equalsIgnoreCase("gui")) {
             if (!(sender instanceof Player player)) {
                 send(sender, "player_only");
@@ -335,8 +393,8 @@ public class YatpaCommandHandler implements CommandExecutor, TabCompleter {
         if (config.tpaHereEnabled()) {
             sender.sendMessage("§a/tpahere <player> §7- Request a player teleport to you");
         }
-        sender.sendMessage("§a/tpaccept §7- Accept latest request");
-        sender.sendMessage("§a/tpdeny §7- Deny latest request");
+        sender.sendMessage("§a/tpaccept [player|all] §7- Accept the latest, one, or all requests");
+        sender.sendMessage("§a/tpdeny [player|*] §7- Deny the latest, one, or all requests");
         sender.sendMessage("§a/tpatoggle §7- Toggle incoming requests");
         sender.sendMessage("§a/tpablock <player> §7- Block a player from requesting");
         sender.sendMessage("§a/tpaunblock <player> §7- Unblock a player");
@@ -514,6 +572,14 @@ public class YatpaCommandHandler implements CommandExecutor, TabCompleter {
                     messages.get("prefix") + "Please wait " + remaining + "s before sending another request.");
             return true;
         }
+        if (!dataStore.isLoaded(target.getUniqueId())) {
+            whenLoaded(sender, target.getUniqueId(), () -> {
+                if (target.isOnline()) {
+                    createRequest(sender, target, type);
+                }
+            });
+            return true;
+        }
         if (!dataStore.acceptingRequests(target.getUniqueId())) {
             send(sender, "target_not_accepting", Map.of("target", target.getName()));
             return true;
@@ -535,21 +601,25 @@ public class YatpaCommandHandler implements CommandExecutor, TabCompleter {
                 return true;
             }
         }
-        if (!requests.create(sender.getUniqueId(), target.getUniqueId(), type)) {
+        if (requests.hasPair(sender.getUniqueId(), target.getUniqueId())) {
             send(sender, "request_exists");
             return true;
         }
+        if (!requests.create(sender.getUniqueId(), target.getUniqueId(), type)) {
+            send(sender, "request_inbox_full", Map.of("target", target.getName()));
+            return true;
+        }
 
         send(sender, "request_sent", Map.of("target", target.getName()));
         send(target, "request_received", Map.of("player", sender.getName()));
 
         Component accept = Component.text(messages.get("accept_button"))
                 .color(NamedTextColor.GREEN)
-                .clickEvent(ClickEvent.runCommand("/tpaccept"))
+                .clickEvent(ClickEvent.runCommand("/tpaccept " + sender.getName()))
                 .hoverEvent(HoverEvent.showText(Component.text(messages.get("accept_hover"))));
         Component deny = Component.text(messages.get("deny_button"))
                 .color(NamedTextColor.RED)
-                .clickEvent(ClickEvent.runCommand("/tpdeny"))
+                .clickEvent(ClickEvent.runCommand("/tpdeny " + sender.getName()))
                 .hoverEvent(HoverEvent.showText(Component.text(messages.get("deny_hover"))));
         target.sendMessage(accept.append(Component.text(" ")).append(deny));
 
@@ -558,69 +628,176 @@ public class YatpaCommandHandler implements CommandExecutor, TabCompleter {
         return true;
     }
 
-    private boolean handleAccept(CommandSender sender) {
+    private boolean handleAccept(CommandSender sender, String[] args) {
         if (!(sender instanceof Player receiver)) {
             send(sender, "player_only");
             return true;
         }
+        if (args.length == 1 && (args[0].equals("*") || args[0].equalsIgnoreCase("all"))) {
+            return acceptAll(receiver);
+        }
 
-        Optional<TeleportRequest> requestOpt = requests.pendingFor(receiver.getUniqueId());
+        Optional<TeleportRequest> requestOpt = args.length == 0 ? requests.pendingFor(receiver.getUniqueId())
+                : pendingFrom(receiver, args[0]);
         if (requestOpt.isEmpty()) {
+            if (args.length == 0) {
+                send(receiver, "request_none");
+            } else {
+                send(receiver, "request_none_from", Map.of("player", args[0]));
+            }
+            return true;
+        }
+        acceptRequest(receiver, requestOpt.get());
+        return true;
+    }
+
+    // Every requester is checked up front, then the accepted teleports are queued a few per tick so their countdowns
+    // and arrivals are spread out instead of all landing on the same tick. A request is only removed once its teleport
+    // is queued; every accepted requester who is not moved is told why.
+    private boolean acceptAll(Player receiver) {
+        List<TeleportRequest> pending = requests.pendingAll(receiver.getUniqueId());
+        if (pending.isEmpty()) {
             send(receiver, "request_none");
             return true;
         }
+        int offline = 0;
+        int unpaid = 0;
+        int blocked = 0;
+        int skipped = 0;
+        List<TeleportRequest> accepted = new ArrayList<>();
+        for (TeleportRequest request : pending) {
+            // Accepting several /tpahere requests would pull the receiver to several players at once.
+            if (request.type() == RequestType.TPAHERE) {
+                skipped++;
+                continue;
+            }
+            Player mover = Bukkit.getPlayer(request.sender());
+            if (mover == null) {
+                offline++;
+                continue;
+            }
+            if (!config.tpaEnabled()) {
+                send(mover, "request_denied");
+                blocked++;
+                continue;
+            }
+            World disabled = firstTeleportBlocked(mover.getWorld(), receiver.getWorld());
+            if (disabled != null) {
+                send(mover, "teleport_disabled_dimension", Map.of("dimension", disabled.getName()));
+                blocked++;
+                continue;
+            }
+            var charge = teleports.previewCharge(mover, TeleportKind.TPA);
+            if (!charge.success()) {
+                send(mover, "cost_failed", Map.of("required", charge.required()));
+                unpaid++;
+                continue;
+            }
+            accepted.add(request);
+        }
+        send(receiver, "requests_accepted", Map.of(
+                "accepted", Integer.toString(accepted.size()),
+                "total", Integer.toString(pending.size()),
+                "offline", Integer.toString(offline),
+                "unpaid", Integer.toString(unpaid),
+                "blocked", Integer.toString(blocked),
+                "skipped", Integer.toString(skipped)));
+        if (accepted.isEmpty()) {
+            return true;
+        }
+        int perTick = Math.max(1, config.bulkAcceptPerTick());
+        String receiverName = receiver.getName();
+        int[] next = { 0 };
+        plugin.getServer().getScheduler().runTaskTimer(plugin, task -> {
+            if (!receiver.isOnline()) {
+                while (next[0] < accepted.size()) {
+                    Player mover = Bukkit.getPlayer(accepted.get(next[0]++).sender());
+                    if (mover != null) {
+                        send(mover, "request_accept_receiver_left", Map.of("target", receiverName));
+                    }
+                }
+                task.cancel();
+                return;
+            }
+            for (int i = 0; i < perTick && next[0] < accepted.size(); i++) {
+                TeleportRequest request = accepted.get(next[0]++);
+                Player mover = Bukkit.getPlayer(request.sender());
+                // Denied, replaced or expired since the command ran: that outcome was already reported.
+                if (mover == null || !requests.pendingFor(receiver.getUniqueId(), request.sender())
+                        .filter(request::equals).isPresent()) {
+                    continue;
+                }
+                if (teleports.queueTeleport(mover, TeleportKind.TPA, receiver::getLocation, () -> {
+                }, mover, receiver, "target=" + receiverName + " bulk")) {
+                    requests.remove(request);
+                    mover.sendMessage(messages.get("prefix") + receiverName + " accepted your request.");
+                } else {
+                    send(mover, "request_accept_failed", Map.of("target", receiverName));
+                }
+            }
+            if (next[0] >= accepted.size()) {
+                task.cancel();
+            }
+        }, 0L, 1L);
+        return true;
+    }
 
-        TeleportRequest request = requestOpt.get();
+    private Optional<TeleportRequest> pendingFrom(Player receiver, String senderName) {
+        Player from = Bukkit.getPlayerExact(senderName);
+        return from == null ? Optional.empty() : requests.pendingFor(receiver.getUniqueId(), from.getUniqueId());
+    }
 
+    // Returns whether the teleport was queued; the request stays pending when a check fails before that.
+    private boolean acceptRequest(Player receiver, TeleportRequest request) {
         Player senderPlayer = Bukkit.getPlayer(request.sender());
         if (senderPlayer == null) {
             send(receiver, "player_not_online");
-            return true;
+            return false;
         }
 
         if (request.type() == RequestType.TPA) {
             if (!config.tpaEnabled()) {
                 send(receiver, "feature_tpa_disabled");
                 send(senderPlayer, "request_denied");
-                return true;
+                return false;
             }
             World blocked = firstTeleportBlocked(senderPlayer.getWorld(), receiver.getWorld());
             if (blocked != null) {
                 send(receiver, "teleport_disabled_dimension", Map.of("dimension", blocked.getName()));
                 send(senderPlayer, "teleport_disabled_dimension", Map.of("dimension", blocked.getName()));
-                return true;
+                return false;
             }
             var charge = teleports.previewCharge(senderPlayer, TeleportKind.TPA);
             if (!charge.success()) {
                 send(senderPlayer, "cost_failed", Map.of("required", charge.required()));
-                return true;
+                return false;
             }
-            requests.removeFor(receiver.getUniqueId());
+            requests.remove(request);
             if (!teleports.queueTeleport(senderPlayer, TeleportKind.TPA, receiver::getLocation, () -> {
             }, senderPlayer, receiver, "target=" + receiver.getName())) {
-                return true;
+                return false;
             }
         } else {
             if (!config.tpaHereEnabled()) {
                 send(receiver, "feature_tpahere_disabled");
                 send(senderPlayer, "request_denied");
-                return true;
+                return false;
             }
             World blocked = firstTeleportBlocked(receiver.getWorld(), senderPlayer.getWorld());
             if (blocked != null) {
                 send(receiver, "teleport_disabled_dimension", Map.of("dimension", blocked.getName()));
                 send(senderPlayer, "teleport_disabled_dimension", Map.of("dimension", blocked.getName()));
-                return true;
+                return false;
             }
             var charge = teleports.previewCharge(senderPlayer, TeleportKind.TPAHERE);
             if (!charge.success()) {
                 send(senderPlayer, "cost_failed", Map.of("required", charge.required()));
-                return true;
+                return false;
             }
-            requests.removeFor(receiver.getUniqueId());
+            requests.remove(request);
             if (!teleports.queueTeleport(receiver, TeleportKind.TPAHERE, senderPlayer::getLocation, () -> {
             }, senderPlayer, senderPlayer, "requested-by=" + senderPlayer.getName())) {
-                return true;
+                return false;
             }
         }
 
@@ -629,16 +806,38 @@ public class YatpaCommandHandler implements CommandExecutor, TabCompleter {
         return true;
     }
 
-    private boolean handleDeny(CommandSender sender) {
+    private boolean handleDeny(CommandSender sender, String[] args) {
         if (!(sender instanceof Player player)) {
             send(sender, "player_only");
             return true;
         }
-        Optional<TeleportRequest> request = requests.removeFor(player.getUniqueId());
+        if (args.length == 1 && args[0].equals("*")) {
+            List<TeleportRequest> pending = requests.pendingAll(player.getUniqueId());
+            if (pending.isEmpty()) {
+                send(player, "request_none");
+                return true;
+            }
+            for (TeleportRequest request : pending) {
+                requests.remove(request);
+                Player requestSender = Bukkit.getPlayer(request.sender());
+                if (requestSender != null) {
+                    send(requestSender, "request_denied");
+                }
+            }
+            send(player, "requests_denied", Map.of("count", Integer.toString(pending.size())));
+            return true;
+        }
+        Optional<TeleportRequest> request = args.length == 0 ? requests.pendingFor(player.getUniqueId())
+                : pendingFrom(player, args[0]);
         if (request.isEmpty()) {
-            send(player, "request_none");
+            if (args.length == 0) {
+                send(player, "request_none");
+            } else {
+                send(player, "request_none_from", Map.of("player", args[0]));
+            }
             return true;
         }
+        requests.remove(request.get());
         Player requestSender = Bukkit.getPlayer(request.get().sender());
         if (requestSender != null) {
             send(requestSender, "request_denied");
@@ -826,7 +1025,6 @@ public class YatpaCommandHandler implements CommandExecutor, TabCompleter {
             return true;
         }
         World targetWorld;
-        Location targetLocation = player.getLocation();
         if (config.teleportDisabledIn(player.getWorld())) {
             send(sender, "teleport_disabled_dimension", Map.of("dimension", player.getWorld().getName()));
             return true;
@@ -846,23 +1044,84 @@ public class YatpaCommandHandler implements CommandExecutor, TabCompleter {
         } else {
             targetWorld = player.getWorld();
         }
+        // With center_on_spawn every /rtp rolls around the target world's spawn, keeping the player's facing.
+        Location targetLocation = config.rtpCenterOnSpawn() ? targetWorld.getSpawnLocation() : player.getLocation();
+        if (config.rtpCenterOnSpawn()) {
+            targetLocation.setYaw(player.getLocation().getYaw());
+            targetLocation.setPitch(player.getLocation().getPitch());
+        }
         int remaining = rtpCooldownRemaining(player.getUniqueId());
         if (remaining > 0) {
             sendRtpCooldown(player, remaining);
             return true;
         }
 
-        teleports.queueTeleport(
-                player,
-                TeleportKind.RTP,
-                () -> findRandomSafe(targetWorld, targetLocation, config.rtpMin(targetWorld),
-                        config.rtpMax(targetWorld)),
-                () -> rtpCooldowns.put(player.getUniqueId(), System.currentTimeMillis()),
-                player,
-                "world=" + targetWorld.getName());
+        if (!rtpSearching.add(player.getUniqueId())) {
+            send(player, "rtp_searching");
+            return true;
+        }
+        if (rtpPool == null) {
+            searchRtp(player, targetWorld, targetLocation);
+            return true;
+        }
+        // The pool only exists with center_on_spawn, so its spots match this center and radius. A pooled spot is
+        // re-checked off the main thread first; take completes back on it.
+        rtpPool.take(targetWorld, targetLocation, config.rtpMin(targetWorld), config.rtpMax(targetWorld))
+                .thenAccept(pooled -> {
+                    if (pooled == null) {
+                        searchRtp(player, targetWorld, targetLocation);
+                        return;
+                    }
+                    rtpSearching.remove(player.getUniqueId());
+                    if (player.isOnline()) {
+                        teleports.queueTeleport(
+                                player,
+                                TeleportKind.RTP,
+                                () -> pooled,
+                                () -> rtpCooldowns.put(player.getUniqueId(), System.currentTimeMillis()),
+                                player,
+                                "world=" + targetWorld.getName());
+                    }
+                });
         return true;
     }
 
+    private void searchRtp(Player player, World targetWorld, Location targetLocation) {
+        if (!player.isOnline()) {
+            rtpSearching.remove(player.getUniqueId());
+            return;
+        }
+        // The search runs before the countdown so no chunk is loaded synchronously when the teleport fires.
+        send(player, "rtp_searching");
+        rtpSearch.find(targetWorld, targetLocation, config.rtpMin(targetWorld), config.rtpMax(targetWorld))
+                .whenComplete((found, error) -> plugin.getServer().getScheduler().runTask(plugin, () -> {
+                    rtpSearching.remove(player.getUniqueId());
+                    if (!player.isOnline()) {
+                        return;
+                    }
+                    if (error != null) {
+                        Throwable cause = error instanceof CompletionException && error.getCause() != null
+                                ? error.getCause() : error;
+                        if (cause instanceof TimeoutException) {
+                            send(player, "rtp_timeout");
+                        } else {
+                            plugin.getLogger().log(Level.WARNING, "Random teleport search failed in "
+                                    + targetWorld.getName(), cause);
+                            send(player, "rtp_failed");
+                        }
+                        return;
+                    }
+                    Location destination = found != null ? found : rtpFallback(targetWorld, targetLocation);
+                    teleports.queueTeleport(
+                            player,
+                            TeleportKind.RTP,
+                            () -> destination,
+                            () -> rtpCooldowns.put(player.getUniqueId(), System.currentTimeMillis()),
+                            player,
+                            "world=" + targetWorld.getName());
+                }));
+    }
+
     private boolean handleSetSpawn(CommandSender sender) {
         if(!config.spawnEnabled()) return true;
         if(!(sender instanceof Player player)) {
@@ -928,6 +1187,19 @@ public class YatpaCommandHandler implements CommandExecutor, TabCompleter {
             showYtpHelp(player);
             return true;
         }
+        if (args.length >= 2 && args[0].startsWith("@")) {
+            List<Player> group = switch (args[0].toLowerCase(Locale.ROOT)) {
+                case "@all" -> new ArrayList<>(Bukkit.getOnlinePlayers());
+                case "@world" -> new ArrayList<>(player.getWorld().getPlayers());
+                default -> null;
+            };
+            if (group == null) {
+                send(player, "usage_tp");
+                return true;
+            }
+            return groupTeleport(player, group, Arrays.copyOfRange(args, 1, args.length), "usage_tp",
+                    "group=" + args[0].toLowerCase(Locale.ROOT));
+        }
         if (args.length == 1) {
             Player target = Bukkit.getPlayerExact(args[0]);
             if (target == null) {
@@ -939,12 +1211,12 @@ public class YatpaCommandHandler implements CommandExecutor, TabCompleter {
                 send(player, "teleport_disabled_dimension", Map.of("dimension", blocked.getName()));
                 return true;
             }
-            Location destination = resolveYtpDestination(player, target.getLocation());
-            Location from = player.getLocation().clone();
-            if (player.teleport(destination)) {
-                teleportLog.record("YTP", player.getName(), "", "target=" + target.getName(), from, destination);
-                send(player, "teleport_success");
-            }
+            resolveYtpDestination(player, target.getLocation(), destination ->
+                    teleports.teleport(player, destination, from -> {
+                        teleportLog.record("YTP", player.getName(), "", "target=" + target.getName(), from,
+                                destination);
+                        send(player, "teleport_success");
+                    }));
             return true;
         }
         if (args.length == 2) {
@@ -962,16 +1234,15 @@ public class YatpaCommandHandler implements CommandExecutor, TabCompleter {
                 }
                 return true;
             }
-            Location destination = resolveYtpDestination(actor, target.getLocation());
-            Location from = actor.getLocation().clone();
-            if (actor.teleport(destination)) {
-                teleportLog.record("YTP", actor.getName(), player.getName(), "target=" + target.getName(), from,
-                        destination);
-                send(player, "teleport_success");
-                if (!actor.getUniqueId().equals(player.getUniqueId())) {
-                    send(actor, "teleport_success");
-                }
-            }
+            resolveYtpDestination(actor, target.getLocation(), destination ->
+                    teleports.teleport(actor, destination, from -> {
+                        teleportLog.record("YTP", actor.getName(), player.getName(), "target=" + target.getName(),
+                                from, destination);
+                        send(player, "teleport_success");
+                        if (!actor.getUniqueId().equals(player.getUniqueId())) {
+                            send(actor, "teleport_success");
+                        }
+                    }));
             return true;
         }
         if (args.length == 3 || args.length == 4) {
@@ -996,13 +1267,12 @@ public class YatpaCommandHandler implements CommandExecutor, TabCompleter {
 
             Location destination = new Location(world, x, y, z, player.getLocation().getYaw(),
                     player.getLocation().getPitch());
-            Location adjusted = resolveYtpDestination(player, destination);
-            Location from = player.getLocation().clone();
-            if (player.teleport(adjusted)) {
-                teleportLog.record("YTP", player.getName(), "", "coords=" + shortLocation(world.getName(), x, y, z),
-                        from, adjusted);
-                send(player, "teleport_success");
-            }
+            resolveYtpDestination(player, destination, adjusted ->
+                    teleports.teleport(player, adjusted, from -> {
+                        teleportLog.record("YTP", player.getName(), "",
+                                "coords=" + shortLocation(world.getName(), x, y, z), from, adjusted);
+                        send(player, "teleport_success");
+                    }));
             return true;
         }
         if (args.length == 4 || args.length == 5) {
@@ -1036,16 +1306,15 @@ public class YatpaCommandHandler implements CommandExecutor, TabCompleter {
 
             Location actorLocation = actor.getLocation();
             Location destination = new Location(world, x, y, z, actorLocation.getYaw(), actorLocation.getPitch());
-            Location adjusted = resolveYtpDestination(actor, destination);
-            Location from = actor.getLocation().clone();
-            if (actor.teleport(adjusted)) {
-                teleportLog.record("YTP", actor.getName(), player.getName(),
-                        "coords=" + shortLocation(world.getName(), x, y, z), from, adjusted);
-                send(player, "teleport_success");
-                if (!actor.getUniqueId().equals(player.getUniqueId())) {
-                    send(actor, "teleport_success");
-                }
-            }
+            resolveYtpDestination(actor, destination, adjusted ->
+                    teleports.teleport(actor, adjusted, from -> {
+                        teleportLog.record("YTP", actor.getName(), player.getName(),
+                                "coords=" + shortLocation(world.getName(), x, y, z), from, adjusted);
+                        send(player, "teleport_success");
+                        if (!actor.getUniqueId().equals(player.getUniqueId())) {
+                            send(actor, "teleport_success");
+                        }
+                    }));
             return true;
         }
 
@@ -1053,6 +1322,82 @@ public class YatpaCommandHandler implements CommandExecutor, TabCompleter {
         return true;
     }
 
+    private boolean handleTpParty(CommandSender sender, String[] args) {
+        if (!(sender instanceof Player player)) {
+            send(sender, "player_only");
+            return true;
+        }
+        if (!player.hasPermission("yatpa.op.tpparty")) {
+            send(player, "no_permission");
+            return true;
+        }
+        double radius = Math.max(0, config.partyRadius());
+        List<Player> group = new ArrayList<>();
+        for (Player other : player.getWorld().getPlayers()) {
+            if (other.getLocation().distanceSquared(player.getLocation()) <= radius * radius) {
+                group.add(other);
+            }
+        }
+        return groupTeleport(player, group, args, "usage_tpparty", "group=party");
+    }
+
+    private boolean groupTeleport(Player player, List<Player> group, String[] destinationArgs, String usageKey,
+            String detail) {
+        Location destination = groupDestination(player, group, destinationArgs, usageKey);
+        if (destination == null) {
+            return true;
+        }
+        if (config.teleportDisabledIn(destination.getWorld())) {
+            send(player, "teleport_disabled_dimension", Map.of("dimension", destination.getWorld().getName()));
+            return true;
+        }
+        group.removeIf(member -> config.teleportDisabledIn(member.getWorld()));
+        if (group.isEmpty()) {
+            send(player, "group_teleport_empty");
+            return true;
+        }
+        send(player, "group_teleport_started", Map.of("count", Integer.toString(group.size())));
+        groupTeleports.start(player, group, destination, detail, member -> send(member, "teleport_success"),
+                result -> {
+                    if (player.isOnline()) {
+                        send(player, "group_teleport_done", Map.of(
+                                "arrived", Integer.toString(result.arrived()),
+                                "total", Integer.toString(result.requested())));
+                    }
+                });
+        return true;
+    }
+
+    // A player target is taken out of the group, since they are already at the destination.
+    private Location groupDestination(Player player, List<Player> group, String[] args, String usageKey) {
+        if (args.length == 1) {
+            Player target = Bukkit.getPlayerExact(args[0]);
+            if (target == null) {
+                send(player, "player_not_online");
+                return null;
+            }
+            group.remove(target);
+            return target.getLocation().clone();
+        }
+        if (args.length != 3 && args.length != 4) {
+            send(player, usageKey);
+            return null;
+        }
+        Double x = parseCoordinate(args[0]);
+        Double y = parseCoordinate(args[1]);
+        Double z = parseCoordinate(args[2]);
+        if (x == null || y == null || z == null) {
+            send(player, usageKey);
+            return null;
+        }
+        World world = args.length == 4 ? resolveRealm(args[3], player.getWorld()) : player.getWorld();
+        if (world == null) {
+            player.sendMessage(messages.get("prefix") + "§cUnknown realm/world: §e" + args[3]);
+            return null;
+        }
+        return new Location(world, x, y, z, player.getLocation().getYaw(), player.getLocation().getPitch());
+    }
+
     private boolean handleTpOffline(CommandSender sender, String[] args) {
         if (!(sender instanceof Player player)) {
             send(sender, "player_only");
@@ -1066,22 +1411,34 @@ public class YatpaCommandHandler implements CommandExecutor, TabCompleter {
             send(player, "usage_tpoffline");
             return true;
         }
-        Location location = dataStore.offlineLocation(args[0]);
+        // With lazy storage the logout location may be read off the main thread; the teleport resumes back on it.
+        dataStore.offlineLocation(args[0])
+                .whenComplete((stored, error) -> plugin.getServer().getScheduler().runTask(plugin, () -> {
+                    if (!player.isOnline()) {
+                        return;
+                    }
+                    if (error != null) {
+                        plugin.getLogger().log(Level.WARNING, "Failed loading logout location of " + args[0], error);
+                    }
+                    teleportOffline(player, args[0], error == null ? DataStore.toLocation(stored) : null);
+                }));
+        return true;
+    }
+
+    private void teleportOffline(Player player, String name, Location location) {
         if (location == null) {
             send(player, "offline_missing");
-            return true;
+            return;
         }
         World blocked = firstTeleportBlocked(player.getWorld(), location.getWorld());
         if (blocked != null) {
             send(player, "teleport_disabled_dimension", Map.of("dimension", blocked.getName()));
-            return true;
+            return;
         }
-        Location from = player.getLocation().clone();
-        if (player.teleport(location)) {
-            teleportLog.record("TPOFFLINE", player.getName(), "", "offline=" + args[0], from, location);
+        teleports.teleport(player, location, from -> {
+            teleportLog.record("TPOFFLINE", player.getName(), "", "offline=" + name, from, location);
             send(player, "teleport_success");
-        }
-        return true;
+        });
     }
 
     private boolean handleTpaLog(CommandSender sender, String[] args) {
@@ -1089,33 +1446,87 @@ public class YatpaCommandHandler implements CommandExecutor, TabCompleter {
             send(sender, "no_permission");
             return true;
         }
-        int page = 1;
-        if (args.length > 1) {
-            sender.sendMessage(messages.get("prefix") + "§eUsage: /tpalog [page]");
-            return true;
-        }
-        if (args.length == 1) {
-            page = parsePage(args[0]);
+        String player = null;
+        String action = null;
+        String world = null;
+        long since = 0L;
+        long before = Long.MAX_VALUE;
+        for (String arg : args) {
+            int split = arg.indexOf(':');
+            String key = split < 0 ? "" : arg.substring(0, split).toLowerCase(Locale.ROOT);
+            String value = split < 0 ? "" : arg.substring(split + 1);
+            switch (key) {
+                case "player", "p" -> player = value;
+                case "action", "a" -> action = value;
+                case "world", "w" -> world = value;
+                case "since", "s" -> {
+                    long parsed = parseDuration(value);
+                    if (parsed <= 0L) {
+                        sendTpaLogUsage(sender);
+                        return true;
+                    }
+                    since = System.currentTimeMillis() - parsed;
+                }
+                case "before" -> {
+                    try {
+                        before = Long.parseLong(value);
+                    } catch (NumberFormatException e) {
+                        sendTpaLogUsage(sender);
+                        return true;
+                    }
+                }
+                default -> {
+                    sendTpaLogUsage(sender);
+                    return true;
+                }
+            }
         }
-        List<TeleportLogService.Entry> recent = teleportLog.recent(TPALOG_MAX_ENTRIES);
-        if (recent.isEmpty()) {
-            sender.sendMessage(messages.get("prefix") + "§7No teleport log entries yet.");
+        TeleportLogIndex.Query query = new TeleportLogIndex.Query(blankToNull(player), blankToNull(action),
+                blankToNull(world), since);
+        TeleportLogIndex.Page page = teleportLog.query(query, before, TPALOG_PAGE_SIZE);
+        if (page.entries().isEmpty()) {
+            sender.sendMessage(messages.get("prefix") + (query.isEmpty() && before == Long.MAX_VALUE
+                    ? "§7No teleport log entries yet." : "§7No matching teleport log entries."));
             return true;
         }
-        int totalPages = Math.max(1, (int) Math.ceil(recent.size() / (double) TPALOG_PAGE_SIZE));
-        page = Math.max(1, Math.min(totalPages, page));
-        int start = (page - 1) * TPALOG_PAGE_SIZE;
-        int end = Math.min(recent.size(), start + TPALOG_PAGE_SIZE);
         sender.sendMessage(Component.text("----- ", NamedTextColor.DARK_GRAY)
                 .append(Component.text("YATPA Teleport Log", NamedTextColor.GOLD))
                 .append(Component.text(" -----", NamedTextColor.DARK_GRAY)));
-        for (TeleportLogService.Entry entry : recent.subList(start, end)) {
+        for (TeleportLogService.Entry entry : page.entries()) {
             sender.sendMessage(formatLogEntry(entry));
         }
-        sendTpaLogPageLine(sender, page, totalPages);
+        sendTpaLogPageLine(sender, args, before != Long.MAX_VALUE, page.nextCursor());
         return true;
     }
 
+    private void sendTpaLogUsage(CommandSender sender) {
+        sender.sendMessage(messages.get("prefix")
+                + "§eUsage: /tpalog [player:<name>] [action:<type>] [world:<world>] [since:<30m|2h|7d>]");
+    }
+
+    private static String blankToNull(String value) {
+        return value == null || value.isBlank() ? null : value;
+    }
+
+    private static long parseDuration(String raw) {
+        if (raw.length() < 2) {
+            return -1L;
+        }
+        long amount;
+        try {
+            amount = Long.parseLong(raw.substring(0, raw.length() - 1));
+        } catch (NumberFormatException e) {
+            return -1L;
+        }
+        return switch (Character.toLowerCase(raw.charAt(raw.length() - 1))) {
+            case 's' -> amount * 1000L;
+            case 'm' -> amount * 60_000L;
+            case 'h' -> amount * 3_600_000L;
+            case 'd' -> amount * 86_400_000L;
+            default -> -1L;
+        };
+    }
+
     private Component formatLogEntry(TeleportLogService.Entry entry) {
         String payer = (entry.payer() == null || entry.payer().isBlank()) ? "" : " payer=" + entry.payer();
         String detail = (entry.detail() == null || entry.detail().isBlank()) ? "" : " [" + entry.detail() + "]";
@@ -1131,24 +1542,28 @@ public class YatpaCommandHandler implements CommandExecutor, TabCompleter {
                 .append(Component.text(payer, NamedTextColor.GRAY));
     }
 
-    private void sendTpaLogPageLine(CommandSender sender, int page, int totalPages) {
-        Component line = Component.text("Page ", NamedTextColor.AQUA)
-                .append(Component.text(page + "/" + totalPages + " ", NamedTextColor.WHITE));
-        if (page < totalPages) {
-            line = line.append(Component.text("> ", NamedTextColor.WHITE)
-                    .clickEvent(ClickEvent.runCommand("/tpalog " + (page + 1)))
+    // Pages are addressed by a cursor (the sequence number to continue below), so filters are repeated on each link.
+    private void sendTpaLogPageLine(CommandSender sender, String[] args, boolean paged, long nextCursor) {
+        StringBuilder filters = new StringBuilder("/tpalog");
+        for (String arg : args) {
+            if (!arg.toLowerCase(Locale.ROOT).startsWith("before:")) {
+                filters.append(' ').append(arg);
+            }
+        }
+        Component line = Component.empty();
+        if (paged) {
+            line = line.append(Component.text("< Newest ", NamedTextColor.AQUA)
+                    .clickEvent(ClickEvent.runCommand(filters.toString()))
+                    .hoverEvent(HoverEvent.showText(Component.text("Back to the newest entries"))));
+        }
+        if (nextCursor >= 0) {
+            line = line.append(Component.text("Older >", NamedTextColor.AQUA)
+                    .clickEvent(ClickEvent.runCommand(filters + " before:" + nextCursor))
                     .hoverEvent(HoverEvent.showText(Component.text("Next page"))));
         }
-        line = line.append(Component.text("(", NamedTextColor.GRAY));
-        for (int i = 1; i <= totalPages; i++) {
-            if (i > 1) {
-                line = line.append(Component.text(" | ", NamedTextColor.GRAY));
-            }
-            line = line.append(Component.text(Integer.toString(i), i == page ? NamedTextColor.WHITE : NamedTextColor.GRAY)
-                    .clickEvent(ClickEvent.runCommand("/tpalog " + i))
-                    .hoverEvent(HoverEvent.showText(Component.text("Page " + i))));
+        if (paged || nextCursor >= 0) {
+            sender.sendMessage(line);
         }
-        sender.sendMessage(line.append(Component.text(")", NamedTextColor.GRAY)));
     }
 
     private String shortLocation(String world, double x, double y, double z) {
@@ -1191,142 +1606,36 @@ public class YatpaCommandHandler implements CommandExecutor, TabCompleter {
         }
     }
 
-    private Location resolveYtpDestination(Player player, Location desired) {
-        if (bypassSafeYtp(player) || isSafeStandLocation(desired)) {
-            return desired;
-        }
-        Location safe = findNearestSafeLocation(desired, 48, 64);
-        if (safe == null) {
-            return desired;
-        }
-        return safe;
-    }
-
-    private boolean bypassSafeYtp(Player player) {
-        return player.getGameMode() == GameMode.CREATIVE || player.getGameMode() == GameMode.SPECTATOR;
-    }
-
-    private Location findNearestSafeLocation(Location desired, int maxHorizontalRadius, int verticalRange) {
-        World world = desired.getWorld();
-        if (world == null) {
-            return null;
+    // The chunks around the destination are loaded asynchronously first; then continues on the main thread.
+    private void resolveYtpDestination(Player player, Location desired, Consumer<Location> then) {
+        if (bypassSafeYtp(player) || desired.getWorld() == null) {
+            then.accept(desired);
+            return;
         }
-
-        int originX = desired.getBlockX();
-        int originY = desired.getBlockY();
-        int originZ = desired.getBlockZ();
-        int minY = world.getMinHeight() + 1;
-        int maxY = maxSafeStandY(world);
-        int startY = clamp(originY, minY, maxY);
-        double bestDistanceSq = Double.MAX_VALUE;
-        Location best = null;
-
-        for (int radius = 0; radius <= maxHorizontalRadius; radius++) {
-            for (int dx = -radius; dx <= radius; dx++) {
-                for (int dz = -radius; dz <= radius; dz++) {
-                    if (Math.abs(dx) != radius && Math.abs(dz) != radius) {
-                        continue;
-                    }
-                    int x = originX + dx;
-                    int z = originZ + dz;
-                    Location candidate = findSafeInColumn(world, x, z, startY, verticalRange);
-                    if (candidate == null) {
-                        continue;
+        SafeLocationFinder.loadAround(desired.getWorld(), desired.getBlockX(), desired.getBlockZ(), YTP_SAFE_RADIUS)
+                .whenComplete((finder, error) -> plugin.getServer().getScheduler().runTask(plugin, () -> {
+                    if (!player.isOnline()) {
+                        return;
                     }
-                    double distanceSq = candidate.distanceSquared(desired);
-                    if (distanceSq < bestDistanceSq) {
-                        bestDistanceSq = distanceSq;
-                        best = candidate;
+                    if (error != null) {
+                        plugin.getLogger().log(Level.WARNING, "Failed loading chunks for a safe /ytp destination",
+                                error);
+                        then.accept(desired);
+                        return;
                     }
-                }
-            }
-            if (best != null && bestDistanceSq <= radius * radius) {
-                break;
-            }
-        }
-
-        if (best == null) {
-            Location spawn = world.getSpawnLocation();
-            best = findSafeInColumn(world, spawn.getBlockX(), spawn.getBlockZ(), spawn.getBlockY(), verticalRange);
-            if (best == null) {
-                best = spawn.clone();
-            }
-        }
-
-        best.setYaw(desired.getYaw());
-        best.setPitch(desired.getPitch());
-        return best;
+                    Location safe = finder.isSafe(desired) ? desired
+                            : finder.findNearest(desired, YTP_SAFE_RADIUS, YTP_SAFE_VERTICAL_RANGE);
+                    safeSearches++;
+                    safeSearchProbes += finder.blocksProbed();
+                    lastSafeSearchProbes = finder.blocksProbed();
+                    // Nothing safe nearby (e.g. open ocean): keep the requested spot rather than sending the player to
+                    // spawn.
+                    then.accept(safe != null ? safe : desired);
+                }));
     }
 
-    private Location findSafeInColumn(World world, int x, int z, int targetY, int verticalRange) {
-        int minY = world.getMinHeight() + 1;
-        int maxY = maxSafeStandY(world);
-        int startY = clamp(targetY, minY, maxY);
-        Location borderCheck = new Location(world, x, startY, z);
-        if (!world.getWorldBorder().isInside(borderCheck)) {
-            return null;
-        }
-
-        for (int dy = 0; dy <= verticalRange; dy++) {
-            int up = startY + dy;
-            if (up <= maxY && isSafeStandLocation(world, x, up, z)) {
-                return centeredLocation(world, x, up, z);
-            }
-            if (dy > 0) {
-                int down = startY - dy;
-                if (down >= minY && isSafeStandLocation(world, x, down, z)) {
-                    return centeredLocation(world, x, down, z);
-                }
-            }
-        }
-
-        int surfaceY = clamp(world.getHighestBlockYAt(x, z) + 1, minY, maxY);
-        if (isSafeStandLocation(world, x, surfaceY, z)) {
-            return centeredLocation(world, x, surfaceY, z);
-        }
-        return null;
-    }
-
-    private boolean isSafeStandLocation(Location location) {
-        World world = location.getWorld();
-        if (world == null) {
-            return false;
-        }
-        return isSafeStandLocation(world, location.getBlockX(), location.getBlockY(), location.getBlockZ());
-    }
-
-    private boolean isSafeStandLocation(World world, int x, int y, int z) {
-        int minY = world.getMinHeight() + 1;
-        int maxY = maxSafeStandY(world);
-        if (y < minY || y > maxY) {
-            return false;
-        }
-
-        Location feet = new Location(world, x, y, z);
-        Location head = feet.clone().add(0, 1, 0);
-        Location below = feet.clone().subtract(0, 1, 0);
-
-        boolean feetClear = feet.getBlock().isPassable() && !feet.getBlock().isLiquid();
-        boolean headClear = head.getBlock().isPassable() && !head.getBlock().isLiquid();
-        boolean belowSolid = below.getBlock().getType().isSolid() && !below.getBlock().isLiquid();
-        return feetClear && headClear && belowSolid;
-    }
-
-    private Location centeredLocation(World world, int x, int y, int z) {
-        return new Location(world, x + 0.5, y, z + 0.5);
-    }
-
-    private int maxSafeStandY(World world) {
-        int maxY = world.getMaxHeight() - 2;
-        if (world.getEnvironment() == World.Environment.NETHER) {
-            // Keep RTP/nearest-safe logic below the nether roof.
-            maxY = Math.min(maxY, 127);
-        }
-        return maxY;
-    }
-
-    private int clamp(int value, int min, int max) {
-        return Math.max(min, Math.min(max, value));
+    private boolean bypassSafeYtp(Player player) {
+        return player.getGameMode() == GameMode.CREATIVE || player.getGameMode() == GameMode.SPECTATOR;
     }
 
     private World firstTeleportBlocked(World source, World destination) {
@@ -1370,37 +1679,12 @@ public class YatpaCommandHandler implements CommandExecutor, TabCompleter {
         return null;
     }
 
-    private Location findRandomSafe(World world, Location center, int minRadius, int maxRadius) {
-        int min = Math.max(0, minRadius);
-        int max = Math.max(min + 1, maxRadius);
-        var border = world.getWorldBorder();
-        int minY = world.getMinHeight() + 1;
-        int maxY = maxSafeStandY(world);
-
-        for (int i = 0; i < 80; i++) {
-            double angle = ThreadLocalRandom.current().nextDouble() * Math.PI * 2;
-            int distance = min + ThreadLocalRandom.current().nextInt(max - min + 1);
-            int x = (int) Math.floor(center.getX() + Math.cos(angle) * distance);
-            int z = (int) Math.floor(center.getZ() + Math.sin(angle) * distance);
-
-            if (!border.isInside(new Location(world, x, center.getY(), z))) {
-                continue;
-            }
-
-            int y = clamp(world.getHighestBlockYAt(x, z) + 1, minY, maxY);
-            Location candidate = new Location(world, x + 0.5, y, z + 0.5, center.getYaw(), center.getPitch());
-            if (isSafeStandLocation(candidate)) {
-                return candidate;
-            }
-        }
-        Location spawn = world.getSpawnLocation();
-        Location safe = findSafeInColumn(world, spawn.getBlockX(), spawn.getBlockZ(), spawn.getBlockY(), 64);
-        if (safe != null) {
-            safe.setYaw(center.getYaw());
-            safe.setPitch(center.getPitch());
-            return safe;
-        }
-        return spawn;
+    // Used when the async search exhausts its attempts; spawn chunks are always loaded, so this stays cheap.
+    private Location rtpFallback(World world, Location center) {
+        Location safe = new SafeLocationFinder(world).spawnFallback();
+        safe.setYaw(center.getYaw());
+        safe.setPitch(center.getPitch());
+        return safe;
     }
 
     private void showYtpHelp(CommandSender sender) {
@@ -1410,6 +1694,8 @@ public class YatpaCommandHandler implements CommandExecutor, TabCompleter {
         sender.sendMessage("§a/ytp <player> <target> §7- Teleport player to another player");
         sender.sendMessage("§a/ytp <x> <y> <z> [realm] §7- Teleport yourself to coordinates");
         sender.sendMessage("§a/ytp <player> <x> <y> <z> [realm] §7- Teleport player to coordinates");
+        sender.sendMessage("§a/ytp <@all|@world> <target|x y z [realm]> §7- Teleport a group of players");
+        sender.sendMessage("§a/tpparty <target|x y z [realm]> §7- Bring everyone near you along");
         sender.sendMessage("§7Realm can be a world name, or: overworld/nether/end");
         sender.sendMessage("§6§m-----------------------");
     }
@@ -1456,9 +1742,26 @@ public class YatpaCommandHandler implements CommandExecutor, TabCompleter {
         if (cmd.equals("tpa") && args.length == 1) {
             return partial(onlineNames(), args[0]);
         }
+        if ((cmd.equals("tpaccept") || cmd.equals("tpdeny")) && args.length == 1 && sender instanceof Player player) {
+            List<String> senders = new ArrayList<>();
+            for (TeleportRequest request : requests.pendingAll(player.getUniqueId())) {
+                String name = Bukkit.getOfflinePlayer(request.sender()).getName();
+                if (name != null) {
+                    senders.add(name);
+                }
+            }
+            senders.add("*");
+            if (cmd.equals("tpaccept")) {
+                senders.add("all");
+            }
+            return partial(senders, args[0]);
+        }
         if (cmd.equals("yatpa") && sender.hasPermission("yatpa.op.reload")) {
             if (args.length == 1) {
-                return partial(List.of("help", "reload", "settings", "gui", "set"), args[0]);
+                return partial(List.of("help", "reload", "settings", "stats", "gui", "migrate", "set"), args[0]);
+            }
+            if (args.length == 2 && args[0].equalsIgnoreCase("migrate")) {
+                return partial(List.of("sqlite", "sharded"), args[1]);
             }
             if (args.length == 2 && args[0].equalsIgnoreCase("set")) {
                 return partial(editableConfigPaths(), args[1]);
@@ -1498,6 +1801,8 @@ public class YatpaCommandHandler implements CommandExecutor, TabCompleter {
             if (args.length == 1) {
                 List<String> first = new ArrayList<>(onlineNames());
                 first.add("help");
+                first.add("@all");
+                first.add("@world");
                 return partial(first, args[0]);
             }
             if (args.length == 2 && !isCoordinateToken(args[0])) {
@@ -1518,11 +1823,20 @@ public class YatpaCommandHandler implements CommandExecutor, TabCompleter {
         if (List.of("tpahere", "tphere", "tpablock", "tpaunblock").contains(cmd) && args.length == 1) {
             return partial(onlineNames(), args[0]);
         }
+        if (cmd.equals("tpparty")) {
+            if (args.length == 1) {
+                return partial(onlineNames(), args[0]);
+            }
+            if (args.length == 4 && areCoordinates(args[0], args[1], args[2])) {
+                return partial(realmOptions(), args[3]);
+            }
+            return Collections.emptyList();
+        }
         if (cmd.equals("tpoffline") && args.length == 1) {
-            return partial(dataStore.offlineNames(), args[0]);
+            return partial(dataStore.offlineNames(args[0]), args[0]);
         }
-        if (cmd.equals("tpalog") && args.length == 1) {
-            return partial(List.of("1", "2", "3", "4", "5"), args[0]);
+        if (cmd.equals("tpalog") && args.length >= 1) {
+            return partial(List.of("player:", "action:", "world:", "since:"), args[args.length - 1]);
         }
         return Collections.emptyList();
     }
@@ -1822,6 +2136,7 @@ public class YatpaCommandHandler implements CommandExecutor, TabCompleter {
                 || path.startsWith("settings.dimension_restrictions.disable_rtp.")
                 || path.startsWith("settings.dimension_restrictions.disable_teleport.")
                 || path.equals("settings.rtp.rtp_to_overworld")
+                || path.equals("settings.rtp.center_on_spawn")
                 || path.equals("settings.cancel_on_move")
                 || path.equals("settings.cancel_on_damage")
                 || path.equals("settings.costs.enabled");
@@ -1873,6 +2188,78 @@ public class YatpaCommandHandler implements CommandExecutor, TabCompleter {
         sender.sendMessage("§6§m-----------------------");
     }
 
+    private boolean migrateStorage(CommandSender sender, String target) {
+        YatpaConfig.StorageType type;
+        if (target.equalsIgnoreCase("sqlite")) {
+            type = YatpaConfig.StorageType.SQLITE;
+        } else if (target.equalsIgnoreCase("sharded")) {
+            type = YatpaConfig.StorageType.SHARDED;
+        } else {
+            sender.sendMessage(messages.get("prefix") + "§eUsage: /yatpa migrate <sqlite|sharded>");
+            return true;
+        }
+        if (dataStore.backendName().equals(type.name())) {
+            sender.sendMessage(messages.get("prefix") + "§cStorage is already using " + type.name() + ".");
+            return true;
+        }
+        String source = dataStore.backendName();
+        // Logout locations are keyed by name. The server's player cache is main-thread only, so owners are resolved
+        // here, once, for every player the server knows.
+        Map<String, UUID> owners = new HashMap<>();
+        for (OfflinePlayer known : plugin.getServer().getOfflinePlayers()) {
+            if (known.getName() != null) {
+                owners.put(known.getName().toLowerCase(), known.getUniqueId());
+            }
+        }
+        sender.sendMessage(messages.get("prefix") + "§7Copying " + source + " player data into " + type.name()
+                + " storage...");
+        plugin.getServer().getScheduler().runTaskAsynchronously(plugin, () -> {
+            String result;
+            try {
+                StorageMigrator.Result copied;
+                try (StorageBackend destination = type == YatpaConfig.StorageType.SQLITE
+                        ? new SqlStorageBackend(plugin.dataDirectory())
+                        : new ShardedYamlStorageBackend(plugin.dataDirectory(), plugin.getLogger())) {
+                    copied = dataStore.copyTo(destination, owners::get);
+                }
+                result = "§aMigrated " + copied.profiles() + " players, " + copied.homes() + " homes and "
+                        + copied.offlineLocations() + " logout locations. Set §esettings.storage.backend§a to "
+                        + "§e" + type.name() + "§a and run §e/yatpa reload§a.";
+            } catch (RuntimeException e) {
+                plugin.getLogger().log(Level.SEVERE, "Storage migration to " + type.name() + " failed", e);
+                result = "§cMigration failed: " + e.getMessage();
+            }
+            String message = messages.get("prefix") + result;
+            plugin.getServer().getScheduler().runTask(plugin, () -> sender.sendMessage(message));
+        });
+        return true;
+    }
+
+    private void showStats(CommandSender sender) {
+        sender.sendMessage("§6§m-----------------------");
+        sender.sendMessage("§e§lYATPA Stats");
+        WriteBehindWriter.FlushStats storage = dataStore.flushStats();
+        sender.sendMessage("§bstorage.backend §8= §a" + dataStore.backendName());
+        sender.sendMessage("§bstorage.cached_profiles §8= §a" + dataStore.cachedProfiles()
+                + (dataStore.lazy() ? " §7(lazy, " + dataStore.pendingEvictions() + " awaiting eviction)" : ""));
+        sender.sendMessage("§bstorage.flushes §8= §a" + storage.flushes() + " §7(failures " + storage.failures()
+                + ", pending records " + storage.pending() + ")");
+        sender.sendMessage("§bstorage.flush_ms §8= §a" + String.format(Locale.US, "last %.2f, avg %.2f, max %.2f",
+                storage.lastMillis(), storage.averageMillis(), storage.maxMillis()));
+        sender.sendMessage("§btpalog.indexed §8= §a" + teleportLog.indexedEntries() + " §7(pending writes "
+                + teleportLog.pendingWrites() + ")");
+        sender.sendMessage("§bytp.safe_search §8= §a" + safeSearches + String.format(Locale.US,
+                " §7(avg %.1f blocks probed, last %d)", safeSearches == 0 ? 0.0 : (double) safeSearchProbes / safeSearches,
+                lastSafeSearchProbes));
+        if (rtpPool != null) {
+            long taken = rtpPool.hits() + rtpPool.misses();
+            sender.sendMessage("§brtp.pool §8= §a" + rtpPool.sizes() + " §7(capacity " + rtpPool.capacity() + ")");
+            sender.sendMessage("§brtp.pool_hits §8= §a" + rtpPool.hits() + "/" + taken + String.format(Locale.US,
+                    " §7(%.1f%%)", taken == 0 ? 0.0 : rtpPool.hits() * 100.0 / taken));
+        }
+        sender.sendMessage("§6§m-----------------------");
+    }
+
     private List<String> editableConfigPaths() {
         List<String> realmKeys = List.of(
                 "settings.costs.item.back",
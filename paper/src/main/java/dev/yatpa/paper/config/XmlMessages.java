@@ -14,10 +14,26 @@ import org.w3c.dom.NodeList;
 
 public class XmlMessages {
     private final Map<String, String> messages = new HashMap<>();
-    private static final Map<String, String> BUILTIN_FALLBACKS = Map.of(
-        "teleport_disabled_dimension", "&cTeleporting is disabled in this dimension (%dimension%).",
-        "rtp_disabled_dimension", "&cRandom teleport is disabled in this dimension (%dimension%).",
-        "death_used", "&cYou already used /tpaback for your last death. Die again to refresh it."
+    private static final Map<String, String> BUILTIN_FALLBACKS = Map.ofEntries(
+        Map.entry("teleport_disabled_dimension", "&cTeleporting is disabled in this dimension (%dimension%)."),
+        Map.entry("rtp_disabled_dimension", "&cRandom teleport is disabled in this dimension (%dimension%)."),
+        Map.entry("death_used", "&cYou already used /tpaback for your last death. Die again to refresh it."),
+        Map.entry("rtp_searching", "&7Searching for a safe location..."),
+        Map.entry("rtp_timeout", "&cCould not find a safe location in time. Please try again."),
+        Map.entry("rtp_failed", "&cRandom teleport failed. Please try again."),
+        Map.entry("request_none_from", "&cYou have no pending teleport request from %player%."),
+        Map.entry("request_sender_left", "&c%player% went offline; their teleport request was withdrawn."),
+        Map.entry("request_inbox_full", "&c%target% has too many pending requests. Try again later."),
+        Map.entry("requests_accepted", "&aAccepted %accepted% of %total% request(s): %offline% offline, "
+                + "%unpaid% could not pay, %blocked% blocked, %skipped% /tpahere left pending."),
+        Map.entry("requests_denied", "&cDenied %count% teleport request(s)."),
+        Map.entry("request_accept_receiver_left", "&c%target% went offline before your teleport could start."),
+        Map.entry("request_accept_failed", "&c%target% accepted your request, but your teleport could not start."),
+        Map.entry("player_data_unavailable", "&cPlayer data could not be loaded. Please try again."),
+        Map.entry("usage_tpparty", "&eUsage: /tpparty <target|x y z [realm]>"),
+        Map.entry("group_teleport_started", "&7Moving %count% players..."),
+        Map.entry("group_teleport_done", "&aGroup teleport finished: %arrived% of %total% players arrived."),
+        Map.entry("group_teleport_empty", "&cNo players to move.")
     );
 
     public void load(File file) {
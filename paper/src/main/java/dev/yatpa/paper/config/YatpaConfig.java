@@ -1,6 +1,6 @@
 package dev.yatpa.paper.config;
 
-import dev.yatpa.paper.data.TeleportKind;
+import dev.yatpa.core.data.TeleportKind;
 import java.util.EnumMap;
 import java.util.HashSet;
 import java.util.Locale;
@@ -24,6 +24,12 @@ public class YatpaConfig {
         CURRENCY
     }
 
+    public enum StorageType {
+        YAML,
+        SQLITE,
+        SHARDED
+    }
+
     private final int maxHomesDefault;
     private final int requestTimeoutSeconds;
     private final int requestCooldownSeconds;
@@ -45,6 +51,7 @@ public class YatpaConfig {
     private final boolean rtpEnabled;
     private final boolean tpabackEnabled;
     private final boolean rtpToOverworld;
+    private final boolean rtpCenterOnSpawn;
     private final String overworldName;
     private final boolean costsEnabled;
     private final CostMode costMode;
@@ -69,6 +76,26 @@ public class YatpaConfig {
     private final Double spawnYaw;
     private final Double spawnPitch;
     private final String spawnWorld;
+    private final StorageType storageType;
+    private final int storageFlushIntervalSeconds;
+    private final boolean storageLazyLoading;
+    private final int storageEvictAfterMinutes;
+    private final boolean storageBinarySnapshot;
+    private final int tpalogIndexedEntries;
+    private final int tpalogSegmentKb;
+    private final int tpalogRetentionDays;
+    private final int tpalogMaxTotalMb;
+    private final int rtpSearchAttempts;
+    private final int rtpSearchTimeoutSeconds;
+    private final boolean rtpPoolEnabled;
+    private final int rtpPoolSize;
+    private final int rtpPoolLowWatermark;
+    private final int rtpPoolFillIntervalTicks;
+    private final int requestInboxSize;
+    private final int bulkAcceptPerTick;
+    private final int groupTeleportMaxPerTick;
+    private final int groupTeleportTickBudgetMs;
+    private final int partyRadius;
 
     private YatpaConfig(
             int maxHomesDefault,
@@ -91,6 +118,7 @@ public class YatpaConfig {
             boolean tpabackEnabled,
             boolean costsEnabled,
             boolean rtpToOverworld,
+            boolean rtpCenterOnSpawn,
             String overworldName,
             CostMode costMode,
             Material costItem,
@@ -115,7 +143,27 @@ public class YatpaConfig {
             Double spawnZ,
             Double spawnYaw,
             Double spawnPitch,
-            String spawnWorld) {
+            String spawnWorld,
+            StorageType storageType,
+            int storageFlushIntervalSeconds,
+            boolean storageLazyLoading,
+            int storageEvictAfterMinutes,
+            boolean storageBinarySnapshot,
+            int tpalogIndexedEntries,
+            int tpalogSegmentKb,
+            int tpalogRetentionDays,
+            int tpalogMaxTotalMb,
+            int rtpSearchAttempts,
+            int rtpSearchTimeoutSeconds,
+            boolean rtpPoolEnabled,
+            int rtpPoolSize,
+            int rtpPoolLowWatermark,
+            int rtpPoolFillIntervalTicks,
+            int requestInboxSize,
+            int bulkAcceptPerTick,
+            int groupTeleportMaxPerTick,
+            int groupTeleportTickBudgetMs,
+            int partyRadius) {
         this.maxHomesDefault = maxHomesDefault;
         this.requestTimeoutSeconds = requestTimeoutSeconds;
         this.requestCooldownSeconds = requestCooldownSeconds;
@@ -135,6 +183,7 @@ public class YatpaConfig {
         this.rtpEnabled = rtpEnabled;
         this.tpabackEnabled = tpabackEnabled;
         this.rtpToOverworld = rtpToOverworld;
+        this.rtpCenterOnSpawn = rtpCenterOnSpawn;
         this.overworldName = overworldName;
         this.costsEnabled = costsEnabled;
         this.costMode = costMode;
@@ -162,6 +211,26 @@ public class YatpaConfig {
         this.spawnYaw = spawnYaw;
         this.spawnPitch = spawnPitch;
         this.spawnWorld = spawnWorld;
+        this.storageType = storageType;
+        this.storageFlushIntervalSeconds = storageFlushIntervalSeconds;
+        this.storageLazyLoading = storageLazyLoading;
+        this.storageEvictAfterMinutes = storageEvictAfterMinutes;
+        this.storageBinarySnapshot = storageBinarySnapshot;
+        this.tpalogIndexedEntries = tpalogIndexedEntries;
+        this.tpalogSegmentKb = tpalogSegmentKb;
+        this.tpalogRetentionDays = tpalogRetentionDays;
+        this.tpalogMaxTotalMb = tpalogMaxTotalMb;
+        this.rtpSearchAttempts = rtpSearchAttempts;
+        this.rtpSearchTimeoutSeconds = rtpSearchTimeoutSeconds;
+        this.rtpPoolEnabled = rtpPoolEnabled;
+        this.rtpPoolSize = rtpPoolSize;
+        this.rtpPoolLowWatermark = rtpPoolLowWatermark;
+        this.rtpPoolFillIntervalTicks = rtpPoolFillIntervalTicks;
+        this.requestInboxSize = requestInboxSize;
+        this.bulkAcceptPerTick = bulkAcceptPerTick;
+        this.groupTeleportMaxPerTick = groupTeleportMaxPerTick;
+        this.groupTeleportTickBudgetMs = groupTeleportTickBudgetMs;
+        this.partyRadius = partyRadius;
     }
 
     public static YatpaConfig from(FileConfiguration config) {
@@ -295,6 +364,7 @@ public class YatpaConfig {
                 config.getBoolean("settings.features.tpaback", true),
                 config.getBoolean("settings.costs.enabled", false),
                 config.getBoolean("settings.rtp.rtp_to_overworld", false),
+                config.getBoolean("settings.rtp.center_on_spawn", false),
                 config.getString("settings.rtp.overworld_name", "world"),
                 parseCostMode(config.getString("settings.costs.mode", "NONE")),
                 parseMaterial(config.getString("settings.costs.item.material", "ENDER_PEARL")),
@@ -319,7 +389,27 @@ public class YatpaConfig {
                 config.getDouble("settings.spawn.z", 0),
                 config.getDouble("settings.spawn.yaw", 0),
                 config.getDouble("settings.spawn.pitch", 0),
-                config.getString("settings.spawn.world", "world"));
+                config.getString("settings.spawn.world", "world"),
+                parseStorageType(config.getString("settings.storage.backend", "YAML")),
+                config.getInt("settings.storage.flush_interval_seconds", 5),
+                config.getBoolean("settings.storage.lazy_loading", false),
+                config.getInt("settings.storage.evict_after_minutes", 10),
+                config.getBoolean("settings.storage.binary_snapshot", false),
+                config.getInt("settings.tpalog.indexed_entries", 50000),
+                config.getInt("settings.tpalog.segment_kb", 1024),
+                config.getInt("settings.tpalog.retention_days", 30),
+                config.getInt("settings.tpalog.max_total_mb", 64),
+                config.getInt("settings.rtp.search_attempts", 32),
+                config.getInt("settings.rtp.search_timeout_seconds", 10),
+                config.getBoolean("settings.rtp.pool.enabled", true),
+                config.getInt("settings.rtp.pool.size", 32),
+                config.getInt("settings.rtp.pool.low_watermark", 8),
+                config.getInt("settings.rtp.pool.fill_interval_ticks", 20),
+                config.getInt("settings.request_inbox_size", 10),
+                config.getInt("settings.bulk_accept_per_tick", 5),
+                config.getInt("settings.group_teleport.max_per_tick", 10),
+                config.getInt("settings.group_teleport.tick_budget_ms", 2),
+                config.getInt("settings.group_teleport.party_radius", 16));
     }
 
     private static Set<String> parseDimensionRestrictions(FileConfiguration config, String rootPath) {
@@ -386,7 +476,7 @@ public class YatpaConfig {
     public int xpCost(TeleportKind kind, org.bukkit.World world) {
         if (world == null)
             return xpCost(kind);
-        if (kind == dev.yatpa.paper.data.TeleportKind.RTP) {
+        if (kind == dev.yatpa.core.data.TeleportKind.RTP) {
             String env = switch (world.getEnvironment()) {
                 case NORMAL -> "overworld";
                 case NETHER -> "nether";
@@ -407,7 +497,7 @@ public class YatpaConfig {
     public int itemCost(TeleportKind kind, org.bukkit.World world) {
         if (world == null)
             return itemCost(kind);
-        if (kind == dev.yatpa.paper.data.TeleportKind.RTP) {
+        if (kind == dev.yatpa.core.data.TeleportKind.RTP) {
             String env = switch (world.getEnvironment()) {
                 case NORMAL -> "overworld";
                 case NETHER -> "nether";
@@ -428,7 +518,7 @@ public class YatpaConfig {
     public double currencyCost(TeleportKind kind, org.bukkit.World world) {
         if (world == null)
             return currencyCost(kind);
-        if (kind == dev.yatpa.paper.data.TeleportKind.RTP) {
+        if (kind == dev.yatpa.core.data.TeleportKind.RTP) {
             String env = switch (world.getEnvironment()) {
                 case NORMAL -> "overworld";
                 case NETHER -> "nether";
@@ -478,6 +568,14 @@ public class YatpaConfig {
         }
     }
 
+    private static StorageType parseStorageType(String type) {
+        try {
+            return StorageType.valueOf(type.toUpperCase());
+        } catch (IllegalArgumentException ex) {
+            return StorageType.YAML;
+        }
+    }
+
     private static Material parseMaterial(String material) {
         try {
             return Material.valueOf(material.toUpperCase());
@@ -598,6 +696,10 @@ public class YatpaConfig {
         return rtpToOverworld;
     }
 
+    public boolean rtpCenterOnSpawn() {
+        return rtpCenterOnSpawn;
+    }
+
     public String overworldName() {
         return overworldName;
     }
@@ -657,4 +759,84 @@ public class YatpaConfig {
     public String spawnWorld() {
         return spawnWorld;
     }
+
+    public StorageType storageType() {
+        return storageType;
+    }
+
+    public int storageFlushIntervalSeconds() {
+        return storageFlushIntervalSeconds;
+    }
+
+    public boolean storageLazyLoading() {
+        return storageLazyLoading;
+    }
+
+    public int storageEvictAfterMinutes() {
+        return storageEvictAfterMinutes;
+    }
+
+    public boolean storageBinarySnapshot() {
+        return storageBinarySnapshot;
+    }
+
+    public int tpalogIndexedEntries() {
+        return tpalogIndexedEntries;
+    }
+
+    public int tpalogSegmentKb() {
+        return tpalogSegmentKb;
+    }
+
+    public int tpalogRetentionDays() {
+        return tpalogRetentionDays;
+    }
+
+    public int tpalogMaxTotalMb() {
+        return tpalogMaxTotalMb;
+    }
+
+    public int rtpSearchAttempts() {
+        return rtpSearchAttempts;
+    }
+
+    public int rtpSearchTimeoutSeconds() {
+        return rtpSearchTimeoutSeconds;
+    }
+
+    public boolean rtpPoolEnabled() {
+        return rtpPoolEnabled;
+    }
+
+    public int rtpPoolSize() {
+        return rtpPoolSize;
+    }
+
+    public int rtpPoolLowWatermark() {
+        return rtpPoolLowWatermark;
+    }
+
+    public int rtpPoolFillIntervalTicks() {
+        return rtpPoolFillIntervalTicks;
+    }
+
+    public int requestInboxSize() {
+        return requestInboxSize;
+    }
+
+    public int bulkAcceptPerTick() {
+        return bulkAcceptPerTick;
+    }
+
+    public int groupTeleportMaxPerTick() {
+        return groupTeleportMaxPerTick;
+    }
+
+    public int groupTeleportTickBudgetMs() {
+        return groupTeleportTickBudgetMs;
+    }
+
+    public int partyRadius() {
+        return partyRadius;
+    }
 }
@@ -0,0 +1,134 @@
+package dev.yatpa.paper.data;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+// Fields are replaced wholesale on write so readers (and the background flusher) never see a half-applied change.
+public final class PlayerProfile {
+    private final UUID uuid;
+    private volatile Boolean accepting;
+    private volatile Integer homeLimit;
+    private volatile String defaultHome;
+    private volatile Set<UUID> blocked = Set.of();
+    private volatile Map<String, HomeLocation> homes = Map.of();
+    private volatile List<String> homeNames = List.of();
+    private volatile HomeLocation deathLocation;
+    private volatile boolean deathRecorded;
+    private volatile boolean deathUsed;
+
+    public PlayerProfile(UUID uuid) {
+        this.uuid = uuid;
+    }
+
+    public UUID uuid() {
+        return uuid;
+    }
+
+    public Boolean accepting() {
+        return accepting;
+    }
+
+    public synchronized void setAccepting(Boolean accepting) {
+        this.accepting = accepting;
+    }
+
+    public Integer homeLimit() {
+        return homeLimit;
+    }
+
+    public synchronized void setHomeLimit(Integer homeLimit) {
+        this.homeLimit = homeLimit;
+    }
+
+    public String defaultHome() {
+        return defaultHome;
+    }
+
+    public synchronized void setDefaultHome(String defaultHome) {
+        this.defaultHome = defaultHome;
+    }
+
+    public Set<UUID> blocked() {
+        return blocked;
+    }
+
+    public synchronized void setBlocked(Set<UUID> blocked) {
+        this.blocked = Set.copyOf(blocked);
+    }
+
+    public synchronized void block(UUID target) {
+        Set<UUID> next = new HashSet<>(blocked);
+        next.add(target);
+        this.blocked = Set.copyOf(next);
+    }
+
+    public synchronized void unblock(UUID target) {
+        Set<UUID> next = new HashSet<>(blocked);
+        next.remove(target);
+        this.blocked = Set.copyOf(next);
+    }
+
+    public Map<String, HomeLocation> homes() {
+        return homes;
+    }
+
+    public List<String> homeNames() {
+        return homeNames;
+    }
+
+    public HomeLocation home(String name) {
+        return homes.get(name);
+    }
+
+    public synchronized void setHome(String name, HomeLocation home) {
+        Map<String, HomeLocation> next = new LinkedHashMap<>(homes);
+        next.put(name, home);
+        replaceHomes(next);
+    }
+
+    public synchronized boolean deleteHome(String name) {
+        if (!homes.containsKey(name)) {
+            return false;
+        }
+        Map<String, HomeLocation> next = new LinkedHashMap<>(homes);
+        next.remove(name);
+        replaceHomes(next);
+        return true;
+    }
+
+    public synchronized void setHomes(Map<String, HomeLocation> homes) {
+        replaceHomes(new LinkedHashMap<>(homes));
+    }
+
+    private void replaceHomes(Map<String, HomeLocation> next) {
+        this.homes = Collections.unmodifiableMap(next);
+        this.homeNames = List.copyOf(next.keySet());
+    }
+
+    public HomeLocation deathLocation() {
+        return deathLocation;
+    }
+
+    public boolean deathRecorded() {
+        return deathRecorded;
+    }
+
+    public boolean deathUsed() {
+        return deathUsed;
+    }
+
+    public synchronized void setDeath(HomeLocation location, boolean used) {
+        this.deathLocation = location;
+        this.deathUsed = used;
+        this.deathRecorded = true;
+    }
+
+    public boolean hasPlayerData() {
+        return accepting != null || homeLimit != null || defaultHome != null || !blocked.isEmpty();
+    }
+}
@@ -257,6 +257,7 @@ public class SettingsGui implements Listener {
                 || path.startsWith("settings.dimension_restrictions.disable_rtp.")
                 || path.startsWith("settings.dimension_restrictions.disable_teleport.")
                 || path.equals("settings.rtp.rtp_to_overworld")
+                || path.equals("settings.rtp.center_on_spawn")
                 || path.equals("settings.cancel_on_move")
                 || path.equals("settings.cancel_on_damage")
                 || path.equals("settings.costs.enabled")
@@ -1,22 +1,48 @@
 package dev.yatpa.paper.listener;
 
+import dev.yatpa.core.data.TeleportRequest;
+import dev.yatpa.core.service.RequestService;
+import dev.yatpa.paper.config.XmlMessages;
 import dev.yatpa.paper.service.DataStore;
 import dev.yatpa.paper.service.TeleportService;
+import java.util.Map;
+import org.bukkit.Bukkit;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
 import org.bukkit.event.entity.EntityDamageEvent;
 import org.bukkit.event.entity.PlayerDeathEvent;
+import org.bukkit.event.player.AsyncPlayerPreLoginEvent;
+import org.bukkit.event.player.PlayerJoinEvent;
 import org.bukkit.event.player.PlayerMoveEvent;
 import org.bukkit.event.player.PlayerQuitEvent;
 
 public class PlayerEventListener implements Listener {
     private final TeleportService teleports;
     private final DataStore dataStore;
+    private final RequestService requests;
+    private final XmlMessages messages;
 
-    public PlayerEventListener(TeleportService teleports, DataStore dataStore) {
+    public PlayerEventListener(TeleportService teleports, DataStore dataStore, RequestService requests,
+            XmlMessages messages) {
         this.teleports = teleports;
         this.dataStore = dataStore;
+        this.requests = requests;
+        this.messages = messages;
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPreLogin(AsyncPlayerPreLoginEvent event) {
+        if (event.getLoginResult() == AsyncPlayerPreLoginEvent.Result.ALLOWED) {
+            dataStore.preload(event.getUniqueId());
+        }
+    }
+
+    // Covers joins whose pre-login preload did not run; the read stays off the main thread.
+    @EventHandler
+    public void onJoin(PlayerJoinEvent event) {
+        dataStore.loaded(event.getPlayer().getUniqueId());
     }
 
     @EventHandler
@@ -35,7 +61,15 @@ public class PlayerEventListener implements Listener {
     public void onQuit(PlayerQuitEvent event) {
         Player player = event.getPlayer();
         teleports.cancel(player.getUniqueId(), "");
-        dataStore.setOfflineLocation(player.getName(), player.getLocation());
+        for (TeleportRequest withdrawn : requests.removeFromSender(player.getUniqueId())) {
+            Player receiver = Bukkit.getPlayer(withdrawn.receiver());
+            if (receiver != null) {
+                receiver.sendMessage(messages.get("prefix") + messages.format("request_sender_left",
+                        Map.of("player", player.getName())));
+            }
+        }
+        dataStore.setOfflineLocation(player.getUniqueId(), player.getName(), player.getLocation());
+        dataStore.scheduleEviction(player.getUniqueId());
     }
 
     @EventHandler
@@ -1,20 +1,36 @@
 package dev.yatpa.paper.service;
 
-import dev.yatpa.paper.data.TeleportKind;
+import dev.yatpa.core.data.TeleportKind;
 import dev.yatpa.paper.config.YatpaConfig;
 import java.util.Arrays;
 import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
 import java.util.stream.Collectors;
 import net.milkbowl.vault.economy.Economy;
 import net.milkbowl.vault.economy.EconomyResponse;
+import org.bukkit.Bukkit;
 import org.bukkit.entity.Player;
 import org.bukkit.inventory.ItemStack;
 
 public class CostService {
-    public record ChargeResult(boolean success, String required, String paid) {
-        public static ChargeResult ok() { return new ChargeResult(true, "", ""); }
-        public static ChargeResult okPaid(String paid) { return new ChargeResult(true, "", paid); }
-        public static ChargeResult fail(String required) { return new ChargeResult(false, required, ""); }
+    // Gives a deducted cost back to the payer, looked up again by UUID on the main thread so a relog in between does not
+    // leave it on a stale Player. Returns false when it could not be given back (XP and items need the payer online).
+    @FunctionalInterface
+    public interface Refund {
+        boolean to(UUID payerId);
+    }
+
+    // refund gives back exactly what a deducting charge took; it does nothing for previews and free teleports.
+    public record ChargeResult(boolean success, String required, String paid, Refund refund) {
+        private static final Refund NO_REFUND = payerId -> true;
+
+        public static ChargeResult ok() { return new ChargeResult(true, "", "", NO_REFUND); }
+        public static ChargeResult okPaid(String paid) { return new ChargeResult(true, "", paid, NO_REFUND); }
+        public static ChargeResult okPaid(String paid, Refund refund) {
+            return new ChargeResult(true, "", paid, refund);
+        }
+        public static ChargeResult fail(String required) { return new ChargeResult(false, required, "", NO_REFUND); }
     }
 
     private final YatpaConfig config;
@@ -45,10 +61,19 @@ public class CostService {
             if (player.getLevel() < cost) {
                 return ChargeResult.fail(cost + " XP level" + (cost == 1 ? "" : "s"));
             }
+            String paid = cost + " XP level" + (cost == 1 ? "" : "s");
             if (deduct) {
                 player.setLevel(player.getLevel() - cost);
+                return ChargeResult.okPaid(paid, payerId -> {
+                    Player payer = Bukkit.getPlayer(payerId);
+                    if (payer == null) {
+                        return false;
+                    }
+                    payer.setLevel(payer.getLevel() + cost);
+                    return true;
+                });
             }
-            return ChargeResult.okPaid(cost + " XP level" + (cost == 1 ? "" : "s"));
+            return ChargeResult.okPaid(paid);
         }
         if (config.costMode() == YatpaConfig.CostMode.ITEM) {
             int amount = config.itemCost(kind, player.getWorld());
@@ -69,10 +94,13 @@ public class CostService {
             if (remaining > 0) {
                 return ChargeResult.fail(amount + " " + itemDisplayName(config.costItem().name()));
             }
+            String paid = amount + " " + itemDisplayName(config.costItem().name());
             if (deduct) {
-                player.getInventory().removeItem(new ItemStack(config.costItem(), amount));
+                ItemStack taken = new ItemStack(config.costItem(), amount);
+                player.getInventory().removeItem(taken.clone());
+                return ChargeResult.okPaid(paid, payerId -> refundItems(Bukkit.getPlayer(payerId), taken));
             }
-            return ChargeResult.okPaid(amount + " " + itemDisplayName(config.costItem().name()));
+            return ChargeResult.okPaid(paid);
         }
         if (config.costMode() == YatpaConfig.CostMode.CURRENCY) {
             double amount = config.currencyCost(kind, player.getWorld());
@@ -90,12 +118,27 @@ public class CostService {
                 if (!response.transactionSuccess()) {
                     return ChargeResult.fail(formatCurrency(amount));
                 }
+                // Deposits work for offline players too.
+                return ChargeResult.okPaid(formatCurrency(amount),
+                        payerId -> economy.depositPlayer(Bukkit.getOfflinePlayer(payerId), amount).transactionSuccess());
             }
             return ChargeResult.okPaid(formatCurrency(amount));
         }
         return ChargeResult.ok();
     }
 
+    // Whatever no longer fits (the payer picked something up meanwhile) is dropped at their feet.
+    private static boolean refundItems(Player player, ItemStack taken) {
+        if (player == null) {
+            return false;
+        }
+        Map<Integer, ItemStack> leftover = player.getInventory().addItem(taken.clone());
+        for (ItemStack stack : leftover.values()) {
+            player.getWorld().dropItemNaturally(player.getLocation(), stack);
+        }
+        return true;
+    }
+
     private String itemDisplayName(String material) {
         String singular = Arrays.stream(material.toLowerCase(Locale.ROOT).split("_"))
             .map(part -> Character.toUpperCase(part.charAt(0)) + part.substring(1))
@@ -1,83 +1,214 @@
 package dev.yatpa.paper.service;
 
 import dev.yatpa.paper.data.HomeLocation;
-import java.io.File;
-import java.io.IOException;
+import dev.yatpa.paper.data.PlayerProfile;
+import dev.yatpa.paper.storage.StorageBackend;
+import dev.yatpa.paper.storage.StorageBackend.Section;
+import dev.yatpa.paper.storage.StorageMigrator;
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeSet;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 import org.bukkit.Bukkit;
 import org.bukkit.Location;
 import org.bukkit.World;
-import org.bukkit.configuration.file.YamlConfiguration;
 
 public class DataStore {
-    private final File playersFile;
-    private final File homesFile;
-    private final File offlineFile;
-    private YamlConfiguration players;
-    private YamlConfiguration homes;
-    private YamlConfiguration offline;
-
-    public DataStore(File dataFolder) {
-        File db = new File(dataFolder, "data");
-        if (!db.exists() && !db.mkdirs()) {
-            throw new IllegalStateException("Could not create data directory");
-        }
-        this.playersFile = new File(db, "players.yml");
-        this.homesFile = new File(db, "homes.yml");
-        this.offlineFile = new File(db, "offline.yml");
+    private static final int OFFLINE_NAME_SUGGESTIONS = 50;
+
+    private final StorageBackend backend;
+    private final Logger logger;
+    private final WriteBehindWriter writer;
+    private final Map<UUID, PlayerProfile> profiles = new ConcurrentHashMap<>();
+    private final Map<String, HomeLocation> offlineByName = new ConcurrentHashMap<>();
+    private final Map<UUID, Long> evictAt = new ConcurrentHashMap<>();
+    private final Map<UUID, CompletableFuture<Void>> loading = new ConcurrentHashMap<>();
+    private final boolean lazy;
+    private final long evictAfterMillis;
+    private final Executor loader;
+    private final Executor mainThread;
+
+    // The loader runs storage reads for lazy loads and mainThread applies changes that had to wait for one; the plugin
+    // passes async and sync scheduler tasks.
+    public DataStore(StorageBackend backend, Logger logger, boolean lazy, long evictAfterMillis, Executor loader,
+            Executor mainThread) {
+        this.backend = backend;
+        this.logger = logger;
+        this.writer = new WriteBehindWriter(backend, logger);
+        this.lazy = lazy;
+        this.evictAfterMillis = evictAfterMillis;
+        this.loader = loader;
+        this.mainThread = mainThread;
         load();
     }
 
     public final void load() {
-        this.players = YamlConfiguration.loadConfiguration(playersFile);
-        this.homes = YamlConfiguration.loadConfiguration(homesFile);
-        this.offline = YamlConfiguration.loadConfiguration(offlineFile);
+        profiles.clear();
+        offlineByName.clear();
+        evictAt.clear();
+        if (!lazy) {
+            backend.loadAll(profiles, offlineByName);
+        }
+    }
+
+    public boolean lazy() {
+        return lazy;
+    }
+
+    // Safe to call off the main thread (async pre-login), so the join itself never waits on storage.
+    public void preload(UUID uuid) {
+        if (!lazy) {
+            return;
+        }
+        evictAt.remove(uuid);
+        profiles.computeIfAbsent(uuid, this::fetch);
+    }
+
+    public boolean isLoaded(UUID uuid) {
+        return !lazy || profiles.containsKey(uuid);
+    }
+
+    // Completes once the profile is in memory. The read runs on the loader, so the future may complete off the main
+    // thread; concurrent calls for the same player share one read.
+    public CompletableFuture<Void> loaded(UUID uuid) {
+        if (isLoaded(uuid)) {
+            return CompletableFuture.completedFuture(null);
+        }
+        CompletableFuture<Void> created = new CompletableFuture<>();
+        CompletableFuture<Void> running = loading.putIfAbsent(uuid, created);
+        if (running != null) {
+            return running;
+        }
+        loader.execute(() -> {
+            try {
+                profiles.computeIfAbsent(uuid, this::fetch);
+                loading.remove(uuid, created);
+                created.complete(null);
+            } catch (RuntimeException e) {
+                loading.remove(uuid, created);
+                created.completeExceptionally(e);
+            }
+        });
+        return created;
+    }
+
+    public void scheduleEviction(UUID uuid) {
+        if (lazy) {
+            evictAt.put(uuid, System.currentTimeMillis() + evictAfterMillis);
+        }
+    }
+
+    public void evictIdle(Predicate<UUID> online) {
+        long now = System.currentTimeMillis();
+        for (UUID uuid : List.copyOf(profiles.keySet())) {
+            if (online.test(uuid)) {
+                evictAt.remove(uuid);
+                continue;
+            }
+            long deadline = evictAt.computeIfAbsent(uuid, k -> now + evictAfterMillis);
+            if (deadline <= now && !writer.isPending(uuid)) {
+                profiles.remove(uuid);
+                evictAt.remove(uuid);
+            }
+        }
+        // Logout locations are only kept until they are saved; later lookups read them back from storage.
+        offlineByName.keySet().removeIf(name -> !writer.isOfflinePending(name));
+    }
+
+    public int pendingEvictions() {
+        return evictAt.size();
+    }
+
+    private PlayerProfile fetch(UUID uuid) {
+        PlayerProfile stored = backend.loadProfile(uuid);
+        return stored == null ? new PlayerProfile(uuid) : stored;
     }
 
     public void saveAll() {
-        save(players, playersFile);
-        save(homes, homesFile);
-        save(offline, offlineFile);
+        for (PlayerProfile profile : profiles.values()) {
+            for (Section section : Section.values()) {
+                writer.markDirty(profile, section);
+            }
+        }
+        offlineByName.forEach((name, location) -> writer.markOfflineDirty(name, null, location));
+        flush();
     }
 
-    private void save(YamlConfiguration cfg, File file) {
-        try {
-            cfg.save(file);
-        } catch (IOException e) {
-            throw new IllegalStateException("Failed saving " + file.getName(), e);
+    public void flush() {
+        writer.flush();
+    }
+
+    public void close() {
+        writer.flush();
+        backend.close();
+    }
+
+    // Copies what the live backend holds, after flushing pending changes, so a migration never reads files the live
+    // backend has stopped writing. Backends are synchronized, so this may run off the main thread.
+    public StorageMigrator.Result copyTo(StorageBackend target, Function<String, UUID> owners) {
+        writer.flush();
+        return StorageMigrator.copy(backend, target, owners);
+    }
+
+    public String backendName() {
+        return backend.name();
+    }
+
+    public WriteBehindWriter.FlushStats flushStats() {
+        return writer.stats();
+    }
+
+    public int cachedProfiles() {
+        return profiles.size();
+    }
+
+    // Changes never read storage on the caller's thread. If a lazy profile is not in memory the change waits for
+    // loaded() and is applied on the main thread, on top of what storage holds.
+    private void edit(UUID uuid, Section section, Consumer<PlayerProfile> change) {
+        PlayerProfile profile = lazy ? profiles.get(uuid) : profiles.computeIfAbsent(uuid, PlayerProfile::new);
+        if (profile == null) {
+            loaded(uuid).whenComplete((ignored, error) -> {
+                if (error != null) {
+                    logger.log(Level.WARNING, "Dropped a change for " + uuid + ": its data could not be loaded", error);
+                    return;
+                }
+                mainThread.execute(() -> edit(uuid, section, change));
+            });
+            return;
         }
+        change.accept(profile);
+        writer.markDirty(profile, section);
     }
 
-    private String playerPath(UUID uuid) {
-        return "players." + uuid;
+    // Lookups only read memory. With lazy loading, callers that may ask about a player who is not loaded wait for
+    // loaded() first (online players are loaded at login); until then the player reads as having no data.
+    private PlayerProfile cached(UUID uuid) {
+        return profiles.get(uuid);
     }
 
     public boolean acceptingRequests(UUID uuid) {
-        return players.getBoolean(playerPath(uuid) + ".accepting", true);
+        PlayerProfile profile = cached(uuid);
+        Boolean accepting = profile == null ? null : profile.accepting();
+        return accepting == null || accepting;
     }
 
     public void setAcceptingRequests(UUID uuid, boolean accepting) {
-        players.set(playerPath(uuid) + ".accepting", accepting);
-        save(players, playersFile);
+        edit(uuid, Section.PREFS, profile -> profile.setAccepting(accepting));
     }
 
     public Set<UUID> blocked(UUID uuid) {
-        List<String> raw = players.getStringList(playerPath(uuid) + ".blocked");
-        Set<UUID> out = new HashSet<>();
-        for (String value : raw) {
-            try {
-                out.add(UUID.fromString(value));
-            } catch (IllegalArgumentException ignored) {
-            }
-        }
-        return out;
+        PlayerProfile profile = cached(uuid);
+        return profile == null ? Set.of() : profile.blocked();
     }
 
     public boolean isBlocked(UUID owner, UUID other) {
@@ -85,68 +216,40 @@ public class DataStore {
     }
 
     public void block(UUID owner, UUID target) {
-        Set<UUID> blocked = blocked(owner);
-        blocked.add(target);
-        storeBlocked(owner, blocked);
+        edit(owner, Section.PREFS, profile -> profile.block(target));
     }
 
     public void unblock(UUID owner, UUID target) {
-        Set<UUID> blocked = blocked(owner);
-        blocked.remove(target);
-        storeBlocked(owner, blocked);
-    }
-
-    private void storeBlocked(UUID owner, Set<UUID> blocked) {
-        List<String> list = blocked.stream().map(UUID::toString).toList();
-        players.set(playerPath(owner) + ".blocked", list);
-        save(players, playersFile);
+        edit(owner, Section.PREFS, profile -> profile.unblock(target));
     }
 
     public int homeLimit(UUID uuid, int defaultLimit) {
-        return players.getInt(playerPath(uuid) + ".home_limit", defaultLimit);
+        PlayerProfile profile = cached(uuid);
+        Integer limit = profile == null ? null : profile.homeLimit();
+        return limit == null ? defaultLimit : limit;
     }
 
     public void setHomeLimit(UUID uuid, int limit) {
-        players.set(playerPath(uuid) + ".home_limit", limit);
-        save(players, playersFile);
+        edit(uuid, Section.PREFS, profile -> profile.setHomeLimit(limit));
     }
 
     public String defaultHome(UUID uuid) {
-        return players.getString(playerPath(uuid) + ".default_home");
+        PlayerProfile profile = cached(uuid);
+        return profile == null ? null : profile.defaultHome();
     }
 
     public boolean hasDefaultHome(UUID uuid) {
-        return players.contains(playerPath(uuid) + ".default_home");
+        return defaultHome(uuid) != null;
     }
 
     public void setDefaultHome(UUID uuid, String homeName) {
-        players.set(playerPath(uuid) + ".default_home", homeName.toLowerCase());
-        save(players, playersFile);
+        String key = homeName.toLowerCase();
+        edit(uuid, Section.PREFS, profile -> profile.setDefaultHome(key));
     }
 
     public Map<String, HomeLocation> homes(UUID uuid) {
-        String base = "players." + uuid + ".homes";
-        if (!homes.isConfigurationSection(base)) {
-            return Collections.emptyMap();
-        }
-
-        Map<String, HomeLocation> out = new HashMap<>();
-        for (String key : homes.getConfigurationSection(base).getKeys(false)) {
-            String path = base + "." + key;
-            String world = homes.getString(path + ".world");
-            if (world == null) {
-                continue;
-            }
-            out.put(key.toLowerCase(), new HomeLocation(
-                world,
-                homes.getDouble(path + ".x"),
-                homes.getDouble(path + ".y"),
-                homes.getDouble(path + ".z"),
-                (float) homes.getDouble(path + ".yaw"),
-                (float) homes.getDouble(path + ".pitch")
-            ));
-        }
-        return out;
+        PlayerProfile profile = cached(uuid);
+        return profile == null ? Map.of() : profile.homes();
     }
 
     public HomeLocation home(UUID uuid, String name) {
@@ -154,112 +257,86 @@ public class DataStore {
     }
 
     public void setHome(UUID uuid, String name, Location location) {
-        String path = "players." + uuid + ".homes." + name.toLowerCase();
+        String key = name.toLowerCase();
         HomeLocation home = HomeLocation.fromLocation(location);
-        homes.set(path + ".world", home.world());
-        homes.set(path + ".x", home.x());
-        homes.set(path + ".y", home.y());
-        homes.set(path + ".z", home.z());
-        homes.set(path + ".yaw", home.yaw());
-        homes.set(path + ".pitch", home.pitch());
-        save(homes, homesFile);
+        edit(uuid, Section.HOMES, profile -> profile.setHome(key, home));
     }
 
     public boolean deleteHome(UUID uuid, String name) {
-        String path = "players." + uuid + ".homes." + name.toLowerCase();
-        if (homes.get(path) == null) {
+        PlayerProfile profile = cached(uuid);
+        if (profile == null || !profile.deleteHome(name.toLowerCase())) {
             return false;
         }
-        homes.set(path, null);
-        save(homes, homesFile);
+        writer.markDirty(profile, Section.HOMES);
         return true;
     }
 
-    public void setOfflineLocation(String name, Location location) {
-        String path = "players." + name.toLowerCase();
-        offline.set(path + ".world", location.getWorld().getName());
-        offline.set(path + ".x", location.getX());
-        offline.set(path + ".y", location.getY());
-        offline.set(path + ".z", location.getZ());
-        offline.set(path + ".yaw", location.getYaw());
-        offline.set(path + ".pitch", location.getPitch());
-        save(offline, offlineFile);
+    public void setOfflineLocation(UUID uuid, String name, Location location) {
+        String key = name.toLowerCase();
+        HomeLocation offline = HomeLocation.fromLocation(location);
+        offlineByName.put(key, offline);
+        writer.markOfflineDirty(key, uuid, offline);
     }
 
     public void setDeathLocation(UUID uuid, Location location) {
-        String path = "deaths." + uuid;
-        offline.set(path + ".world", location.getWorld().getName());
-        offline.set(path + ".x", location.getX());
-        offline.set(path + ".y", location.getY());
-        offline.set(path + ".z", location.getZ());
-        offline.set(path + ".yaw", location.getYaw());
-        offline.set(path + ".pitch", location.getPitch());
-        offline.set(path + ".used", false);
-        save(offline, offlineFile);
+        HomeLocation death = HomeLocation.fromLocation(location);
+        edit(uuid, Section.LOCATIONS, profile -> profile.setDeath(death, false));
     }
 
     public void clearDeathLocation(UUID uuid) {
-        String path = "deaths." + uuid;
-        offline.set(path + ".world", null);
-        offline.set(path + ".x", null);
-        offline.set(path + ".y", null);
-        offline.set(path + ".z", null);
-        offline.set(path + ".yaw", null);
-        offline.set(path + ".pitch", null);
-        offline.set(path + ".used", true);
-        save(offline, offlineFile);
+        edit(uuid, Section.LOCATIONS, profile -> profile.setDeath(null, true));
     }
 
     public boolean deathLocationUsed(UUID uuid) {
-        return offline.getBoolean("deaths." + uuid + ".used", false);
+        PlayerProfile profile = cached(uuid);
+        return profile != null && profile.deathUsed();
     }
 
     public Location deathLocation(UUID uuid) {
-        String path = "deaths." + uuid;
-        if (offline.get(path) == null || offline.getBoolean(path + ".used", false)) {
+        PlayerProfile profile = cached(uuid);
+        if (profile == null || profile.deathUsed()) {
             return null;
         }
-        World world = Bukkit.getWorld(offline.getString(path + ".world", ""));
-        if (world == null) {
-            return null;
+        return toLocation(profile.deathLocation());
+    }
+
+    // Unsaved logout locations answer from memory; when lazy, the rest are read on the loader instead of the caller.
+    public CompletableFuture<HomeLocation> offlineLocation(String name) {
+        String key = name.toLowerCase();
+        HomeLocation location = offlineByName.get(key);
+        if (location != null || !lazy) {
+            return CompletableFuture.completedFuture(location);
         }
-        return new Location(
-            world,
-            offline.getDouble(path + ".x"),
-            offline.getDouble(path + ".y"),
-            offline.getDouble(path + ".z"),
-            (float) offline.getDouble(path + ".yaw"),
-            (float) offline.getDouble(path + ".pitch")
-        );
-    }
-
-    public Location offlineLocation(String name) {
-        String path = "players." + name.toLowerCase();
-        if (offline.get(path) == null) {
+        return CompletableFuture.supplyAsync(() -> backend.loadOfflineLocation(key), loader);
+    }
+
+    public static Location toLocation(HomeLocation location) {
+        if (location == null) {
             return null;
         }
-        World world = Bukkit.getWorld(offline.getString(path + ".world", ""));
+        World world = Bukkit.getWorld(location.world());
         if (world == null) {
             return null;
         }
-        return new Location(
-            world,
-            offline.getDouble(path + ".x"),
-            offline.getDouble(path + ".y"),
-            offline.getDouble(path + ".z"),
-            (float) offline.getDouble(path + ".yaw"),
-            (float) offline.getDouble(path + ".pitch")
-        );
+        return new Location(world, location.x(), location.y(), location.z(), location.yaw(), location.pitch());
     }
 
     public List<String> homeNames(UUID uuid) {
-        return new ArrayList<>(homes(uuid).keySet());
+        PlayerProfile profile = cached(uuid);
+        return profile == null ? List.of() : profile.homeNames();
     }
 
-    public List<String> offlineNames() {
-        if (!offline.isConfigurationSection("players")) {
-            return Collections.emptyList();
+    public List<String> offlineNames(String prefix) {
+        String key = prefix.toLowerCase();
+        Set<String> names = new TreeSet<>();
+        for (String name : offlineByName.keySet()) {
+            if (name.startsWith(key)) {
+                names.add(name);
+            }
+        }
+        if (lazy) {
+            names.addAll(backend.offlineNames(key, OFFLINE_NAME_SUGGESTIONS));
         }
-        return new ArrayList<>(offline.getConfigurationSection("players").getKeys(false));
+        return new ArrayList<>(names);
     }
 }
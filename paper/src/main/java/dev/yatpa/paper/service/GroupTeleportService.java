@@ -0,0 +1,143 @@
+package dev.yatpa.paper.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.java.JavaPlugin;
+import org.bukkit.scheduler.BukkitTask;
+
+// Moves a group of players to one destination without a tick spike. The chunks the group will land in are loaded
+// asynchronously and held first; players are then spread over safe spots on a spiral around the destination and
+// started a few per tick, within a per-tick time budget. One teleport-log entry is written per batch. Main thread only.
+public class GroupTeleportService {
+    public record Result(int requested, int arrived) {
+    }
+
+    // Spots sit on a golden-angle spiral, about SPACING blocks apart, so arrivals do not stack on one block.
+    private static final double SPACING = 1.5;
+    private static final double GOLDEN_ANGLE = Math.PI * (3 - Math.sqrt(5));
+    private static final int SPOT_SEARCH_RADIUS = 4;
+    private static final int SPOT_SEARCH_RANGE = 16;
+
+    private final JavaPlugin plugin;
+    private final TeleportService teleports;
+    private final TeleportLogService teleportLog;
+    private final int maxPerTick;
+    private final long tickBudgetNanos;
+
+    public GroupTeleportService(JavaPlugin plugin, TeleportService teleports, TeleportLogService teleportLog,
+            int maxPerTick, int tickBudgetMillis) {
+        this.plugin = plugin;
+        this.teleports = teleports;
+        this.teleportLog = teleportLog;
+        this.maxPerTick = Math.max(1, maxPerTick);
+        this.tickBudgetNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, tickBudgetMillis));
+    }
+
+    // onArrived runs for each player that lands; onDone runs once every teleport has finished or failed.
+    public void start(Player initiator, List<Player> players, Location destination, String detail,
+            Consumer<Player> onArrived, Consumer<Result> onDone) {
+        World world = destination.getWorld();
+        int reach = (int) Math.ceil(SPACING * Math.sqrt(players.size())) + SPOT_SEARCH_RADIUS;
+        List<TeleportService.ChunkTicket> held = new ArrayList<>();
+        for (int chunkX = (destination.getBlockX() - reach) >> 4; chunkX <= (destination.getBlockX() + reach) >> 4;
+                chunkX++) {
+            for (int chunkZ = (destination.getBlockZ() - reach) >> 4;
+                    chunkZ <= (destination.getBlockZ() + reach) >> 4; chunkZ++) {
+                held.add(teleports.holdChunk(world, chunkX, chunkZ));
+            }
+        }
+        Location origin = initiator.getLocation().clone();
+        CompletableFuture.allOf(held.stream().map(TeleportService.ChunkTicket::loaded)
+                .toArray(CompletableFuture<?>[]::new))
+                .thenRun(() -> new Batch(initiator.getName(), origin, players, destination, detail, held, onArrived,
+                        onDone).start());
+    }
+
+    private final class Batch {
+        private final String initiator;
+        private final Location origin;
+        private final List<Player> players;
+        private final Location destination;
+        private final String detail;
+        private final List<TeleportService.ChunkTicket> held;
+        private final Consumer<Player> onArrived;
+        private final Consumer<Result> onDone;
+        // Created once per batch so neighbouring spots share its snapshot and column caches.
+        private final SafeLocationFinder finder;
+        private final List<CompletableFuture<Boolean>> teleportsStarted = new ArrayList<>();
+        private int next;
+
+        private Batch(String initiator, Location origin, List<Player> players, Location destination, String detail,
+                List<TeleportService.ChunkTicket> held, Consumer<Player> onArrived, Consumer<Result> onDone) {
+            this.initiator = initiator;
+            this.origin = origin;
+            this.players = players;
+            this.destination = destination;
+            this.detail = detail;
+            this.held = held;
+            this.onArrived = onArrived;
+            this.onDone = onDone;
+            this.finder = new SafeLocationFinder(destination.getWorld());
+        }
+
+        private void start() {
+            plugin.getServer().getScheduler().runTaskTimer(plugin, this::tick, 0L, 1L);
+        }
+
+        // At least one player is started per tick so a tight budget cannot stall the batch.
+        private void tick(BukkitTask task) {
+            long deadline = System.nanoTime() + tickBudgetNanos;
+            for (int started = 0; started < maxPerTick && next < players.size()
+                    && (started == 0 || System.nanoTime() < deadline); started++) {
+                Player player = players.get(next);
+                Location spot = spot(next);
+                next++;
+                if (!player.isOnline()) {
+                    continue;
+                }
+                teleportsStarted.add(teleports.teleport(player, spot, from -> onArrived.accept(player)));
+            }
+            if (next < players.size()) {
+                return;
+            }
+            task.cancel();
+            CompletableFuture.allOf(teleportsStarted.toArray(new CompletableFuture<?>[0]))
+                    .whenComplete((ignored, error) -> plugin.getServer().getScheduler().runTask(plugin, this::finish));
+        }
+
+        private Location spot(int index) {
+            double radius = SPACING * Math.sqrt(index);
+            double angle = index * GOLDEN_ANGLE;
+            Location candidate = new Location(destination.getWorld(),
+                    Math.floor(destination.getX() + Math.cos(angle) * radius) + 0.5, destination.getY(),
+                    Math.floor(destination.getZ() + Math.sin(angle) * radius) + 0.5, destination.getYaw(),
+                    destination.getPitch());
+            if (finder.isSafe(candidate)) {
+                return candidate;
+            }
+            Location safe = finder.findNearest(candidate, SPOT_SEARCH_RADIUS, SPOT_SEARCH_RANGE);
+            return safe != null ? safe : candidate;
+        }
+
+        private void finish() {
+            for (TeleportService.ChunkTicket ticket : held) {
+                ticket.release();
+            }
+            int arrived = 0;
+            for (CompletableFuture<Boolean> started : teleportsStarted) {
+                if (Boolean.TRUE.equals(started.getNow(false))) {
+                    arrived++;
+                }
+            }
+            teleportLog.record("GROUP", initiator, "", detail + " players=" + players.size() + " arrived=" + arrived,
+                    origin, destination);
+            onDone.accept(new Result(players.size(), arrived));
+        }
+    }
+}
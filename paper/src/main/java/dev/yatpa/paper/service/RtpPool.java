@@ -0,0 +1,229 @@
+package dev.yatpa.paper.service;
+
+import dev.yatpa.paper.config.YatpaConfig;
+import dev.yatpa.paper.storage.AtomicFiles;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.WorldBorder;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.plugin.java.JavaPlugin;
+
+// Per-world queue of verified-safe RTP destinations, filled in the background from chunks that already exist and
+// persisted across restarts. Spots are rolled around world spawn within the world's min/max distance, the same center
+// and radius /rtp uses with settings.rtp.center_on_spawn, so the plugin only creates a pool in that mode. All methods
+// run on the main thread.
+public class RtpPool implements AutoCloseable {
+    // A spot is re-checked on a fresh snapshot before use; one that fails is dropped and the next one is tried.
+    private static final int TAKE_CHECKS = 3;
+    // Probes in flight per world; each one loads at most one already-generated chunk off the main thread.
+    private static final int FILL_PROBES = 4;
+    // Older spots, including ones restored from rtp-pool.yml, are dropped instead of re-checked.
+    private static final long SPOT_MAX_AGE_MILLIS = TimeUnit.HOURS.toMillis(12);
+
+    private record Spot(double x, double y, double z, long foundAt) {
+    }
+
+    private static final class WorldPool {
+        private final Deque<Spot> spots = new ArrayDeque<>();
+        private boolean filling;
+        private int probing;
+    }
+
+    private final JavaPlugin plugin;
+    private final YatpaConfig config;
+    private final RtpSearch search;
+    private final File file;
+    private final int capacity;
+    private final int lowWatermark;
+    private final Map<String, WorldPool> pools = new LinkedHashMap<>();
+    private long hits;
+    private long misses;
+
+    public RtpPool(JavaPlugin plugin, YatpaConfig config, RtpSearch search, File file, int capacity,
+            int lowWatermark) {
+        this.plugin = plugin;
+        this.config = config;
+        this.search = search;
+        this.file = file;
+        this.capacity = Math.max(1, capacity);
+        this.lowWatermark = Math.max(1, Math.min(this.capacity, lowWatermark));
+        load();
+    }
+
+    // Completes on the main thread with a pooled spot that is still safe, or with null (a miss) and the caller searches
+    // instead. Takes from the head of the queue; at most TAKE_CHECKS spots are re-checked before giving up.
+    public CompletableFuture<Location> take(World world, Location center, int minRadius, int maxRadius) {
+        CompletableFuture<Location> result = new CompletableFuture<>();
+        takeNext(world, center.clone(), minRadius, maxRadius, 0, result);
+        return result;
+    }
+
+    private void takeNext(World world, Location center, int minRadius, int maxRadius, int checks,
+            CompletableFuture<Location> result) {
+        Spot spot = checks < TAKE_CHECKS ? poll(world, center, minRadius, maxRadius) : null;
+        if (spot == null) {
+            misses++;
+            result.complete(null);
+            return;
+        }
+        // The chunk was generated when the spot was pooled, so this loads it off-thread without generating anything.
+        search.check(world, (int) Math.floor(spot.x()), (int) Math.floor(spot.z()), center.getYaw(), center.getPitch(),
+                false).whenComplete((found, error) -> plugin.getServer().getScheduler().runTask(plugin, () -> {
+                    if (found != null) {
+                        hits++;
+                        result.complete(found);
+                    } else {
+                        takeNext(world, center, minRadius, maxRadius, checks + 1, result);
+                    }
+                }));
+    }
+
+    // Pops spots off the head until one still fits. Every spot was rolled for the same center and radius, so only spots
+    // gone stale, left outside a shrunken border, or rolled before a spawn or distance change are dropped, each once.
+    private Spot poll(World world, Location center, int minRadius, int maxRadius) {
+        WorldPool pool = pools.get(world.getName());
+        if (pool == null) {
+            return null;
+        }
+        long minSq = (long) minRadius * minRadius;
+        long maxSq = (long) maxRadius * maxRadius;
+        long staleBefore = System.currentTimeMillis() - SPOT_MAX_AGE_MILLIS;
+        WorldBorder border = world.getWorldBorder();
+        Spot spot;
+        while ((spot = pool.spots.pollFirst()) != null) {
+            double dx = spot.x() - center.getX();
+            double dz = spot.z() - center.getZ();
+            double distanceSq = dx * dx + dz * dz;
+            if (spot.foundAt() >= staleBefore && distanceSq >= minSq && distanceSq <= maxSq
+                    && border.isInside(new Location(world, spot.x(), spot.y(), spot.z()))) {
+                return spot;
+            }
+        }
+        return null;
+    }
+
+    // Called from a repeating task: keeps up to FILL_PROBES probes in flight per world. A world starts filling when it
+    // drops below the low watermark and stops once it is full.
+    public void fill() {
+        for (World world : eligibleWorlds()) {
+            WorldPool pool = pools.computeIfAbsent(world.getName(), k -> new WorldPool());
+            if (!pool.filling && pool.spots.size() < lowWatermark) {
+                pool.filling = true;
+            }
+            if (pool.spots.size() >= capacity) {
+                pool.filling = false;
+            }
+            if (!pool.filling) {
+                continue;
+            }
+            Location center = world.getSpawnLocation();
+            while (pool.probing < FILL_PROBES && pool.spots.size() + pool.probing < capacity) {
+                pool.probing++;
+                search.probe(world, center, config.rtpMin(world), config.rtpMax(world), false)
+                        .whenComplete((found, error) -> plugin.getServer().getScheduler().runTask(plugin, () -> {
+                            pool.probing--;
+                            if (found != null && pool.spots.size() < capacity) {
+                                pool.spots.offerLast(new Spot(found.getX(), found.getY(), found.getZ(),
+                                        System.currentTimeMillis()));
+                            }
+                        }));
+            }
+        }
+    }
+
+    public Map<String, Integer> sizes() {
+        Map<String, Integer> out = new LinkedHashMap<>();
+        for (Map.Entry<String, WorldPool> entry : pools.entrySet()) {
+            out.put(entry.getKey(), entry.getValue().spots.size());
+        }
+        return out;
+    }
+
+    public long hits() {
+        return hits;
+    }
+
+    public long misses() {
+        return misses;
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    @Override
+    public void close() {
+        YamlConfiguration out = new YamlConfiguration();
+        for (Map.Entry<String, WorldPool> entry : pools.entrySet()) {
+            List<String> spots = new ArrayList<>(entry.getValue().spots.size());
+            for (Spot spot : entry.getValue().spots) {
+                spots.add(spot.x() + " " + spot.y() + " " + spot.z() + " " + spot.foundAt());
+            }
+            out.set("worlds." + entry.getKey(), spots);
+        }
+        try {
+            AtomicFiles.write(file.toPath(), out.saveToString());
+        } catch (IOException e) {
+            plugin.getLogger().log(Level.WARNING, "Failed saving RTP pool", e);
+        }
+    }
+
+    private List<World> eligibleWorlds() {
+        List<World> out = new ArrayList<>();
+        if (config.rtpToOverworld()) {
+            World world = plugin.getServer().getWorld(config.overworldName());
+            if (world != null) {
+                out.add(world);
+            }
+            return out;
+        }
+        for (World world : plugin.getServer().getWorlds()) {
+            if (!config.rtpDisabledIn(world) && !config.teleportDisabledIn(world)) {
+                out.add(world);
+            }
+        }
+        return out;
+    }
+
+    // A malformed or stale line only drops that spot; the pool refills itself from the watermark. Lines without a
+    // timestamp predate expiry and are treated as stale.
+    private void load() {
+        if (!file.exists()) {
+            return;
+        }
+        ConfigurationSection worlds = YamlConfiguration.loadConfiguration(file).getConfigurationSection("worlds");
+        if (worlds == null) {
+            return;
+        }
+        long staleBefore = System.currentTimeMillis() - SPOT_MAX_AGE_MILLIS;
+        for (String world : worlds.getKeys(false)) {
+            WorldPool pool = pools.computeIfAbsent(world, k -> new WorldPool());
+            for (String line : worlds.getStringList(world)) {
+                String[] parts = line.split(" ");
+                if (parts.length != 4 || pool.spots.size() >= capacity) {
+                    continue;
+                }
+                try {
+                    Spot spot = new Spot(Double.parseDouble(parts[0]), Double.parseDouble(parts[1]),
+                            Double.parseDouble(parts[2]), Long.parseLong(parts[3]));
+                    if (spot.foundAt() >= staleBefore) {
+                        pool.spots.offerLast(spot);
+                    }
+                } catch (NumberFormatException ignored) {
+                }
+            }
+        }
+    }
+}
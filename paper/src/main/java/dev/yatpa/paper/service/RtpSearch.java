@@ -0,0 +1,104 @@
+package dev.yatpa.paper.service;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.bukkit.ChunkSnapshot;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.WorldBorder;
+import org.bukkit.plugin.java.JavaPlugin;
+
+// Random-teleport search that never loads chunks on the main thread: each candidate chunk is fetched with
+// getChunkAtAsync, snapshotted, and its column is checked on an async thread. Candidates are tried one at a time so a
+// single /rtp never generates more than one chunk at once.
+public class RtpSearch {
+    private final JavaPlugin plugin;
+    private final int attempts;
+    private final long timeoutMillis;
+
+    public RtpSearch(JavaPlugin plugin, int attempts, int timeoutSeconds) {
+        this.plugin = plugin;
+        this.attempts = Math.max(1, attempts);
+        this.timeoutMillis = TimeUnit.SECONDS.toMillis(Math.max(1, timeoutSeconds));
+    }
+
+    // Call on the main thread. The future completes with null when the attempt budget runs out and exceptionally with
+    // a TimeoutException after the timeout; it may complete on any thread.
+    public CompletableFuture<Location> find(World world, Location center, int minRadius, int maxRadius) {
+        CompletableFuture<Location> result = new CompletableFuture<>();
+        attempt(world, center.clone(), minRadius, maxRadius, 0, result);
+        return result.orTimeout(timeoutMillis, TimeUnit.MILLISECONDS);
+    }
+
+    // Call on the main thread. Checks one random column of the annulus and completes with a safe spot, or with null when
+    // the column is outside the world border, unsafe, or (with generate=false) in a chunk that was never generated.
+    public CompletableFuture<Location> probe(World world, Location center, int minRadius, int maxRadius,
+            boolean generate) {
+        int min = Math.max(0, minRadius);
+        int max = Math.max(min + 1, maxRadius);
+        double angle = ThreadLocalRandom.current().nextDouble() * Math.PI * 2;
+        int distance = min + ThreadLocalRandom.current().nextInt(max - min + 1);
+        int x = (int) Math.floor(center.getX() + Math.cos(angle) * distance);
+        int z = (int) Math.floor(center.getZ() + Math.sin(angle) * distance);
+        WorldBorder border = world.getWorldBorder();
+        double radius = border.getSize() / 2.0;
+        if (Math.abs(x + 0.5 - border.getCenter().getX()) >= radius
+                || Math.abs(z + 0.5 - border.getCenter().getZ()) >= radius) {
+            return CompletableFuture.completedFuture(null);
+        }
+        if (!generate && !world.isChunkGenerated(x >> 4, z >> 4)) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return check(world, x, z, center.getYaw(), center.getPitch(), generate);
+    }
+
+    // Call on the main thread. Checks column x/z against a fresh snapshot and completes with the spot to stand on in it,
+    // or with null when it is unsafe or (with generate=false) its chunk was never generated.
+    public CompletableFuture<Location> check(World world, int x, int z, float yaw, float pitch, boolean generate) {
+        int minY = world.getMinHeight() + 1;
+        int maxY = SafeLocationFinder.maxStandY(world);
+        boolean ceiling = world.hasCeiling();
+        CompletableFuture<Location> out = new CompletableFuture<>();
+        world.getChunkAtAsync(x >> 4, z >> 4, generate).thenAccept(chunk -> {
+            if (chunk == null) {
+                out.complete(null);
+                return;
+            }
+            ChunkSnapshot snapshot = chunk.getChunkSnapshot(true, false, false);
+            plugin.getServer().getScheduler().runTaskAsynchronously(plugin, () -> {
+                int y = SafeLocationFinder.standY(snapshot, x & 15, z & 15, minY, maxY, ceiling);
+                out.complete(y == Integer.MIN_VALUE ? null : new Location(world, x + 0.5, y, z + 0.5, yaw, pitch));
+            });
+        }).exceptionally(error -> {
+            out.completeExceptionally(error);
+            return null;
+        });
+        return out;
+    }
+
+    public int attempts() {
+        return attempts;
+    }
+
+    private void attempt(World world, Location center, int min, int max, int tries,
+            CompletableFuture<Location> result) {
+        if (result.isDone()) {
+            return;
+        }
+        if (tries >= attempts) {
+            result.complete(null);
+            return;
+        }
+        probe(world, center, min, max, true).whenComplete((found, error) -> {
+            if (error != null) {
+                result.completeExceptionally(error);
+            } else if (found != null) {
+                result.complete(found);
+            } else if (!result.isDone()) {
+                plugin.getServer().getScheduler().runTask(plugin,
+                        () -> attempt(world, center, min, max, tries + 1, result));
+            }
+        });
+    }
+}
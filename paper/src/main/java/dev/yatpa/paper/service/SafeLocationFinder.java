@@ -0,0 +1,239 @@
+package dev.yatpa.paper.service;
+
+import dev.yatpa.core.service.BlockView;
+import dev.yatpa.core.service.SafeSpotSearch;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import org.bukkit.Chunk;
+import org.bukkit.ChunkSnapshot;
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.WorldBorder;
+
+// Bukkit adapter for SafeSpotSearch: block data comes from chunk snapshots, each taken at most once per finder, and
+// block types are classified through bitsets indexed by Material.ordinal(). Instances are single-use and, when backed
+// by a World, must be created and used on the main thread; the static snapshot helpers are safe on any thread.
+// The search never loads a chunk: loadAround() fetches them up front, and a column whose chunk is neither snapshotted
+// nor already loaded counts as unknown and is never picked.
+public final class SafeLocationFinder {
+    private static final int NONE = SafeSpotSearch.NONE;
+
+    private final World world;
+    private final SafeSpotSearch search;
+
+    public SafeLocationFinder(World world) {
+        this(world, new SnapshotSource(world), world.getMinHeight() + 1, maxStandY(world));
+    }
+
+    public SafeLocationFinder(World world, BlockView view, int minY, int maxY) {
+        this.world = world;
+        this.search = new SafeSpotSearch(view, minY, maxY);
+    }
+
+    // Call on the main thread. Loads every already-generated chunk within radius of x/z with getChunkAtAsync and
+    // snapshots each once it is loaded (Paper completes chunk futures on the main thread), so findNearest within that
+    // radius reads only the snapshots. Ungenerated chunks are skipped rather than generated.
+    public static CompletableFuture<SafeLocationFinder> loadAround(World world, int x, int z, int radius) {
+        List<CompletableFuture<Chunk>> chunks = new ArrayList<>();
+        for (int chunkX = (x - radius) >> 4; chunkX <= (x + radius) >> 4; chunkX++) {
+            for (int chunkZ = (z - radius) >> 4; chunkZ <= (z + radius) >> 4; chunkZ++) {
+                chunks.add(world.getChunkAtAsync(chunkX, chunkZ, false));
+            }
+        }
+        return CompletableFuture.allOf(chunks.toArray(new CompletableFuture<?>[0])).thenApply(ignored -> {
+            SnapshotSource source = new SnapshotSource(world);
+            for (CompletableFuture<Chunk> future : chunks) {
+                Chunk chunk = future.join();
+                if (chunk != null) {
+                    ChunkSnapshot snapshot = chunk.getChunkSnapshot(true, false, false);
+                    source.snapshots.put(chunkKey(chunk.getX(), chunk.getZ()), snapshot);
+                }
+            }
+            return new SafeLocationFinder(world, source, world.getMinHeight() + 1, maxStandY(world));
+        });
+    }
+
+    public boolean isSafe(Location location) {
+        return search.isSafe(location.getBlockX(), location.getBlockY(), location.getBlockZ());
+    }
+
+    public boolean isSafe(int x, int y, int z) {
+        return search.isSafe(x, y, z);
+    }
+
+    // Closest safe Y to targetY within verticalRange, then the surface; null if the column has neither.
+    public Location findInColumn(int x, int z, int targetY, int verticalRange) {
+        int y = search.findInColumn(x, z, targetY, verticalRange);
+        return y == NONE ? null : centered(x, y, z);
+    }
+
+    // Nearest safe spot to desired within the radius, keeping its facing; null when nothing is safe.
+    public Location findNearest(Location desired, int maxHorizontalRadius, int verticalRange) {
+        if (!search.findNearest(desired.getBlockX(), desired.getBlockY(), desired.getBlockZ(), maxHorizontalRadius,
+                verticalRange)) {
+            return null;
+        }
+        Location best = centered(search.foundX(), search.foundY(), search.foundZ());
+        best.setYaw(desired.getYaw());
+        best.setPitch(desired.getPitch());
+        return best;
+    }
+
+    public Location spawnFallback() {
+        Location spawn = world.getSpawnLocation();
+        Location safe = findInColumn(spawn.getBlockX(), spawn.getBlockZ(), spawn.getBlockY(), 64);
+        return safe != null ? safe : spawn.clone();
+    }
+
+    public long blocksProbed() {
+        return search.blocksProbed();
+    }
+
+    public int columnsVisited() {
+        return search.columnsVisited();
+    }
+
+    public int columnsSkipped() {
+        return search.columnsSkipped();
+    }
+
+    // Open-sky worlds only accept the surface; worlds with a ceiling (the nether) scan down from below the roof.
+    public static int standY(ChunkSnapshot snapshot, int localX, int localZ, int minY, int maxY, boolean ceiling) {
+        int top = Math.min(maxY, snapshot.getHighestBlockYAt(localX, localZ) + 1);
+        int bottom = ceiling ? minY : Math.max(minY, top);
+        for (int y = top; y >= bottom; y--) {
+            if (isSafe(snapshot, localX, y, localZ)) {
+                return y;
+            }
+        }
+        return NONE;
+    }
+
+    public static boolean isSafe(ChunkSnapshot snapshot, int localX, int y, int localZ) {
+        return isFloor(snapshot.getBlockType(localX, y - 1, localZ))
+                && isClear(snapshot.getBlockType(localX, y, localZ))
+                && isClear(snapshot.getBlockType(localX, y + 1, localZ));
+    }
+
+    public static boolean isClear(Material material) {
+        return Materials.has(Materials.CLEAR_BITS, material);
+    }
+
+    public static boolean isFloor(Material material) {
+        return Materials.has(Materials.FLOOR_BITS, material);
+    }
+
+    public static int kind(Material material) {
+        return (isClear(material) ? BlockView.CLEAR : 0) | (isFloor(material) ? BlockView.FLOOR : 0);
+    }
+
+    public static int maxStandY(World world) {
+        int maxY = world.getMaxHeight() - 2;
+        if (world.getEnvironment() == World.Environment.NETHER) {
+            // Keep RTP/nearest-safe logic below the nether roof.
+            maxY = Math.min(maxY, 127);
+        }
+        return maxY;
+    }
+
+    private Location centered(int x, int y, int z) {
+        return new Location(world, x + 0.5, y, z + 0.5);
+    }
+
+    private static long chunkKey(int chunkX, int chunkZ) {
+        return ((long) chunkX << 32) | (chunkZ & 0xFFFFFFFFL);
+    }
+
+    // Held separately so the bitsets are only built when a Material is classified.
+    private static final class Materials {
+        private static final long[] CLEAR_BITS;
+        private static final long[] FLOOR_BITS;
+
+        static {
+            Material[] materials = Material.values();
+            CLEAR_BITS = new long[(materials.length + 63) >>> 6];
+            FLOOR_BITS = new long[CLEAR_BITS.length];
+            for (Material material : materials) {
+                boolean liquid = material == Material.WATER || material == Material.LAVA
+                        || material == Material.BUBBLE_COLUMN;
+                int ordinal = material.ordinal();
+                if (!liquid && !material.isSolid() && !hurtsInside(material)) {
+                    CLEAR_BITS[ordinal >>> 6] |= 1L << ordinal;
+                }
+                if (!liquid && material.isSolid() && !hurtsOnTop(material)) {
+                    FLOOR_BITS[ordinal >>> 6] |= 1L << ordinal;
+                }
+            }
+        }
+
+        private static boolean has(long[] bits, Material material) {
+            int ordinal = material.ordinal();
+            return (bits[ordinal >>> 6] & (1L << ordinal)) != 0;
+        }
+
+        private static boolean hurtsInside(Material material) {
+            return material == Material.FIRE || material == Material.SOUL_FIRE
+                    || material == Material.SWEET_BERRY_BUSH || material == Material.WITHER_ROSE
+                    || material == Material.POWDER_SNOW || material == Material.COBWEB;
+        }
+
+        private static boolean hurtsOnTop(Material material) {
+            return material == Material.MAGMA_BLOCK || material == Material.CACTUS || material == Material.CAMPFIRE
+                    || material == Material.SOUL_CAMPFIRE || material == Material.POINTED_DRIPSTONE;
+        }
+    }
+
+    private static final class SnapshotSource implements BlockView {
+        private final World world;
+        private final double borderX;
+        private final double borderZ;
+        private final double borderRadius;
+        private final Map<Long, ChunkSnapshot> snapshots = new HashMap<>();
+
+        private SnapshotSource(World world) {
+            this.world = world;
+            WorldBorder border = world.getWorldBorder();
+            this.borderX = border.getCenter().getX();
+            this.borderZ = border.getCenter().getZ();
+            this.borderRadius = border.getSize() / 2.0;
+        }
+
+        // An unknown column reads as neither clear nor floor, so no spot in it is ever safe.
+        @Override
+        public int kind(int x, int y, int z) {
+            ChunkSnapshot snapshot = snapshot(x, z);
+            return snapshot == null ? 0 : SafeLocationFinder.kind(snapshot.getBlockType(x & 15, y, z & 15));
+        }
+
+        @Override
+        public int highestY(int x, int z) {
+            ChunkSnapshot snapshot = snapshot(x, z);
+            return snapshot == null ? world.getMinHeight() : snapshot.getHighestBlockYAt(x & 15, z & 15);
+        }
+
+        // Unknown columns are reported as outside the border so the search skips them without reading blocks.
+        @Override
+        public boolean insideBorder(int x, int z) {
+            return Math.abs(x + 0.5 - borderX) < borderRadius && Math.abs(z + 0.5 - borderZ) < borderRadius
+                    && snapshot(x, z) != null;
+        }
+
+        // Only chunks that are already loaded are snapshotted here; anything else stays unknown (null).
+        private ChunkSnapshot snapshot(int x, int z) {
+            int chunkX = x >> 4;
+            int chunkZ = z >> 4;
+            long key = chunkKey(chunkX, chunkZ);
+            ChunkSnapshot snapshot = snapshots.get(key);
+            if (snapshot == null && !snapshots.containsKey(key)) {
+                snapshot = world.isChunkLoaded(chunkX, chunkZ)
+                        ? world.getChunkAt(chunkX, chunkZ).getChunkSnapshot(true, false, false) : null;
+                snapshots.put(key, snapshot);
+            }
+            return snapshot;
+        }
+    }
+}
@@ -0,0 +1,256 @@
+package dev.yatpa.paper.service;
+
+import dev.yatpa.paper.service.TeleportLogService.Entry;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// In-memory window over the newest log entries. Every entry gets an increasing sequence number; posting lists per
+// player, action and world hold those numbers in ascending order, so filtered queries walk only matching entries.
+public class TeleportLogIndex {
+    public record Query(String player, String action, String world, long sinceMillis) {
+        public static final Query ALL = new Query(null, null, null, 0L);
+
+        public boolean isEmpty() {
+            return player == null && action == null && world == null && sinceMillis <= 0L;
+        }
+    }
+
+    // nextCursor is passed back as "before" to fetch the following page, or -1 when there are no older matches.
+    public record Page(List<Entry> entries, long nextCursor) {
+    }
+
+    private static final class Postings {
+        private int[] values = new int[4];
+        private int start;
+        private int end;
+
+        void add(int value) {
+            if (end == values.length) {
+                if (start > 0) {
+                    System.arraycopy(values, start, values, 0, end - start);
+                    end -= start;
+                    start = 0;
+                }
+                if (end == values.length) {
+                    values = Arrays.copyOf(values, values.length * 2);
+                }
+            }
+            values[end++] = value;
+        }
+
+        void trimBelow(int oldest) {
+            while (start < end && values[start] < oldest) {
+                start++;
+            }
+        }
+
+        boolean isEmpty() {
+            return start == end;
+        }
+
+        int size() {
+            return end - start;
+        }
+
+        // Index of the last value strictly below bound, or start - 1 when there is none.
+        int lastBelow(long bound) {
+            int low = start;
+            int high = end - 1;
+            int found = start - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                if (values[mid] < bound) {
+                    found = mid;
+                    low = mid + 1;
+                } else {
+                    high = mid - 1;
+                }
+            }
+            return found;
+        }
+    }
+
+    private static final Postings EMPTY = new Postings();
+
+    private final int capacity;
+    private final Entry[] entries;
+    private final long[] times;
+    private final Map<String, Postings> byPlayer = new HashMap<>();
+    private final Map<String, Postings> byAction = new HashMap<>();
+    private final Map<String, Postings> byWorld = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private int head;
+    private int sinceSweep;
+
+    public TeleportLogIndex(int capacity) {
+        this.capacity = Math.max(1, capacity);
+        this.entries = new Entry[this.capacity];
+        this.times = new long[this.capacity];
+    }
+
+    public void add(Entry entry) {
+        lock.writeLock().lock();
+        try {
+            int sequence = head++;
+            int slot = sequence % capacity;
+            entries[slot] = entry;
+            times[slot] = entry.timestamp().toEpochMilli();
+            int oldest = oldest();
+            post(byPlayer, playerKey(entry.actor()), sequence, oldest);
+            if (entry.payer() != null && !entry.payer().isBlank() && !entry.payer().equalsIgnoreCase(entry.actor())) {
+                post(byPlayer, playerKey(entry.payer()), sequence, oldest);
+            }
+            post(byAction, actionKey(entry.action()), sequence, oldest);
+            post(byWorld, worldKey(entry.fromWorld()), sequence, oldest);
+            if (!entry.toWorld().equalsIgnoreCase(entry.fromWorld())) {
+                post(byWorld, worldKey(entry.toWorld()), sequence, oldest);
+            }
+            // Lists for keys that stopped receiving entries are only trimmed here, once per window turnover.
+            if (++sinceSweep >= capacity) {
+                sinceSweep = 0;
+                sweep(byPlayer, oldest);
+                sweep(byAction, oldest);
+                sweep(byWorld, oldest);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public Page query(Query query, long before, int limit) {
+        lock.readLock().lock();
+        try {
+            int oldest = Math.max(oldest(), firstAtOrAfter(query.sinceMillis()));
+            long bound = Math.min(before, head);
+            List<Entry> out = new ArrayList<>(limit);
+            Postings driver = smallest(query);
+            if (driver == null) {
+                for (long s = bound - 1; s >= oldest; s--) {
+                    if (out.size() == limit) {
+                        return new Page(out, s + 1);
+                    }
+                    out.add(entries[(int) (s % capacity)]);
+                }
+                return new Page(out, -1L);
+            }
+            for (int i = driver.lastBelow(bound); i >= driver.start; i--) {
+                int s = driver.values[i];
+                if (s < oldest) {
+                    break;
+                }
+                Entry entry = entries[s % capacity];
+                if (!matches(entry, query)) {
+                    continue;
+                }
+                if (out.size() == limit) {
+                    return new Page(out, s + 1L);
+                }
+                out.add(entry);
+            }
+            return new Page(out, -1L);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return head - oldest();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    private int oldest() {
+        return Math.max(0, head - capacity);
+    }
+
+    // Entries arrive in time order, so the window can be binary searched by timestamp.
+    private int firstAtOrAfter(long millis) {
+        int low = oldest();
+        int high = head - 1;
+        int found = head;
+        if (millis <= 0L) {
+            return low;
+        }
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (times[mid % capacity] >= millis) {
+                found = mid;
+                high = mid - 1;
+            } else {
+                low = mid + 1;
+            }
+        }
+        return found;
+    }
+
+    // Walk the shortest list among the requested filters; an unknown key maps to an empty list so nothing matches.
+    private Postings smallest(Query query) {
+        Postings best = null;
+        Postings[] candidates = {
+                query.player() == null ? null : byPlayer.getOrDefault(playerKey(query.player()), EMPTY),
+                query.action() == null ? null : byAction.getOrDefault(actionKey(query.action()), EMPTY),
+                query.world() == null ? null : byWorld.getOrDefault(worldKey(query.world()), EMPTY)
+        };
+        for (Postings candidate : candidates) {
+            if (candidate != null && (best == null || candidate.size() < best.size())) {
+                best = candidate;
+            }
+        }
+        return best;
+    }
+
+    private static boolean matches(Entry entry, Query query) {
+        if (query.player() != null && !query.player().equalsIgnoreCase(entry.actor())
+                && !query.player().equalsIgnoreCase(entry.payer())) {
+            return false;
+        }
+        if (query.action() != null && !query.action().equalsIgnoreCase(entry.action())) {
+            return false;
+        }
+        return query.world() == null || query.world().equalsIgnoreCase(entry.fromWorld())
+                || query.world().equalsIgnoreCase(entry.toWorld());
+    }
+
+    private static void post(Map<String, Postings> index, String key, int sequence, int oldest) {
+        Postings postings = index.computeIfAbsent(key, k -> new Postings());
+        postings.trimBelow(oldest);
+        postings.add(sequence);
+    }
+
+    private static void sweep(Map<String, Postings> index, int oldest) {
+        Iterator<Postings> it = index.values().iterator();
+        while (it.hasNext()) {
+            Postings postings = it.next();
+            postings.trimBelow(oldest);
+            if (postings.isEmpty()) {
+                it.remove();
+            }
+        }
+    }
+
+    private static String playerKey(String name) {
+        return name == null ? "" : name.toLowerCase(Locale.ROOT);
+    }
+
+    private static String actionKey(String action) {
+        return action == null ? "" : action.toUpperCase(Locale.ROOT);
+    }
+
+    private static String worldKey(String world) {
+        return world == null ? "" : world.toLowerCase(Locale.ROOT);
+    }
+}
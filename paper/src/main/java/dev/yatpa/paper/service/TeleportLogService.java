@@ -1,13 +1,28 @@
 package dev.yatpa.paper.service;
 
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
 import java.time.Instant;
-import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.Deque;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 import org.bukkit.Location;
 
-public class TeleportLogService {
+public class TeleportLogService implements AutoCloseable {
     public record Entry(
             Instant timestamp,
             String action,
@@ -24,22 +39,60 @@ public class TeleportLogService {
             double toZ) {
     }
 
+    private static final String SEGMENT_PREFIX = "teleports-";
+    private static final String SEGMENT_SUFFIX = ".jsonl";
+
     private final int maxEntries;
-    private final Deque<Entry> entries = new ArrayDeque<>();
+    private final TeleportLogIndex index;
+    private final Queue<Entry> pending = new ConcurrentLinkedQueue<>();
+    private final File directory;
+    private final long segmentBytes;
+    private final long retentionMillis;
+    private final long maxTotalBytes;
+    private final Logger logger;
+    private final Thread writerThread;
+    private volatile boolean running = true;
+    private BufferedWriter segment;
+    private File segmentFile;
+    private long segmentSize;
 
     public TeleportLogService(int maxEntries) {
+        this(maxEntries, null, 0, 0, 0, null);
+    }
+
+    // Entries are appended as JSON lines to logs/teleports-<millis>.jsonl by a single background thread; the newest
+    // maxEntries are also kept indexed in memory (and reloaded from disk on startup) for /tpalog.
+    public TeleportLogService(int maxEntries, File directory, long segmentBytes, long retentionMillis,
+            long maxTotalBytes, Logger logger) {
         this.maxEntries = Math.max(1, maxEntries);
+        this.index = new TeleportLogIndex(this.maxEntries);
+        this.directory = directory;
+        this.segmentBytes = Math.max(4096, segmentBytes);
+        this.retentionMillis = retentionMillis;
+        this.maxTotalBytes = maxTotalBytes;
+        this.logger = logger;
+        if (directory == null) {
+            this.writerThread = null;
+            return;
+        }
+        if (!directory.exists() && !directory.mkdirs()) {
+            throw new IllegalStateException("Could not create log directory");
+        }
+        loadRecent();
+        this.writerThread = new Thread(this::runWriter, "YATPA-TeleportLog");
+        this.writerThread.setDaemon(true);
+        this.writerThread.start();
     }
 
-    public synchronized void record(String action, String actor, String payer, Location from, Location to) {
+    public void record(String action, String actor, String payer, Location from, Location to) {
         record(action, actor, payer, "", from, to);
     }
 
-    public synchronized void record(String action, String actor, String payer, String detail, Location from, Location to) {
+    public void record(String action, String actor, String payer, String detail, Location from, Location to) {
         if (from == null || to == null || from.getWorld() == null || to.getWorld() == null) {
             return;
         }
-        entries.addFirst(new Entry(
+        Entry entry = new Entry(
                 Instant.now(),
                 action,
                 actor,
@@ -52,22 +105,226 @@ public class TeleportLogService {
                 to.getWorld().getName(),
                 to.getX(),
                 to.getY(),
-                to.getZ()));
-        while (entries.size() > maxEntries) {
-            entries.removeLast();
+                to.getZ());
+        remember(entry);
+        if (writerThread != null) {
+            pending.offer(entry);
+            LockSupport.unpark(writerThread);
+        }
+    }
+
+    public List<Entry> recent(int limit) {
+        return index.query(TeleportLogIndex.Query.ALL, Long.MAX_VALUE, Math.max(1, limit)).entries();
+    }
+
+    public TeleportLogIndex.Page query(TeleportLogIndex.Query query, long before, int limit) {
+        return index.query(query, before, Math.max(1, limit));
+    }
+
+    public int indexedEntries() {
+        return index.size();
+    }
+
+    public int pendingWrites() {
+        return pending.size();
+    }
+
+    @Override
+    public void close() {
+        if (writerThread == null) {
+            return;
+        }
+        running = false;
+        LockSupport.unpark(writerThread);
+        try {
+            writerThread.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void remember(Entry entry) {
+        index.add(entry);
+    }
+
+    private void runWriter() {
+        while (running || !pending.isEmpty()) {
+            Entry entry = pending.poll();
+            if (entry == null) {
+                flushSegment();
+                LockSupport.parkNanos(this, TimeUnit.SECONDS.toNanos(1));
+                continue;
+            }
+            try {
+                append(entry);
+            } catch (IOException e) {
+                logger.log(Level.WARNING, "Failed writing teleport log entry", e);
+                closeSegment();
+            }
+        }
+        closeSegment();
+    }
+
+    private void append(Entry entry) throws IOException {
+        if (segment == null || segmentSize >= segmentBytes) {
+            rotate();
+        }
+        String line = toJson(entry);
+        segment.write(line);
+        segment.write('\n');
+        segmentSize += line.length() + 1;
+    }
+
+    private void rotate() throws IOException {
+        closeSegment();
+        long stamp = System.currentTimeMillis();
+        File next = new File(directory, SEGMENT_PREFIX + stamp + SEGMENT_SUFFIX);
+        while (next.exists()) {
+            next = new File(directory, SEGMENT_PREFIX + (++stamp) + SEGMENT_SUFFIX);
+        }
+        segmentFile = next;
+        segment = Files.newBufferedWriter(next.toPath(), StandardCharsets.UTF_8, StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.WRITE);
+        segmentSize = 0;
+        enforceRetention();
+    }
+
+    private void flushSegment() {
+        if (segment == null) {
+            return;
+        }
+        try {
+            segment.flush();
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Failed flushing teleport log", e);
+            closeSegment();
+        }
+    }
+
+    private void closeSegment() {
+        if (segment == null) {
+            return;
+        }
+        try {
+            segment.close();
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Failed closing teleport log segment", e);
         }
+        segment = null;
     }
 
-    public synchronized List<Entry> recent(int limit) {
-        int capped = Math.max(1, limit);
-        List<Entry> out = new ArrayList<>(Math.min(entries.size(), capped));
-        int i = 0;
-        for (Entry entry : entries) {
-            if (i++ >= capped) {
-                break;
+    // Oldest segments go first, by age and then by total size; the segment being written is never removed.
+    private void enforceRetention() {
+        List<File> segments = segments();
+        long now = System.currentTimeMillis();
+        long total = 0;
+        for (File file : segments) {
+            total += file.length();
+        }
+        for (File file : segments) {
+            if (file.equals(segmentFile)) {
+                continue;
+            }
+            boolean expired = retentionMillis > 0 && now - file.lastModified() > retentionMillis;
+            boolean oversize = maxTotalBytes > 0 && total > maxTotalBytes;
+            if (!expired && !oversize) {
+                continue;
+            }
+            long length = file.length();
+            if (file.delete()) {
+                total -= length;
+            }
+        }
+    }
+
+    private void loadRecent() {
+        List<Entry> loaded = new ArrayList<>();
+        List<File> segments = segments();
+        for (int i = segments.size() - 1; i >= 0 && loaded.size() < maxEntries; i--) {
+            List<String> lines;
+            try {
+                lines = Files.readAllLines(segments.get(i).toPath(), StandardCharsets.UTF_8);
+            } catch (IOException e) {
+                logger.log(Level.WARNING, "Failed reading teleport log " + segments.get(i).getName(), e);
+                continue;
+            }
+            for (int j = lines.size() - 1; j >= 0 && loaded.size() < maxEntries; j--) {
+                Entry entry = fromJson(lines.get(j));
+                if (entry != null) {
+                    loaded.add(entry);
+                }
             }
-            out.add(entry);
         }
+        for (int i = loaded.size() - 1; i >= 0; i--) {
+            remember(loaded.get(i));
+        }
+    }
+
+    private List<File> segments() {
+        File[] files = directory.listFiles((dir, name) -> name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX));
+        if (files == null) {
+            return new ArrayList<>();
+        }
+        Arrays.sort(files, Comparator.comparingLong(TeleportLogService::segmentStamp));
+        return new ArrayList<>(Arrays.asList(files));
+    }
+
+    private static long segmentStamp(File file) {
+        String name = file.getName();
+        try {
+            return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return 0L;
+        }
+    }
+
+    private static String toJson(Entry entry) {
+        JsonObject json = new JsonObject();
+        json.addProperty("time", entry.timestamp().toEpochMilli());
+        json.addProperty("action", entry.action());
+        json.addProperty("actor", entry.actor());
+        json.addProperty("payer", entry.payer());
+        json.addProperty("detail", entry.detail());
+        json.add("from", position(entry.fromWorld(), entry.fromX(), entry.fromY(), entry.fromZ()));
+        json.add("to", position(entry.toWorld(), entry.toX(), entry.toY(), entry.toZ()));
+        return json.toString();
+    }
+
+    private static JsonArray position(String world, double x, double y, double z) {
+        JsonArray out = new JsonArray();
+        out.add(world);
+        out.add(x);
+        out.add(y);
+        out.add(z);
         return out;
     }
+
+    // A torn last line after a crash is skipped rather than failing the load.
+    private static Entry fromJson(String line) {
+        try {
+            JsonObject json = JsonParser.parseString(line).getAsJsonObject();
+            JsonArray from = json.getAsJsonArray("from");
+            JsonArray to = json.getAsJsonArray("to");
+            return new Entry(
+                    Instant.ofEpochMilli(json.get("time").getAsLong()),
+                    string(json, "action"),
+                    string(json, "actor"),
+                    string(json, "payer"),
+                    string(json, "detail"),
+                    from.get(0).getAsString(),
+                    from.get(1).getAsDouble(),
+                    from.get(2).getAsDouble(),
+                    from.get(3).getAsDouble(),
+                    to.get(0).getAsString(),
+                    to.get(1).getAsDouble(),
+                    to.get(2).getAsDouble(),
+                    to.get(3).getAsDouble());
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static String string(JsonObject json, String key) {
+        return json.has(key) && !json.get(key).isJsonNull() ? json.get(key).getAsString() : "";
+    }
 }
@@ -1,15 +1,25 @@
 package dev.yatpa.paper.service;
 
+import dev.yatpa.core.data.TeleportKind;
 import dev.yatpa.paper.config.XmlMessages;
 import dev.yatpa.paper.config.YatpaConfig;
-import dev.yatpa.paper.data.TeleportKind;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
 import java.util.function.Supplier;
+import java.util.logging.Level;
 import net.kyori.adventure.text.Component;
+import org.bukkit.Chunk;
+import org.bukkit.ChunkSnapshot;
 import org.bukkit.Location;
 import org.bukkit.Particle;
 import org.bukkit.Sound;
@@ -19,8 +29,86 @@ import org.bukkit.plugin.java.JavaPlugin;
 import org.bukkit.scheduler.BukkitTask;
 
 public class TeleportService {
-    private record PendingTeleport(BukkitTask task, Location origin, TeleportKind kind, UUID payerId,
-            UUID notifyPlayerId) {
+    // One delayed teleport. It sits in the countdown slot it was queued in until it runs or is cancelled; cancelled
+    // entries are dropped the next time their slot comes round.
+    private static final class PendingTeleport {
+        private final Player actor;
+        private final Location origin;
+        private final TeleportKind kind;
+        private final UUID payerId;
+        private final UUID notifyPlayerId;
+        private final Supplier<Location> destinationSupplier;
+        private final Runnable onSuccess;
+        private final String logDetail;
+        private final ChunkTicket ticket;
+        private int remaining;
+        private boolean cancelled;
+
+        private PendingTeleport(Player actor, Location origin, TeleportKind kind, UUID payerId, UUID notifyPlayerId,
+                Supplier<Location> destinationSupplier, Runnable onSuccess, String logDetail, ChunkTicket ticket,
+                int remaining) {
+            this.actor = actor;
+            this.origin = origin;
+            this.kind = kind;
+            this.payerId = payerId;
+            this.notifyPlayerId = notifyPlayerId;
+            this.destinationSupplier = destinationSupplier;
+            this.onSuccess = onSuccess;
+            this.logDetail = logDetail;
+            this.ticket = ticket;
+            this.remaining = remaining;
+        }
+    }
+
+    private record ChunkKey(UUID worldId, long chunk) {
+    }
+
+    // Keeps a chunk loaded for a pending teleport. The ticket is only added once the async load finishes, so one
+    // released before then never holds the chunk. Release on the main thread.
+    public final class ChunkTicket {
+        private final World world;
+        private final int chunkX;
+        private final int chunkZ;
+        private final CompletableFuture<Void> loaded = new CompletableFuture<>();
+        private boolean held;
+        private boolean released;
+
+        private ChunkTicket(World world, int chunkX, int chunkZ) {
+            this.world = world;
+            this.chunkX = chunkX;
+            this.chunkZ = chunkZ;
+        }
+
+        private void hold() {
+            if (released || held) {
+                return;
+            }
+            held = true;
+            if (tickets.merge(key(), 1, Integer::sum) == 1) {
+                world.addPluginChunkTicket(chunkX, chunkZ, plugin);
+            }
+        }
+
+        // Completes on the main thread once the chunk is loaded, or once loading failed.
+        public CompletableFuture<Void> loaded() {
+            return loaded;
+        }
+
+        public void release() {
+            released = true;
+            if (!held) {
+                return;
+            }
+            held = false;
+            if (tickets.merge(key(), -1, Integer::sum) <= 0) {
+                tickets.remove(key());
+                world.removePluginChunkTicket(chunkX, chunkZ, plugin);
+            }
+        }
+
+        private ChunkKey key() {
+            return new ChunkKey(world.getUID(), chunkKey(chunkX, chunkZ));
+        }
     }
 
     private final JavaPlugin plugin;
@@ -28,7 +116,21 @@ public class TeleportService {
     private final XmlMessages messages;
     private final CostService costs;
     private final TeleportLogService teleportLog;
+    private static final int LANDING_ATTEMPTS = 8;
+    // Countdown steps are a second apart, so a teleport queued on tick t always steps on ticks congruent to t + 1
+    // modulo 20 and never moves between slots.
+    private static final int COUNTDOWN_SLOTS = 20;
+    // Kinds whose supplier returns a location fixed when the teleport is queued; TPA and TPAHERE follow a player.
+    private static final Set<TeleportKind> PREWARM_KINDS = EnumSet.of(TeleportKind.HOME, TeleportKind.SPAWN,
+            TeleportKind.BACK, TeleportKind.RTP);
+
     private final Map<UUID, PendingTeleport> pending = new ConcurrentHashMap<>();
+    // Plugin chunk tickets are not counted by the server, so two countdowns into one chunk share a single ticket.
+    private final Map<ChunkKey, Integer> tickets = new HashMap<>();
+    private final List<List<PendingTeleport>> countdownSlots = new ArrayList<>(COUNTDOWN_SLOTS);
+    private final Component[] countdownBars;
+    private BukkitTask countdownTask;
+    private long countdownTick;
 
     public TeleportService(JavaPlugin plugin, YatpaConfig config, XmlMessages messages, CostService costs, TeleportLogService teleportLog) {
         this.plugin = plugin;
@@ -36,12 +138,27 @@ public class TeleportService {
         this.messages = messages;
         this.costs = costs;
         this.teleportLog = teleportLog;
+        for (int i = 0; i < COUNTDOWN_SLOTS; i++) {
+            countdownSlots.add(new ArrayList<>());
+        }
+        this.countdownBars = new Component[Math.max(0, config.teleportDelaySeconds()) + 1];
+        for (int seconds = 1; seconds < countdownBars.length; seconds++) {
+            countdownBars[seconds] = Component.text(
+                    messages.format("countdown", Map.of("seconds", Integer.toString(seconds))));
+        }
     }
 
     public void cancel(UUID uuid, String messageKey) {
         PendingTeleport p = pending.remove(uuid);
         if (p != null) {
-            p.task.cancel();
+            p.cancelled = true;
+            release(p);
+        }
+    }
+
+    public void cancelAll() {
+        for (UUID uuid : List.copyOf(pending.keySet())) {
+            cancel(uuid, "");
         }
     }
 
@@ -50,10 +167,11 @@ public class TeleportService {
         if (p == null) {
             return;
         }
-        p.task.cancel();
+        p.cancelled = true;
+        release(p);
         tell(player, messageKey);
-        if (p.notifyPlayerId() != null) {
-            Player notify = plugin.getServer().getPlayer(p.notifyPlayerId());
+        if (p.notifyPlayerId != null) {
+            Player notify = plugin.getServer().getPlayer(p.notifyPlayerId);
             if (notify != null && notify.isOnline()) {
                 String reason = messages.get(messageKey);
                 if (reason.equals(messageKey)) {
@@ -115,31 +233,85 @@ public class TeleportService {
             return true;
         }
 
-        BukkitTask task = plugin.getServer().getScheduler().runTaskTimer(plugin, new Runnable() {
-            int remaining = delay;
+        PendingTeleport p = new PendingTeleport(actor, origin, kind, payer.getUniqueId(),
+                notifyPlayer == null ? null : notifyPlayer.getUniqueId(), destinationSupplier, onSuccess, logDetail,
+                PREWARM_KINDS.contains(kind) ? prewarm(destinationSupplier.get()) : null, delay);
+        pending.put(actor.getUniqueId(), p);
+        countdownSlots.get((int) ((countdownTick + 1) % COUNTDOWN_SLOTS)).add(p);
+        if (countdownTask == null) {
+            countdownTask = plugin.getServer().getScheduler().runTaskTimer(plugin, this::tickCountdowns, 1L, 1L);
+        }
+        return true;
+    }
 
-            @Override
-            public void run() {
-                if (!actor.isOnline()) {
-                    cancel(actor.getUniqueId(), "");
-                    return;
-                }
-                if (remaining <= 0) {
-                    execute(actor, kind, payer.getUniqueId(), destinationSupplier, onSuccess, logDetail);
-                    cancel(actor.getUniqueId(), "");
-                    return;
-                }
-                String text = messages.format("countdown", Map.of("seconds", Integer.toString(remaining)));
-                actor.sendActionBar(Component.text(text));
-                play(actor, "countdown");
-                remaining--;
+    // Single timer for every delayed teleport: each tick steps only the countdowns in that tick's slot. The timer stops
+    // once nothing is pending and is restarted by the next queueTeleport.
+    private void tickCountdowns() {
+        countdownTick++;
+        List<PendingTeleport> slot = countdownSlots.get((int) (countdownTick % COUNTDOWN_SLOTS));
+        int kept = 0;
+        for (int i = 0; i < slot.size(); i++) {
+            PendingTeleport p = slot.get(i);
+            if (p.cancelled) {
+                continue;
+            }
+            if (!p.actor.isOnline()) {
+                // Removed by identity: after a relog the UUID may already map to a newer countdown.
+                pending.remove(p.actor.getUniqueId(), p);
+                p.cancelled = true;
+                release(p);
+                continue;
+            }
+            if (p.remaining <= 0) {
+                pending.remove(p.actor.getUniqueId(), p);
+                p.cancelled = true;
+                execute(p.actor, p.kind, p.payerId, p.destinationSupplier, p.onSuccess, p.logDetail);
+                release(p);
+                continue;
             }
-        }, 0L, 20L);
+            p.actor.sendActionBar(countdownBars[p.remaining]);
+            play(p.actor, "countdown");
+            p.remaining--;
+            slot.set(kept++, p);
+        }
+        slot.subList(kept, slot.size()).clear();
+        if (pending.isEmpty()) {
+            for (List<PendingTeleport> other : countdownSlots) {
+                other.clear();
+            }
+            countdownTask.cancel();
+            countdownTask = null;
+        }
+    }
 
-        pending.put(actor.getUniqueId(),
-                new PendingTeleport(task, origin, kind, payer.getUniqueId(),
-                        notifyPlayer == null ? null : notifyPlayer.getUniqueId()));
-        return true;
+    // Loads the destination chunk while the countdown runs so the teleport itself does not wait on chunk IO or
+    // generation.
+    private ChunkTicket prewarm(Location destination) {
+        if (destination == null || destination.getWorld() == null
+                || config.teleportDisabledIn(destination.getWorld())) {
+            return null;
+        }
+        return holdChunk(destination.getWorld(), destination.getBlockX() >> 4, destination.getBlockZ() >> 4);
+    }
+
+    // Call on the main thread. Tickets are counted per chunk, so holds from countdowns and group teleports can overlap.
+    public ChunkTicket holdChunk(World world, int chunkX, int chunkZ) {
+        ChunkTicket ticket = new ChunkTicket(world, chunkX, chunkZ);
+        world.getChunkAtAsync(chunkX, chunkZ).whenComplete((chunk, error) -> onMainThread(() -> {
+            if (error != null) {
+                plugin.getLogger().log(Level.WARNING, "Failed preloading chunk " + chunkX + "," + chunkZ, error);
+            } else {
+                ticket.hold();
+            }
+            ticket.loaded.complete(null);
+        }));
+        return ticket;
+    }
+
+    private void release(PendingTeleport p) {
+        if (p.ticket != null) {
+            onMainThread(p.ticket::release);
+        }
     }
 
     public CostService.ChargeResult previewCharge(Player actor, TeleportKind kind) {
@@ -157,6 +329,35 @@ public class TeleportService {
             actor.sendMessage(messages.get("prefix") + "§cTeleport cancelled because payment could not be collected.");
             return;
         }
+        Location destination = destinationSupplier.get();
+        if (destination == null) {
+            return;
+        }
+        if (config.teleportDisabledIn(destination.getWorld())) {
+            String dimension = destination.getWorld() == null ? "unknown" : destination.getWorld().getName();
+            tell(actor, "teleport_disabled_dimension", Map.of("dimension", dimension));
+            return;
+        }
+        // Landing is resolved before charging, and complete() refunds the charge when teleportAsync does not move the
+        // player, so a teleport that never happens is never paid for.
+        adjustLanding(destination).whenComplete((adjusted, error) -> onMainThread(() -> {
+            if (error != null) {
+                plugin.getLogger().log(Level.WARNING, "Failed resolving teleport landing", error);
+            }
+            complete(actor, kind, payerId, adjusted != null ? adjusted : destination, onSuccess, logDetail);
+        }));
+    }
+
+    private void complete(Player actor, TeleportKind kind, UUID payerId, Location adjusted, Runnable onSuccess,
+            String logDetail) {
+        if (!actor.isOnline()) {
+            return;
+        }
+        Player payer = plugin.getServer().getPlayer(payerId);
+        if (payer == null || !payer.isOnline()) {
+            actor.sendMessage(messages.get("prefix") + "§cTeleport cancelled because payment could not be collected.");
+            return;
+        }
         CostService.ChargeResult charge = costs.charge(payer, kind);
         if (!charge.success()) {
             String template = messages.get("cost_failed");
@@ -170,77 +371,108 @@ public class TeleportService {
         if (charge.paid() != null && !charge.paid().isBlank()) {
             payer.sendMessage(messages.get("prefix") + "Paid " + charge.paid() + ".");
         }
-        Location destination = destinationSupplier.get();
-        if (destination == null) {
-            return;
-        }
-        if (config.teleportDisabledIn(destination.getWorld())) {
-            String dimension = destination.getWorld() == null ? "unknown" : destination.getWorld().getName();
-            tell(actor, "teleport_disabled_dimension", Map.of("dimension", dimension));
-            return;
-        }
-        Location adjusted = adjustLanding(destination);
-        Location from = actor.getLocation().clone();
-        if (actor.teleport(adjusted)) {
-            String payerName = payer.getUniqueId().equals(actor.getUniqueId()) ? "" : payer.getName();
+        String payerName = payer.getUniqueId().equals(actor.getUniqueId()) ? "" : payer.getName();
+        // The cost is taken before teleportAsync so it cannot be spent meanwhile, and given back only if the actor was not
+        // moved: the teleport was refused or failed, or the actor quit while the destination chunk loaded.
+        teleport(actor, adjusted, from -> {
             teleportLog.record(kind.name(), actor.getName(), payerName, logDetail, from, adjusted);
             onSuccess.run();
             tell(actor, "teleport_success");
             play(actor, "success");
-        }
+        }).thenAccept(moved -> {
+            if (!moved) {
+                onMainThread(() -> refund(payerId, charge));
+            }
+        });
     }
 
-    private Location adjustLanding(Location base) {
-        if (config.landingMode() != YatpaConfig.LandingMode.RANDOM_OFFSET) {
-            return base;
+    // Runs on the main thread with the payer looked up again, since they may have relogged while the teleport ran.
+    private void refund(UUID payerId, CostService.ChargeResult charge) {
+        if (!charge.refund().to(payerId)) {
+            plugin.getLogger().warning("Could not refund " + charge.paid() + " to " + payerId + " (offline)");
+            return;
+        }
+        Player payer = plugin.getServer().getPlayer(payerId);
+        if (payer != null && charge.paid() != null && !charge.paid().isBlank()) {
+            payer.sendMessage(messages.get("prefix") + "Refunded " + charge.paid() + ".");
         }
+    }
 
+    // Every YATPA teleport goes through here. teleportAsync loads the destination chunk without blocking the tick.
+    // Completes with true whenever the player was moved, even if they quit right after; onArrived gets the origin and
+    // runs on the main thread, and is skipped when the teleport is refused or fails, or the player is no longer online.
+    public CompletableFuture<Boolean> teleport(Player player, Location destination, Consumer<Location> onArrived) {
+        Location from = player.getLocation().clone();
+        return player.teleportAsync(destination).handle((moved, error) -> {
+            if (error != null) {
+                plugin.getLogger().log(Level.WARNING, "Failed teleporting " + player.getName(), error);
+                return false;
+            }
+            if (!Boolean.TRUE.equals(moved)) {
+                return false;
+            }
+            if (player.isOnline()) {
+                onMainThread(() -> onArrived.accept(from));
+            }
+            return true;
+        });
+    }
+
+    // Picks the random offsets up front, loads the chunks they fall in without generating new ones, and checks each
+    // offset against the chunk's heightmap and block snapshot. Paper completes chunk futures on the main thread, which
+    // is where the snapshots are taken. Completes with base when no offset is safe.
+    private CompletableFuture<Location> adjustLanding(Location base) {
         World world = base.getWorld();
-        if (world == null) {
-            return base;
+        if (config.landingMode() != YatpaConfig.LandingMode.RANDOM_OFFSET || world == null) {
+            return CompletableFuture.completedFuture(base);
         }
         int maxOffset = Math.max(1, config.landingRandomOffset());
+        int[] xs = new int[LANDING_ATTEMPTS];
+        int[] zs = new int[LANDING_ATTEMPTS];
+        Map<Long, CompletableFuture<Chunk>> chunks = new HashMap<>();
+        for (int i = 0; i < LANDING_ATTEMPTS; i++) {
+            xs[i] = base.getBlockX() + ThreadLocalRandom.current().nextInt(maxOffset * 2 + 1) - maxOffset;
+            zs[i] = base.getBlockZ() + ThreadLocalRandom.current().nextInt(maxOffset * 2 + 1) - maxOffset;
+            int chunkX = xs[i] >> 4;
+            int chunkZ = zs[i] >> 4;
+            chunks.computeIfAbsent(chunkKey(chunkX, chunkZ), k -> world.getChunkAtAsync(chunkX, chunkZ, false));
+        }
         int minY = world.getMinHeight() + 1;
-        int maxY = maxSafeLandingY(world);
-        for (int i = 0; i < 8; i++) {
-            int dx = ThreadLocalRandom.current().nextInt(maxOffset * 2 + 1) - maxOffset;
-            int dz = ThreadLocalRandom.current().nextInt(maxOffset * 2 + 1) - maxOffset;
-            int x = base.getBlockX() + dx;
-            int z = base.getBlockZ() + dz;
-            int y = Math.max(minY, Math.min(maxY, world.getHighestBlockYAt(x, z) + 1));
-            Location candidate = new Location(world, x + 0.5, y, z + 0.5, base.getYaw(), base.getPitch());
-            if (isSafeStandLocation(candidate, minY, maxY)) {
-                return candidate;
+        int maxY = SafeLocationFinder.maxStandY(world);
+        return CompletableFuture.allOf(chunks.values().toArray(new CompletableFuture<?>[0])).thenApply(ignored -> {
+            Map<Long, ChunkSnapshot> snapshots = new HashMap<>();
+            for (int i = 0; i < LANDING_ATTEMPTS; i++) {
+                long key = chunkKey(xs[i] >> 4, zs[i] >> 4);
+                ChunkSnapshot snapshot = snapshots.get(key);
+                if (snapshot == null) {
+                    Chunk chunk = chunks.get(key).join();
+                    if (chunk == null) {
+                        continue;
+                    }
+                    snapshot = chunk.getChunkSnapshot(true, false, false);
+                    snapshots.put(key, snapshot);
+                }
+                int localX = xs[i] & 15;
+                int localZ = zs[i] & 15;
+                int y = Math.max(minY, Math.min(maxY, snapshot.getHighestBlockYAt(localX, localZ) + 1));
+                if (SafeLocationFinder.isSafe(snapshot, localX, y, localZ)) {
+                    return new Location(world, xs[i] + 0.5, y, zs[i] + 0.5, base.getYaw(), base.getPitch());
+                }
             }
-        }
-        return base;
+            return base;
+        });
     }
 
-    private int maxSafeLandingY(World world) {
-        int maxY = world.getMaxHeight() - 2;
-        if (world.getEnvironment() == World.Environment.NETHER) {
-            // Keep random landing offsets below the nether roof.
-            maxY = Math.min(maxY, 127);
+    private void onMainThread(Runnable task) {
+        if (plugin.getServer().isPrimaryThread()) {
+            task.run();
+        } else {
+            plugin.getServer().getScheduler().runTask(plugin, task);
         }
-        return maxY;
     }
 
-    private boolean isSafeStandLocation(Location location, int minY, int maxY) {
-        World world = location.getWorld();
-        if (world == null) {
-            return false;
-        }
-        int y = location.getBlockY();
-        if (y < minY || y > maxY) {
-            return false;
-        }
-        Location feet = location;
-        Location head = location.clone().add(0, 1, 0);
-        Location below = location.clone().subtract(0, 1, 0);
-        boolean feetClear = feet.getBlock().isPassable() && !feet.getBlock().isLiquid();
-        boolean headClear = head.getBlock().isPassable() && !head.getBlock().isLiquid();
-        boolean belowSolid = below.getBlock().getType().isSolid() && !below.getBlock().isLiquid();
-        return feetClear && headClear && belowSolid;
+    private static long chunkKey(int chunkX, int chunkZ) {
+        return ((long) chunkX << 32) | (chunkZ & 0xFFFFFFFFL);
     }
 
     public void onMove(Player player) {
@@ -252,8 +484,8 @@ public class TeleportService {
             return;
         }
         Location now = player.getLocation();
-        if (now.getBlockX() != p.origin().getBlockX() || now.getBlockY() != p.origin().getBlockY()
-                || now.getBlockZ() != p.origin().getBlockZ()) {
+        if (now.getBlockX() != p.origin.getBlockX() || now.getBlockY() != p.origin.getBlockY()
+                || now.getBlockZ() != p.origin.getBlockZ()) {
             cancelWithNotice(player, "cancelled_move");
         }
     }
@@ -300,10 +532,7 @@ public class TeleportService {
                 config.spawnZ(),
                 config.spawnYaw().floatValue(),
                 config.spawnPitch().floatValue());
-        Location from = player.getLocation().clone();
-        if (player.teleport(spawn)) {
-            teleportLog.record("SPAWN", player.getName(), "", from, spawn);
-        }
+        teleport(player, spawn, from -> teleportLog.record("SPAWN", player.getName(), "", from, spawn));
 
     }
 }
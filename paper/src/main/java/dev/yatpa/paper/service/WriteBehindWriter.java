@@ -0,0 +1,153 @@
+package dev.yatpa.paper.service;
+
+import dev.yatpa.paper.data.HomeLocation;
+import dev.yatpa.paper.data.PlayerProfile;
+import dev.yatpa.paper.storage.StorageBackend;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+public class WriteBehindWriter {
+    public record FlushStats(long flushes, long failures, int pending, long lastNanos, long maxNanos,
+            long totalNanos) {
+        public double lastMillis() {
+            return lastNanos / 1_000_000.0;
+        }
+
+        public double maxMillis() {
+            return maxNanos / 1_000_000.0;
+        }
+
+        public double averageMillis() {
+            return flushes == 0 ? 0.0 : totalNanos / (double) flushes / 1_000_000.0;
+        }
+    }
+
+    private record Dirty(PlayerProfile profile, int sections) {
+        Dirty merge(Dirty other) {
+            return new Dirty(other.profile, sections | other.sections);
+        }
+    }
+
+    private final StorageBackend backend;
+    private final Logger logger;
+    private final Map<UUID, Dirty> dirtyProfiles = new ConcurrentHashMap<>();
+    private final Map<String, HomeLocation> dirtyOffline = new ConcurrentHashMap<>();
+    private final Map<String, UUID> offlineOwners = new ConcurrentHashMap<>();
+    private final Map<UUID, Dirty> inFlight = new ConcurrentHashMap<>();
+    private final Set<String> offlineInFlight = ConcurrentHashMap.newKeySet();
+    private final Object flushLock = new Object();
+    private volatile long flushes;
+    private volatile long failures;
+    private volatile long lastNanos;
+    private volatile long maxNanos;
+    private volatile long totalNanos;
+
+    public WriteBehindWriter(StorageBackend backend, Logger logger) {
+        this.backend = backend;
+        this.logger = logger;
+    }
+
+    // Repeated marks for the same player coalesce into one write at the next flush.
+    public void markDirty(PlayerProfile profile, StorageBackend.Section section) {
+        dirtyProfiles.merge(profile.uuid(), new Dirty(profile, 1 << section.ordinal()), Dirty::merge);
+    }
+
+    public void markOfflineDirty(String name, UUID owner, HomeLocation location) {
+        if (owner != null) {
+            offlineOwners.put(name, owner);
+        }
+        dirtyOffline.put(name, location);
+    }
+
+    public boolean hasPending() {
+        return !dirtyProfiles.isEmpty() || !dirtyOffline.isEmpty();
+    }
+
+    // Covers both queued and currently-writing profiles so eviction never drops unsaved data.
+    public boolean isPending(UUID uuid) {
+        return dirtyProfiles.containsKey(uuid) || inFlight.containsKey(uuid);
+    }
+
+    public boolean isOfflinePending(String name) {
+        return dirtyOffline.containsKey(name) || offlineInFlight.contains(name);
+    }
+
+    public void flush() {
+        synchronized (flushLock) {
+            if (!hasPending()) {
+                return;
+            }
+            long start = System.nanoTime();
+            Map<UUID, Dirty> drained = new HashMap<>();
+            List<StorageBackend.ProfileChange> changes = new ArrayList<>();
+            for (UUID uuid : List.copyOf(dirtyProfiles.keySet())) {
+                Dirty dirty = dirtyProfiles.get(uuid);
+                if (dirty != null) {
+                    // In flight before it leaves the dirty map, so isPending never reports an unsaved profile as
+                    // saved. A mark that lands in between stays queued for the next flush.
+                    inFlight.put(uuid, dirty);
+                    dirtyProfiles.remove(uuid, dirty);
+                    drained.put(uuid, dirty);
+                    changes.add(new StorageBackend.ProfileChange(dirty.profile(), sections(dirty.sections())));
+                }
+            }
+            Map<String, HomeLocation> offline = new HashMap<>();
+            Map<String, UUID> owners = new HashMap<>();
+            for (String name : List.copyOf(dirtyOffline.keySet())) {
+                HomeLocation location = dirtyOffline.get(name);
+                if (location != null) {
+                    offlineInFlight.add(name);
+                    dirtyOffline.remove(name, location);
+                    offline.put(name, location);
+                    UUID owner = offlineOwners.remove(name);
+                    if (owner != null) {
+                        owners.put(name, owner);
+                    }
+                }
+            }
+            try {
+                backend.write(new StorageBackend.Batch(changes, offline, owners));
+            } catch (RuntimeException e) {
+                // Requeue so the next flush retries; newer marks win over the drained ones.
+                drained.forEach((uuid, dirty) -> dirtyProfiles.merge(uuid, dirty, (current, old) -> old.merge(current)));
+                owners.forEach(offlineOwners::putIfAbsent);
+                offline.forEach(dirtyOffline::putIfAbsent);
+                failures++;
+                logger.log(Level.WARNING, "Failed flushing player data to " + backend.name() + " storage", e);
+            } finally {
+                drained.keySet().forEach(inFlight::remove);
+                offline.keySet().forEach(offlineInFlight::remove);
+            }
+            long elapsed = System.nanoTime() - start;
+            flushes++;
+            lastNanos = elapsed;
+            totalNanos += elapsed;
+            if (elapsed > maxNanos) {
+                maxNanos = elapsed;
+            }
+        }
+    }
+
+    public FlushStats stats() {
+        return new FlushStats(flushes, failures, dirtyProfiles.size() + dirtyOffline.size(), lastNanos, maxNanos,
+                totalNanos);
+    }
+
+    private static Set<StorageBackend.Section> sections(int mask) {
+        Set<StorageBackend.Section> out = EnumSet.noneOf(StorageBackend.Section.class);
+        for (StorageBackend.Section section : StorageBackend.Section.values()) {
+            if ((mask & (1 << section.ordinal())) != 0) {
+                out.add(section);
+            }
+        }
+        return out;
+    }
+}
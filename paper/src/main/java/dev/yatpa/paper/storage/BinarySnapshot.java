@@ -0,0 +1,253 @@
+package dev.yatpa.paper.storage;
+
+import dev.yatpa.paper.data.HomeLocation;
+import dev.yatpa.paper.data.PlayerProfile;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.zip.CRC32;
+
+// Versioned binary copy of the YAML data. The header records the size and mtime of each source file, so the snapshot is
+// only trusted while the YAML it was written from is unchanged; anything else (stale, truncated, bad checksum) falls back.
+public final class BinarySnapshot {
+    private static final int MAGIC = 0x59545053;
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 4 + 4 + 4 + 8;
+
+    private static final int ACCEPTING_SET = 1;
+    private static final int ACCEPTING = 1 << 1;
+    private static final int HOME_LIMIT = 1 << 2;
+    private static final int DEFAULT_HOME = 1 << 3;
+    private static final int DEATH_RECORDED = 1 << 4;
+    private static final int DEATH_USED = 1 << 5;
+    private static final int DEATH_LOCATION = 1 << 6;
+
+    private BinarySnapshot() {
+    }
+
+    public static long[] stamps(File... sources) {
+        long[] out = new long[sources.length * 2];
+        for (int i = 0; i < sources.length; i++) {
+            out[i * 2] = sources[i].length();
+            out[i * 2 + 1] = sources[i].lastModified();
+        }
+        return out;
+    }
+
+    public static void write(Path file, long[] stamps, Collection<PlayerProfile> profiles,
+            Map<String, HomeLocation> offlineLocations) throws IOException {
+        Map<String, Integer> worlds = new LinkedHashMap<>();
+        ByteArrayOutputStream body = new ByteArrayOutputStream(64 + profiles.size() * 96);
+        DataOutputStream out = new DataOutputStream(body);
+        out.writeInt(profiles.size());
+        for (PlayerProfile profile : profiles) {
+            // Read each field once; the profile may be updated on the main thread while this runs.
+            Boolean accepting = profile.accepting();
+            Integer homeLimit = profile.homeLimit();
+            String defaultHome = profile.defaultHome();
+            Set<UUID> blocked = profile.blocked();
+            Map<String, HomeLocation> homes = profile.homes();
+            HomeLocation death = profile.deathLocation();
+            writeUuid(out, profile.uuid());
+            int flags = 0;
+            if (accepting != null) {
+                flags |= ACCEPTING_SET | (accepting ? ACCEPTING : 0);
+            }
+            flags |= homeLimit != null ? HOME_LIMIT : 0;
+            flags |= defaultHome != null ? DEFAULT_HOME : 0;
+            if (profile.deathRecorded()) {
+                flags |= DEATH_RECORDED | (profile.deathUsed() ? DEATH_USED : 0);
+                flags |= death != null ? DEATH_LOCATION : 0;
+            }
+            out.writeByte(flags);
+            if (homeLimit != null) {
+                out.writeInt(homeLimit);
+            }
+            if (defaultHome != null) {
+                writeString(out, defaultHome);
+            }
+            out.writeInt(blocked.size());
+            for (UUID target : blocked) {
+                writeUuid(out, target);
+            }
+            out.writeInt(homes.size());
+            for (Map.Entry<String, HomeLocation> home : homes.entrySet()) {
+                writeString(out, home.getKey());
+                writeLocation(out, worlds, home.getValue());
+            }
+            if ((flags & DEATH_LOCATION) != 0) {
+                writeLocation(out, worlds, death);
+            }
+        }
+        out.writeInt(offlineLocations.size());
+        for (Map.Entry<String, HomeLocation> entry : offlineLocations.entrySet()) {
+            writeString(out, entry.getKey());
+            writeLocation(out, worlds, entry.getValue());
+        }
+        out.flush();
+
+        ByteArrayOutputStream table = new ByteArrayOutputStream();
+        DataOutputStream tableOut = new DataOutputStream(table);
+        tableOut.writeInt(worlds.size());
+        for (String world : worlds.keySet()) {
+            writeString(tableOut, world);
+        }
+        tableOut.flush();
+
+        int payloadLength = table.size() + body.size();
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + stamps.length * 8 + 4 + payloadLength);
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(stamps.length);
+        for (long stamp : stamps) {
+            buffer.putLong(stamp);
+        }
+        buffer.putInt(payloadLength);
+        int payloadStart = buffer.position() + 8;
+        buffer.position(payloadStart);
+        buffer.put(table.toByteArray()).put(body.toByteArray());
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), payloadStart, payloadLength);
+        buffer.putLong(payloadStart - 8, crc.getValue());
+        AtomicFiles.write(file, buffer.array());
+    }
+
+    // Returns false when there is no snapshot or it was written from different source files; throws when it is corrupt.
+    public static boolean read(Path file, long[] stamps, Map<UUID, PlayerProfile> profiles,
+            Map<String, HomeLocation> offlineLocations) throws IOException {
+        if (!Files.isRegularFile(file)) {
+            return false;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                throw new IOException("Unknown snapshot format");
+            }
+            int stampCount = buffer.getInt();
+            if (stampCount != stamps.length) {
+                return false;
+            }
+            for (long stamp : stamps) {
+                if (buffer.getLong() != stamp) {
+                    return false;
+                }
+            }
+            int payloadLength = buffer.getInt();
+            long checksum = buffer.getLong();
+            if (payloadLength != buffer.remaining()) {
+                throw new IOException("Snapshot is truncated");
+            }
+            CRC32 crc = new CRC32();
+            crc.update(buffer.slice(buffer.position(), payloadLength));
+            if (crc.getValue() != checksum) {
+                throw new IOException("Snapshot checksum mismatch");
+            }
+            readPayload(buffer, profiles, offlineLocations);
+            return true;
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException
+                | NegativeArraySizeException e) {
+            throw new IOException("Snapshot is corrupt", e);
+        }
+    }
+
+    private static void readPayload(ByteBuffer in, Map<UUID, PlayerProfile> profiles,
+            Map<String, HomeLocation> offlineLocations) {
+        String[] worlds = new String[in.getInt()];
+        for (int i = 0; i < worlds.length; i++) {
+            worlds[i] = readString(in);
+        }
+        int profileCount = in.getInt();
+        for (int i = 0; i < profileCount; i++) {
+            PlayerProfile profile = new PlayerProfile(readUuid(in));
+            int flags = in.get();
+            if ((flags & ACCEPTING_SET) != 0) {
+                profile.setAccepting((flags & ACCEPTING) != 0);
+            }
+            if ((flags & HOME_LIMIT) != 0) {
+                profile.setHomeLimit(in.getInt());
+            }
+            if ((flags & DEFAULT_HOME) != 0) {
+                profile.setDefaultHome(readString(in));
+            }
+            int blockedCount = in.getInt();
+            if (blockedCount > 0) {
+                Set<UUID> blocked = new HashSet<>();
+                for (int j = 0; j < blockedCount; j++) {
+                    blocked.add(readUuid(in));
+                }
+                profile.setBlocked(blocked);
+            }
+            int homeCount = in.getInt();
+            if (homeCount > 0) {
+                Map<String, HomeLocation> homes = new LinkedHashMap<>();
+                for (int j = 0; j < homeCount; j++) {
+                    String name = readString(in);
+                    homes.put(name, readLocation(in, worlds));
+                }
+                profile.setHomes(homes);
+            }
+            if ((flags & DEATH_RECORDED) != 0) {
+                HomeLocation death = (flags & DEATH_LOCATION) != 0 ? readLocation(in, worlds) : null;
+                profile.setDeath(death, (flags & DEATH_USED) != 0);
+            }
+            profiles.put(profile.uuid(), profile);
+        }
+        int offlineCount = in.getInt();
+        for (int i = 0; i < offlineCount; i++) {
+            String name = readString(in);
+            offlineLocations.put(name, readLocation(in, worlds));
+        }
+    }
+
+    private static void writeUuid(DataOutputStream out, UUID uuid) throws IOException {
+        out.writeLong(uuid.getMostSignificantBits());
+        out.writeLong(uuid.getLeastSignificantBits());
+    }
+
+    private static UUID readUuid(ByteBuffer in) {
+        return new UUID(in.getLong(), in.getLong());
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > 0xFFFF) {
+            throw new IOException("String too long for snapshot: " + value.substring(0, 32));
+        }
+        out.writeShort(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = Short.toUnsignedInt(in.getShort());
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeLocation(DataOutputStream out, Map<String, Integer> worlds, HomeLocation location)
+            throws IOException {
+        out.writeInt(worlds.computeIfAbsent(location.world(), k -> worlds.size()));
+        out.writeDouble(location.x());
+        out.writeDouble(location.y());
+        out.writeDouble(location.z());
+        out.writeFloat(location.yaw());
+        out.writeFloat(location.pitch());
+    }
+
+    private static HomeLocation readLocation(ByteBuffer in, String[] worlds) {
+        String world = worlds[in.getInt()];
+        return new HomeLocation(world, in.getDouble(), in.getDouble(), in.getDouble(), in.getFloat(), in.getFloat());
+    }
+}
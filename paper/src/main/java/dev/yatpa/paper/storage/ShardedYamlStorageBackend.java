@@ -0,0 +1,294 @@
+package dev.yatpa.paper.storage;
+
+import dev.yatpa.paper.data.HomeLocation;
+import dev.yatpa.paper.data.PlayerProfile;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.InvalidConfigurationException;
+import org.bukkit.configuration.file.YamlConfiguration;
+
+// One file per player under players/<first two uuid chars>/<uuid>.yml, plus names.idx mapping logout names to uuids.
+public class ShardedYamlStorageBackend implements StorageBackend {
+    private final File root;
+    private final File indexFile;
+    private final NavigableMap<String, UUID> index = new ConcurrentSkipListMap<>();
+    private final Map<UUID, String> namesByUuid = new ConcurrentHashMap<>();
+    private final Logger logger;
+
+    public ShardedYamlStorageBackend(File dataDirectory, Logger logger) {
+        this.logger = logger;
+        this.root = new File(dataDirectory, "players");
+        if (!root.exists() && !root.mkdirs()) {
+            throw new IllegalStateException("Could not create data directory");
+        }
+        this.indexFile = new File(root, "names.idx");
+        loadIndex();
+    }
+
+    @Override
+    public String name() {
+        return "SHARDED";
+    }
+
+    @Override
+    public synchronized void loadAll(Map<UUID, PlayerProfile> profiles, Map<String, HomeLocation> offlineLocations) {
+        for (File file : shardFiles()) {
+            UUID uuid = YamlStorageBackend.parseUuid(file.getName().substring(0, file.getName().length() - 4));
+            if (uuid == null) {
+                continue;
+            }
+            // One damaged file must not keep the plugin from enabling; the player starts without data and the file is
+            // left alone, since writes refuse to overwrite a shard they cannot read.
+            YamlConfiguration shard;
+            try {
+                shard = readShard(file);
+            } catch (IllegalStateException e) {
+                logger.log(Level.WARNING, "Skipping unreadable player file " + file.getName(), e);
+                continue;
+            }
+            profiles.put(uuid, readProfile(uuid, shard));
+            String name = shard.getString("name");
+            HomeLocation logout = YamlStorageBackend.readLocation(shard.getConfigurationSection("logout"));
+            if (name != null && logout != null) {
+                offlineLocations.put(name, logout);
+            }
+        }
+    }
+
+    @Override
+    public synchronized PlayerProfile loadProfile(UUID uuid) {
+        File file = shardFile(uuid);
+        return file.exists() ? readProfile(uuid, readShard(file)) : null;
+    }
+
+    @Override
+    public synchronized HomeLocation loadOfflineLocation(String name) {
+        UUID owner = index.get(name);
+        if (owner == null) {
+            return null;
+        }
+        File file = shardFile(owner);
+        if (!file.exists()) {
+            return null;
+        }
+        YamlConfiguration shard = readShard(file);
+        if (!name.equals(shard.getString("name"))) {
+            return null;
+        }
+        return YamlStorageBackend.readLocation(shard.getConfigurationSection("logout"));
+    }
+
+    @Override
+    public List<String> offlineNames(String prefix, int limit) {
+        return index.subMap(prefix, true, prefix + Character.MAX_VALUE, false).keySet().stream().limit(limit)
+                .toList();
+    }
+
+    // Only the shards of players in the batch are read back and rewritten; the index is rewritten when a name moves.
+    @Override
+    public synchronized void write(Batch batch) {
+        Map<UUID, YamlConfiguration> touched = new HashMap<>();
+        for (ProfileChange change : batch.profiles()) {
+            PlayerProfile profile = change.profile();
+            YamlConfiguration shard = touched.computeIfAbsent(profile.uuid(), this::existingShard);
+            if (change.sections().contains(Section.PREFS)) {
+                writePrefs(shard, profile);
+            }
+            if (change.sections().contains(Section.HOMES)) {
+                shard.set("homes", null);
+                for (Map.Entry<String, HomeLocation> entry : profile.homes().entrySet()) {
+                    YamlStorageBackend.writeLocation(shard, "homes." + entry.getKey(), entry.getValue());
+                }
+            }
+            if (change.sections().contains(Section.LOCATIONS) && profile.deathRecorded()) {
+                shard.set("death", null);
+                if (profile.deathLocation() != null) {
+                    YamlStorageBackend.writeLocation(shard, "death", profile.deathLocation());
+                }
+                shard.set("death.used", profile.deathUsed());
+            }
+        }
+        boolean indexChanged = false;
+        for (Map.Entry<String, HomeLocation> entry : batch.offlineLocations().entrySet()) {
+            String name = entry.getKey();
+            UUID owner = batch.offlineOwners().get(name);
+            if (owner == null) {
+                owner = index.get(name);
+            }
+            if (owner == null) {
+                owner = UUID.nameUUIDFromBytes(("OfflinePlayer:" + name).getBytes(StandardCharsets.UTF_8));
+            }
+            YamlConfiguration shard = touched.computeIfAbsent(owner, this::existingShard);
+            shard.set("name", name);
+            YamlStorageBackend.writeLocation(shard, "logout", entry.getValue());
+            indexChanged |= index(name, owner);
+        }
+        for (Map.Entry<UUID, YamlConfiguration> entry : touched.entrySet()) {
+            File file = shardFile(entry.getKey());
+            File parent = file.getParentFile();
+            if (!parent.exists() && !parent.mkdirs()) {
+                throw new IllegalStateException("Could not create shard directory " + parent.getName());
+            }
+            save(file, entry.getValue().saveToString());
+        }
+        if (indexChanged) {
+            save(indexFile, serializeIndex());
+        }
+    }
+
+    @Override
+    public void close() {
+    }
+
+    private boolean index(String name, UUID owner) {
+        UUID previousOwner = index.put(name, owner);
+        String previousName = namesByUuid.put(owner, name);
+        if (previousOwner != null && !previousOwner.equals(owner)) {
+            namesByUuid.remove(previousOwner, name);
+        }
+        if (previousName != null && !previousName.equals(name)) {
+            index.remove(previousName, owner);
+        }
+        return !owner.equals(previousOwner) || !name.equals(previousName);
+    }
+
+    private void loadIndex() {
+        if (!indexFile.exists()) {
+            rebuildIndex();
+            return;
+        }
+        try {
+            for (String line : Files.readAllLines(indexFile.toPath(), StandardCharsets.UTF_8)) {
+                int split = line.indexOf(' ');
+                UUID owner = split < 0 ? null : YamlStorageBackend.parseUuid(line.substring(split + 1));
+                if (owner != null) {
+                    index(line.substring(0, split), owner);
+                }
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed reading " + indexFile.getName(), e);
+        }
+    }
+
+    private void rebuildIndex() {
+        for (File file : shardFiles()) {
+            UUID uuid = YamlStorageBackend.parseUuid(file.getName().substring(0, file.getName().length() - 4));
+            String name = uuid == null ? null : readShard(file).getString("name");
+            if (name != null) {
+                index(name, uuid);
+            }
+        }
+        if (!index.isEmpty()) {
+            save(indexFile, serializeIndex());
+        }
+    }
+
+    private String serializeIndex() {
+        StringBuilder out = new StringBuilder(index.size() * 52);
+        index.forEach((name, owner) -> out.append(name).append(' ').append(owner).append('\n'));
+        return out.toString();
+    }
+
+    private List<File> shardFiles() {
+        File[] directories = root.listFiles(File::isDirectory);
+        if (directories == null) {
+            return List.of();
+        }
+        List<File> out = new ArrayList<>();
+        for (File directory : directories) {
+            File[] files = directory.listFiles((dir, name) -> name.endsWith(".yml"));
+            if (files != null) {
+                out.addAll(List.of(files));
+            }
+        }
+        return out;
+    }
+
+    private File shardFile(UUID uuid) {
+        String key = uuid.toString();
+        return new File(new File(root, key.substring(0, 2)), key + ".yml");
+    }
+
+    private YamlConfiguration existingShard(UUID uuid) {
+        File file = shardFile(uuid);
+        return file.exists() ? readShard(file) : new YamlConfiguration();
+    }
+
+    // A shard that fails to parse aborts the flush instead of being overwritten with partial data.
+    private YamlConfiguration readShard(File file) {
+        YamlConfiguration shard = new YamlConfiguration();
+        try {
+            shard.loadFromString(Files.readString(file.toPath(), StandardCharsets.UTF_8));
+        } catch (IOException | InvalidConfigurationException e) {
+            throw new IllegalStateException("Failed reading " + file.getName(), e);
+        }
+        return shard;
+    }
+
+    private void save(File file, String content) {
+        try {
+            AtomicFiles.write(file.toPath(), content);
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed saving " + file.getName(), e);
+        }
+    }
+
+    private static PlayerProfile readProfile(UUID uuid, YamlConfiguration shard) {
+        PlayerProfile profile = new PlayerProfile(uuid);
+        if (shard.contains("accepting")) {
+            profile.setAccepting(shard.getBoolean("accepting", true));
+        }
+        if (shard.contains("home_limit")) {
+            profile.setHomeLimit(shard.getInt("home_limit"));
+        }
+        profile.setDefaultHome(shard.getString("default_home"));
+        Set<UUID> blocked = new HashSet<>();
+        for (String value : shard.getStringList("blocked")) {
+            UUID other = YamlStorageBackend.parseUuid(value);
+            if (other != null) {
+                blocked.add(other);
+            }
+        }
+        profile.setBlocked(blocked);
+        ConfigurationSection homes = shard.getConfigurationSection("homes");
+        if (homes != null) {
+            Map<String, HomeLocation> out = new LinkedHashMap<>();
+            for (String name : homes.getKeys(false)) {
+                HomeLocation home = YamlStorageBackend.readLocation(homes.getConfigurationSection(name));
+                if (home != null) {
+                    out.put(name.toLowerCase(), home);
+                }
+            }
+            profile.setHomes(out);
+        }
+        ConfigurationSection death = shard.getConfigurationSection("death");
+        if (death != null) {
+            profile.setDeath(YamlStorageBackend.readLocation(death), death.getBoolean("used", false));
+        }
+        return profile;
+    }
+
+    private static void writePrefs(YamlConfiguration shard, PlayerProfile profile) {
+        shard.set("accepting", profile.accepting());
+        shard.set("home_limit", profile.homeLimit());
+        shard.set("default_home", profile.defaultHome());
+        shard.set("blocked", profile.blocked().isEmpty() ? null
+                : profile.blocked().stream().map(UUID::toString).toList());
+    }
+}
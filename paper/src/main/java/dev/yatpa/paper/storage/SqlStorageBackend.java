@@ -0,0 +1,353 @@
+package dev.yatpa.paper.storage;
+
+import dev.yatpa.paper.data.HomeLocation;
+import dev.yatpa.paper.data.PlayerProfile;
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+public class SqlStorageBackend implements StorageBackend {
+    private static final String[] SCHEMA = {
+            "CREATE TABLE IF NOT EXISTS yatpa_players (uuid TEXT PRIMARY KEY, accepting INTEGER, home_limit INTEGER,"
+                    + " default_home TEXT)",
+            "CREATE TABLE IF NOT EXISTS yatpa_blocked (owner TEXT NOT NULL, target TEXT NOT NULL,"
+                    + " PRIMARY KEY (owner, target))",
+            "CREATE TABLE IF NOT EXISTS yatpa_homes (uuid TEXT NOT NULL, name TEXT NOT NULL, world TEXT NOT NULL,"
+                    + " x REAL NOT NULL, y REAL NOT NULL, z REAL NOT NULL, yaw REAL NOT NULL, pitch REAL NOT NULL,"
+                    + " PRIMARY KEY (uuid, name))",
+            "CREATE TABLE IF NOT EXISTS yatpa_deaths (uuid TEXT PRIMARY KEY, world TEXT, x REAL, y REAL, z REAL,"
+                    + " yaw REAL, pitch REAL, used INTEGER NOT NULL)",
+            "CREATE TABLE IF NOT EXISTS yatpa_offline (name TEXT PRIMARY KEY, world TEXT NOT NULL, x REAL NOT NULL,"
+                    + " y REAL NOT NULL, z REAL NOT NULL, yaw REAL NOT NULL, pitch REAL NOT NULL)"
+    };
+
+    private final Connection connection;
+
+    public SqlStorageBackend(File dataDirectory) {
+        if (!dataDirectory.exists() && !dataDirectory.mkdirs()) {
+            throw new IllegalStateException("Could not create data directory");
+        }
+        File database = new File(dataDirectory, "yatpa.db");
+        try {
+            Class.forName("org.sqlite.JDBC");
+            this.connection = DriverManager.getConnection("jdbc:sqlite:" + database.getAbsolutePath());
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("PRAGMA journal_mode=WAL");
+                statement.execute("PRAGMA synchronous=NORMAL");
+                for (String ddl : SCHEMA) {
+                    statement.execute(ddl);
+                }
+            }
+            connection.setAutoCommit(false);
+            connection.commit();
+        } catch (ClassNotFoundException | SQLException e) {
+            throw new IllegalStateException("Failed opening " + database.getName(), e);
+        }
+    }
+
+    @Override
+    public String name() {
+        return "SQLITE";
+    }
+
+    @Override
+    public synchronized void loadAll(Map<UUID, PlayerProfile> profiles, Map<String, HomeLocation> offlineLocations) {
+        try {
+            Map<UUID, Set<UUID>> blocked = new HashMap<>();
+            Map<UUID, Map<String, HomeLocation>> homes = new HashMap<>();
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "SELECT uuid, accepting, home_limit, default_home FROM yatpa_players");
+                    ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    UUID uuid = YamlStorageBackend.parseUuid(rs.getString(1));
+                    if (uuid != null) {
+                        readPrefs(profiles.computeIfAbsent(uuid, PlayerProfile::new), rs);
+                    }
+                }
+            }
+            try (PreparedStatement statement = connection.prepareStatement("SELECT owner, target FROM yatpa_blocked");
+                    ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    UUID owner = YamlStorageBackend.parseUuid(rs.getString(1));
+                    UUID target = YamlStorageBackend.parseUuid(rs.getString(2));
+                    if (owner != null && target != null) {
+                        blocked.computeIfAbsent(owner, k -> new HashSet<>()).add(target);
+                    }
+                }
+            }
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "SELECT uuid, name, world, x, y, z, yaw, pitch FROM yatpa_homes");
+                    ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    UUID uuid = YamlStorageBackend.parseUuid(rs.getString(1));
+                    if (uuid != null) {
+                        homes.computeIfAbsent(uuid, k -> new LinkedHashMap<>()).put(rs.getString(2), readLocation(rs, 3));
+                    }
+                }
+            }
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "SELECT uuid, world, x, y, z, yaw, pitch, used FROM yatpa_deaths");
+                    ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    UUID uuid = YamlStorageBackend.parseUuid(rs.getString(1));
+                    if (uuid != null) {
+                        readDeath(profiles.computeIfAbsent(uuid, PlayerProfile::new), rs);
+                    }
+                }
+            }
+            blocked.forEach((uuid, set) -> profiles.computeIfAbsent(uuid, PlayerProfile::new).setBlocked(set));
+            homes.forEach((uuid, map) -> profiles.computeIfAbsent(uuid, PlayerProfile::new).setHomes(map));
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "SELECT name, world, x, y, z, yaw, pitch FROM yatpa_offline");
+                    ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    offlineLocations.put(rs.getString(1), readLocation(rs, 2));
+                }
+            }
+            connection.commit();
+        } catch (SQLException e) {
+            throw new IllegalStateException("Failed loading player data from SQLite", e);
+        }
+    }
+
+    @Override
+    public synchronized PlayerProfile loadProfile(UUID uuid) {
+        String key = uuid.toString();
+        PlayerProfile profile = new PlayerProfile(uuid);
+        boolean found = false;
+        try {
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "SELECT uuid, accepting, home_limit, default_home FROM yatpa_players WHERE uuid = ?")) {
+                statement.setString(1, key);
+                try (ResultSet rs = statement.executeQuery()) {
+                    if (rs.next()) {
+                        readPrefs(profile, rs);
+                        found = true;
+                    }
+                }
+            }
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "SELECT target FROM yatpa_blocked WHERE owner = ?")) {
+                statement.setString(1, key);
+                Set<UUID> blocked = new HashSet<>();
+                try (ResultSet rs = statement.executeQuery()) {
+                    while (rs.next()) {
+                        UUID target = YamlStorageBackend.parseUuid(rs.getString(1));
+                        if (target != null) {
+                            blocked.add(target);
+                        }
+                    }
+                }
+                profile.setBlocked(blocked);
+                found |= !blocked.isEmpty();
+            }
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "SELECT uuid, name, world, x, y, z, yaw, pitch FROM yatpa_homes WHERE uuid = ?")) {
+                statement.setString(1, key);
+                Map<String, HomeLocation> homes = new LinkedHashMap<>();
+                try (ResultSet rs = statement.executeQuery()) {
+                    while (rs.next()) {
+                        homes.put(rs.getString(2), readLocation(rs, 3));
+                    }
+                }
+                profile.setHomes(homes);
+                found |= !homes.isEmpty();
+            }
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "SELECT uuid, world, x, y, z, yaw, pitch, used FROM yatpa_deaths WHERE uuid = ?")) {
+                statement.setString(1, key);
+                try (ResultSet rs = statement.executeQuery()) {
+                    if (rs.next()) {
+                        readDeath(profile, rs);
+                        found = true;
+                    }
+                }
+            }
+            connection.commit();
+        } catch (SQLException e) {
+            throw new IllegalStateException("Failed loading player " + uuid + " from SQLite", e);
+        }
+        return found ? profile : null;
+    }
+
+    @Override
+    public synchronized HomeLocation loadOfflineLocation(String name) {
+        try (PreparedStatement statement = connection.prepareStatement(
+                "SELECT name, world, x, y, z, yaw, pitch FROM yatpa_offline WHERE name = ?")) {
+            statement.setString(1, name);
+            try (ResultSet rs = statement.executeQuery()) {
+                HomeLocation location = rs.next() ? readLocation(rs, 2) : null;
+                connection.commit();
+                return location;
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("Failed loading logout location for " + name + " from SQLite", e);
+        }
+    }
+
+    // Range scan on the primary key index; the upper bound is the prefix followed by the highest char.
+    @Override
+    public synchronized List<String> offlineNames(String prefix, int limit) {
+        try (PreparedStatement statement = connection.prepareStatement(
+                "SELECT name FROM yatpa_offline WHERE name >= ? AND name < ? ORDER BY name LIMIT ?")) {
+            statement.setString(1, prefix);
+            statement.setString(2, prefix + Character.MAX_VALUE);
+            statement.setInt(3, limit);
+            List<String> names = new ArrayList<>();
+            try (ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    names.add(rs.getString(1));
+                }
+            }
+            connection.commit();
+            return names;
+        } catch (SQLException e) {
+            throw new IllegalStateException("Failed listing logout locations from SQLite", e);
+        }
+    }
+
+    // Each section is replaced per player with batched prepared statements inside one transaction.
+    @Override
+    public synchronized void write(Batch batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try (PreparedStatement upsertPrefs = connection.prepareStatement(
+                "INSERT OR REPLACE INTO yatpa_players (uuid, accepting, home_limit, default_home) VALUES (?, ?, ?, ?)");
+                PreparedStatement clearBlocked = connection.prepareStatement("DELETE FROM yatpa_blocked WHERE owner = ?");
+                PreparedStatement insertBlocked = connection.prepareStatement(
+                        "INSERT INTO yatpa_blocked (owner, target) VALUES (?, ?)");
+                PreparedStatement clearHomes = connection.prepareStatement("DELETE FROM yatpa_homes WHERE uuid = ?");
+                PreparedStatement insertHome = connection.prepareStatement(
+                        "INSERT INTO yatpa_homes (uuid, name, world, x, y, z, yaw, pitch) VALUES (?, ?, ?, ?, ?, ?, ?, ?)");
+                PreparedStatement upsertDeath = connection.prepareStatement(
+                        "INSERT OR REPLACE INTO yatpa_deaths (uuid, world, x, y, z, yaw, pitch, used)"
+                                + " VALUES (?, ?, ?, ?, ?, ?, ?, ?)");
+                PreparedStatement upsertOffline = connection.prepareStatement(
+                        "INSERT OR REPLACE INTO yatpa_offline (name, world, x, y, z, yaw, pitch) VALUES (?, ?, ?, ?, ?, ?, ?)")) {
+            for (ProfileChange change : batch.profiles()) {
+                PlayerProfile profile = change.profile();
+                String uuid = profile.uuid().toString();
+                if (change.sections().contains(Section.PREFS)) {
+                    upsertPrefs.setString(1, uuid);
+                    setNullableInt(upsertPrefs, 2, profile.accepting() == null ? null : profile.accepting() ? 1 : 0);
+                    setNullableInt(upsertPrefs, 3, profile.homeLimit());
+                    upsertPrefs.setString(4, profile.defaultHome());
+                    upsertPrefs.addBatch();
+                    clearBlocked.setString(1, uuid);
+                    clearBlocked.addBatch();
+                    for (UUID target : profile.blocked()) {
+                        insertBlocked.setString(1, uuid);
+                        insertBlocked.setString(2, target.toString());
+                        insertBlocked.addBatch();
+                    }
+                }
+                if (change.sections().contains(Section.HOMES)) {
+                    clearHomes.setString(1, uuid);
+                    clearHomes.addBatch();
+                    for (Map.Entry<String, HomeLocation> entry : profile.homes().entrySet()) {
+                        insertHome.setString(1, uuid);
+                        insertHome.setString(2, entry.getKey());
+                        bindLocation(insertHome, 3, entry.getValue());
+                        insertHome.addBatch();
+                    }
+                }
+                if (change.sections().contains(Section.LOCATIONS) && profile.deathRecorded()) {
+                    upsertDeath.setString(1, uuid);
+                    HomeLocation death = profile.deathLocation();
+                    if (death == null) {
+                        upsertDeath.setNull(2, Types.VARCHAR);
+                        for (int i = 3; i <= 7; i++) {
+                            upsertDeath.setNull(i, Types.REAL);
+                        }
+                    } else {
+                        bindLocation(upsertDeath, 2, death);
+                    }
+                    upsertDeath.setInt(8, profile.deathUsed() ? 1 : 0);
+                    upsertDeath.addBatch();
+                }
+            }
+            for (Map.Entry<String, HomeLocation> entry : batch.offlineLocations().entrySet()) {
+                upsertOffline.setString(1, entry.getKey());
+                bindLocation(upsertOffline, 2, entry.getValue());
+                upsertOffline.addBatch();
+            }
+            upsertPrefs.executeBatch();
+            clearBlocked.executeBatch();
+            insertBlocked.executeBatch();
+            clearHomes.executeBatch();
+            insertHome.executeBatch();
+            upsertDeath.executeBatch();
+            upsertOffline.executeBatch();
+            connection.commit();
+        } catch (SQLException e) {
+            try {
+                connection.rollback();
+            } catch (SQLException ignored) {
+            }
+            throw new IllegalStateException("Failed writing player data to SQLite", e);
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        try {
+            connection.close();
+        } catch (SQLException ignored) {
+        }
+    }
+
+    private static void readPrefs(PlayerProfile profile, ResultSet rs) throws SQLException {
+        int accepting = rs.getInt(2);
+        profile.setAccepting(rs.wasNull() ? null : accepting != 0);
+        int limit = rs.getInt(3);
+        profile.setHomeLimit(rs.wasNull() ? null : limit);
+        profile.setDefaultHome(rs.getString(4));
+    }
+
+    private static void readDeath(PlayerProfile profile, ResultSet rs) throws SQLException {
+        HomeLocation location = rs.getString(2) == null ? null : readLocation(rs, 2);
+        profile.setDeath(location, rs.getInt(8) != 0);
+    }
+
+    private static HomeLocation readLocation(ResultSet rs, int first) throws SQLException {
+        return new HomeLocation(
+                rs.getString(first),
+                rs.getDouble(first + 1),
+                rs.getDouble(first + 2),
+                rs.getDouble(first + 3),
+                rs.getFloat(first + 4),
+                rs.getFloat(first + 5));
+    }
+
+    private static void bindLocation(PreparedStatement statement, int first, HomeLocation location)
+            throws SQLException {
+        statement.setString(first, location.world());
+        statement.setDouble(first + 1, location.x());
+        statement.setDouble(first + 2, location.y());
+        statement.setDouble(first + 3, location.z());
+        statement.setFloat(first + 4, location.yaw());
+        statement.setFloat(first + 5, location.pitch());
+    }
+
+    private static void setNullableInt(PreparedStatement statement, int index, Integer value) throws SQLException {
+        if (value == null) {
+            statement.setNull(index, Types.INTEGER);
+        } else {
+            statement.setInt(index, value);
+        }
+    }
+}
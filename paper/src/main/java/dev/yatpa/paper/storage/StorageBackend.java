@@ -0,0 +1,41 @@
+package dev.yatpa.paper.storage;
+
+import dev.yatpa.paper.data.HomeLocation;
+import dev.yatpa.paper.data.PlayerProfile;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+public interface StorageBackend extends AutoCloseable {
+    enum Section {
+        PREFS,
+        HOMES,
+        LOCATIONS
+    }
+
+    record ProfileChange(PlayerProfile profile, Set<Section> sections) {
+    }
+
+    record Batch(List<ProfileChange> profiles, Map<String, HomeLocation> offlineLocations,
+            Map<String, UUID> offlineOwners) {
+        public boolean isEmpty() {
+            return profiles.isEmpty() && offlineLocations.isEmpty();
+        }
+    }
+
+    String name();
+
+    void loadAll(Map<UUID, PlayerProfile> profiles, Map<String, HomeLocation> offlineLocations);
+
+    PlayerProfile loadProfile(UUID uuid);
+
+    HomeLocation loadOfflineLocation(String name);
+
+    List<String> offlineNames(String prefix, int limit);
+
+    void write(Batch batch);
+
+    @Override
+    void close();
+}
@@ -0,0 +1,41 @@
+package dev.yatpa.paper.storage;
+
+import dev.yatpa.paper.data.HomeLocation;
+import dev.yatpa.paper.data.PlayerProfile;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Function;
+
+public final class StorageMigrator {
+    public record Result(int profiles, int homes, int offlineLocations) {
+    }
+
+    private StorageMigrator() {
+    }
+
+    // The legacy layouts key logout locations by name only, so owners are resolved by the caller where possible.
+    public static Result copy(StorageBackend source, StorageBackend target, Function<String, UUID> owners) {
+        Map<UUID, PlayerProfile> profiles = new HashMap<>();
+        Map<String, HomeLocation> offline = new HashMap<>();
+        source.loadAll(profiles, offline);
+        List<StorageBackend.ProfileChange> changes = new ArrayList<>(profiles.size());
+        int homes = 0;
+        for (PlayerProfile profile : profiles.values()) {
+            changes.add(new StorageBackend.ProfileChange(profile, EnumSet.allOf(StorageBackend.Section.class)));
+            homes += profile.homes().size();
+        }
+        Map<String, UUID> resolved = new HashMap<>();
+        for (String name : offline.keySet()) {
+            UUID owner = owners.apply(name);
+            if (owner != null) {
+                resolved.put(name, owner);
+            }
+        }
+        target.write(new StorageBackend.Batch(changes, offline, resolved));
+        return new Result(profiles.size(), homes, offline.size());
+    }
+}
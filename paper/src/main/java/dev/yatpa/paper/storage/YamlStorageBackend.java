@@ -0,0 +1,321 @@
+package dev.yatpa.paper.storage;
+
+import dev.yatpa.paper.data.HomeLocation;
+import dev.yatpa.paper.data.PlayerProfile;
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.file.YamlConfiguration;
+
+public class YamlStorageBackend implements StorageBackend {
+    private final File playersFile;
+    private final File homesFile;
+    private final File offlineFile;
+    private final File snapshotFile;
+    private final Map<UUID, PlayerProfile> profiles = new ConcurrentHashMap<>();
+    private final Map<String, HomeLocation> offlineLocations = new ConcurrentHashMap<>();
+    private boolean loaded;
+
+    public YamlStorageBackend(File dataDirectory) {
+        this(dataDirectory, false);
+    }
+
+    public YamlStorageBackend(File dataDirectory, boolean binarySnapshot) {
+        if (!dataDirectory.exists() && !dataDirectory.mkdirs()) {
+            throw new IllegalStateException("Could not create data directory");
+        }
+        this.playersFile = new File(dataDirectory, "players.yml");
+        this.homesFile = new File(dataDirectory, "homes.yml");
+        this.offlineFile = new File(dataDirectory, "offline.yml");
+        this.snapshotFile = binarySnapshot ? new File(dataDirectory, "snapshot.bin") : null;
+    }
+
+    @Override
+    public String name() {
+        return "YAML";
+    }
+
+    @Override
+    public synchronized void loadAll(Map<UUID, PlayerProfile> profilesOut, Map<String, HomeLocation> offlineOut) {
+        if (!loadSnapshot()) {
+            profiles.clear();
+            offlineLocations.clear();
+            loadPlayers(YamlConfiguration.loadConfiguration(playersFile));
+            loadHomes(YamlConfiguration.loadConfiguration(homesFile));
+            loadOffline(YamlConfiguration.loadConfiguration(offlineFile));
+            saveSnapshot();
+        }
+        loaded = true;
+        profilesOut.putAll(profiles);
+        offlineOut.putAll(offlineLocations);
+    }
+
+    // Whole-file YAML has to stay resident to be rewritten, so point lookups parse everything once and serve from memory.
+    @Override
+    public synchronized PlayerProfile loadProfile(UUID uuid) {
+        ensureLoaded();
+        return profiles.get(uuid);
+    }
+
+    @Override
+    public synchronized HomeLocation loadOfflineLocation(String name) {
+        ensureLoaded();
+        return offlineLocations.get(name);
+    }
+
+    @Override
+    public synchronized List<String> offlineNames(String prefix, int limit) {
+        ensureLoaded();
+        return offlineLocations.keySet().stream().filter(name -> name.startsWith(prefix)).sorted().limit(limit)
+                .toList();
+    }
+
+    private void ensureLoaded() {
+        if (!loaded) {
+            loadAll(new HashMap<>(), new HashMap<>());
+        }
+    }
+
+    // The YAML layout is one file per section, so every batch rewrites each touched file from the resident profiles.
+    @Override
+    public synchronized void write(Batch batch) {
+        ensureLoaded();
+        boolean players = false;
+        boolean homes = false;
+        boolean offline = !batch.offlineLocations().isEmpty();
+        for (ProfileChange change : batch.profiles()) {
+            profiles.put(change.profile().uuid(), change.profile());
+            players |= change.sections().contains(Section.PREFS);
+            homes |= change.sections().contains(Section.HOMES);
+            offline |= change.sections().contains(Section.LOCATIONS);
+        }
+        offlineLocations.putAll(batch.offlineLocations());
+        if (players) {
+            save(playersFile, serializePlayers());
+        }
+        if (homes) {
+            save(homesFile, serializeHomes());
+        }
+        if (offline) {
+            save(offlineFile, serializeOffline());
+        }
+        if (players || homes || offline) {
+            saveSnapshot();
+        }
+    }
+
+    @Override
+    public void close() {
+    }
+
+    private void save(File file, String content) {
+        try {
+            AtomicFiles.write(file.toPath(), content);
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed saving " + file.getName(), e);
+        }
+    }
+
+    // A stale or unreadable snapshot is ignored and rebuilt from YAML.
+    private boolean loadSnapshot() {
+        if (snapshotFile == null) {
+            return false;
+        }
+        profiles.clear();
+        offlineLocations.clear();
+        try {
+            return BinarySnapshot.read(snapshotFile.toPath(), sourceStamps(), profiles, offlineLocations);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    // The snapshot is only a cache of the YAML files, so failing to write it never fails the flush.
+    private void saveSnapshot() {
+        if (snapshotFile == null) {
+            return;
+        }
+        try {
+            BinarySnapshot.write(snapshotFile.toPath(), sourceStamps(), profiles.values(), offlineLocations);
+        } catch (IOException ignored) {
+        }
+    }
+
+    private long[] sourceStamps() {
+        return BinarySnapshot.stamps(playersFile, homesFile, offlineFile);
+    }
+
+    private PlayerProfile profile(UUID uuid) {
+        return profiles.computeIfAbsent(uuid, PlayerProfile::new);
+    }
+
+    private void loadPlayers(YamlConfiguration players) {
+        ConfigurationSection root = players.getConfigurationSection("players");
+        if (root == null) {
+            return;
+        }
+        for (String key : root.getKeys(false)) {
+            UUID uuid = parseUuid(key);
+            ConfigurationSection section = root.getConfigurationSection(key);
+            if (uuid == null || section == null) {
+                continue;
+            }
+            PlayerProfile profile = profile(uuid);
+            if (section.contains("accepting")) {
+                profile.setAccepting(section.getBoolean("accepting", true));
+            }
+            if (section.contains("home_limit")) {
+                profile.setHomeLimit(section.getInt("home_limit"));
+            }
+            profile.setDefaultHome(section.getString("default_home"));
+            Set<UUID> blocked = new HashSet<>();
+            for (String value : section.getStringList("blocked")) {
+                UUID other = parseUuid(value);
+                if (other != null) {
+                    blocked.add(other);
+                }
+            }
+            profile.setBlocked(blocked);
+        }
+    }
+
+    private void loadHomes(YamlConfiguration homes) {
+        ConfigurationSection root = homes.getConfigurationSection("players");
+        if (root == null) {
+            return;
+        }
+        for (String key : root.getKeys(false)) {
+            UUID uuid = parseUuid(key);
+            ConfigurationSection section = root.getConfigurationSection(key + ".homes");
+            if (uuid == null || section == null) {
+                continue;
+            }
+            Map<String, HomeLocation> out = new LinkedHashMap<>();
+            for (String name : section.getKeys(false)) {
+                HomeLocation home = readLocation(section.getConfigurationSection(name));
+                if (home != null) {
+                    out.put(name.toLowerCase(), home);
+                }
+            }
+            profile(uuid).setHomes(out);
+        }
+    }
+
+    private void loadOffline(YamlConfiguration offline) {
+        ConfigurationSection players = offline.getConfigurationSection("players");
+        if (players != null) {
+            for (String name : players.getKeys(false)) {
+                HomeLocation location = readLocation(players.getConfigurationSection(name));
+                if (location != null) {
+                    offlineLocations.put(name.toLowerCase(), location);
+                }
+            }
+        }
+        ConfigurationSection deaths = offline.getConfigurationSection("deaths");
+        if (deaths != null) {
+            for (String key : deaths.getKeys(false)) {
+                UUID uuid = parseUuid(key);
+                ConfigurationSection section = deaths.getConfigurationSection(key);
+                if (uuid == null || section == null) {
+                    continue;
+                }
+                profile(uuid).setDeath(readLocation(section), section.getBoolean("used", false));
+            }
+        }
+    }
+
+    private String serializePlayers() {
+        YamlConfiguration out = new YamlConfiguration();
+        for (PlayerProfile profile : profiles.values()) {
+            if (!profile.hasPlayerData()) {
+                continue;
+            }
+            String path = "players." + profile.uuid();
+            if (profile.accepting() != null) {
+                out.set(path + ".accepting", profile.accepting());
+            }
+            if (!profile.blocked().isEmpty()) {
+                out.set(path + ".blocked", profile.blocked().stream().map(UUID::toString).toList());
+            }
+            if (profile.homeLimit() != null) {
+                out.set(path + ".home_limit", profile.homeLimit());
+            }
+            if (profile.defaultHome() != null) {
+                out.set(path + ".default_home", profile.defaultHome());
+            }
+        }
+        return out.saveToString();
+    }
+
+    private String serializeHomes() {
+        YamlConfiguration out = new YamlConfiguration();
+        for (PlayerProfile profile : profiles.values()) {
+            for (Map.Entry<String, HomeLocation> entry : profile.homes().entrySet()) {
+                writeLocation(out, "players." + profile.uuid() + ".homes." + entry.getKey(), entry.getValue());
+            }
+        }
+        return out.saveToString();
+    }
+
+    private String serializeOffline() {
+        YamlConfiguration out = new YamlConfiguration();
+        for (Map.Entry<String, HomeLocation> entry : offlineLocations.entrySet()) {
+            writeLocation(out, "players." + entry.getKey(), entry.getValue());
+        }
+        for (PlayerProfile profile : profiles.values()) {
+            if (!profile.deathRecorded()) {
+                continue;
+            }
+            String path = "deaths." + profile.uuid();
+            HomeLocation death = profile.deathLocation();
+            if (death != null) {
+                writeLocation(out, path, death);
+            }
+            out.set(path + ".used", profile.deathUsed());
+        }
+        return out.saveToString();
+    }
+
+    static HomeLocation readLocation(ConfigurationSection section) {
+        if (section == null) {
+            return null;
+        }
+        String world = section.getString("world");
+        if (world == null) {
+            return null;
+        }
+        return new HomeLocation(
+            world,
+            section.getDouble("x"),
+            section.getDouble("y"),
+            section.getDouble("z"),
+            (float) section.getDouble("yaw"),
+            (float) section.getDouble("pitch")
+        );
+    }
+
+    static void writeLocation(ConfigurationSection out, String path, HomeLocation location) {
+        out.set(path + ".world", location.world());
+        out.set(path + ".x", location.x());
+        out.set(path + ".y", location.y());
+        out.set(path + ".z", location.z());
+        out.set(path + ".yaw", location.yaw());
+        out.set(path + ".pitch", location.pitch());
+    }
+
+    static UUID parseUuid(String value) {
+        try {
+            return UUID.fromString(value);
+        } catch (IllegalArgumentException ignored) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package dev.yatpa.paper.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import dev.yatpa.paper.data.HomeLocation;
+import dev.yatpa.paper.data.PlayerProfile;
+import dev.yatpa.paper.storage.StorageBackend;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.logging.Logger;
+import org.junit.jupiter.api.Test;
+
+class DataStoreTest {
+    private static final Logger LOGGER = Logger.getLogger("YATPA");
+    private static final HomeLocation BASE = new HomeLocation("world", 10.5, 64.0, -3.5, 90.0f, 0.0f);
+
+    private final UUID owner = UUID.randomUUID();
+    private final UUID blocked = UUID.randomUUID();
+    private final MemoryBackend backend = new MemoryBackend();
+    private final Queue<Runnable> loads = new ArrayDeque<>();
+
+    DataStoreTest() {
+        PlayerProfile profile = new PlayerProfile(owner);
+        profile.setHome("base", BASE);
+        profile.setHomeLimit(7);
+        profile.block(blocked);
+        backend.profiles.put(owner, profile);
+        backend.offline.put("steve", BASE);
+    }
+
+    @Test
+    void eagerLookupsReadLoadedProfiles() {
+        DataStore store = new DataStore(backend, LOGGER, false, 0L, loads::add, loads::add);
+
+        assertEquals(BASE, store.home(owner, "Base"));
+        assertEquals(List.of("base"), store.homeNames(owner));
+        assertEquals(7, store.homeLimit(owner, 3));
+        assertTrue(store.isBlocked(owner, blocked));
+        assertFalse(store.isBlocked(owner, UUID.randomUUID()));
+        assertEquals(0, backend.profileReads);
+        assertTrue(loads.isEmpty());
+    }
+
+    @Test
+    void eagerLookupOfUnknownPlayerAnswersDefaults() {
+        DataStore store = new DataStore(backend, LOGGER, false, 0L, loads::add, loads::add);
+        UUID unknown = UUID.randomUUID();
+
+        assertTrue(store.homes(unknown).isEmpty());
+        assertEquals(3, store.homeLimit(unknown, 3));
+        assertFalse(store.isBlocked(unknown, owner));
+        assertTrue(store.acceptingRequests(unknown));
+        assertTrue(loads.isEmpty());
+    }
+
+    @Test
+    void lazyLoadReadsOnLoaderAndLookupsSeeStoredValues() {
+        DataStore store = new DataStore(backend, LOGGER, true, 60_000L, loads::add, loads::add);
+
+        CompletableFuture<Void> loaded = store.loaded(owner);
+        assertFalse(store.isLoaded(owner));
+        assertFalse(loaded.isDone());
+        assertEquals(0, backend.profileReads);
+
+        assertEquals(loaded, store.loaded(owner));
+        loads.poll().run();
+
+        assertTrue(loaded.isDone());
+        assertTrue(store.isLoaded(owner));
+        assertEquals(1, backend.profileReads);
+        assertEquals(BASE, store.home(owner, "base"));
+        assertEquals(7, store.homeLimit(owner, 3));
+        assertTrue(store.isBlocked(owner, blocked));
+        assertTrue(loads.isEmpty());
+    }
+
+    @Test
+    void lazyChangeWaitsForTheLoadInsteadOfReadingOnCaller() {
+        DataStore store = new DataStore(backend, LOGGER, true, 60_000L, loads::add, loads::add);
+        UUID other = UUID.randomUUID();
+
+        store.block(owner, other);
+        assertEquals(0, backend.profileReads);
+
+        loads.poll().run();
+        assertFalse(store.isBlocked(owner, other));
+        loads.poll().run();
+
+        assertEquals(1, backend.profileReads);
+        assertTrue(store.isBlocked(owner, other));
+        assertTrue(store.isBlocked(owner, blocked));
+        assertEquals(BASE, store.home(owner, "base"));
+        assertEquals(1, store.flushStats().pending());
+    }
+
+    @Test
+    void lazyLoadWithInlineLoaderAnswersImmediately() {
+        DataStore store = new DataStore(backend, LOGGER, true, 60_000L, Runnable::run, Runnable::run);
+
+        assertTrue(store.loaded(owner).isDone());
+        assertEquals(BASE, store.home(owner, "base"));
+        assertTrue(store.isBlocked(owner, blocked));
+        assertEquals(1, backend.profileReads);
+    }
+
+    @Test
+    void preloadedProfileIsKeptWhileOnlineAndEvictedOnceIdle() {
+        DataStore store = new DataStore(backend, LOGGER, true, 0L, loads::add, loads::add);
+        store.preload(owner);
+
+        store.evictIdle(uuid -> true);
+        assertEquals(1, store.cachedProfiles());
+
+        store.evictIdle(uuid -> false);
+        assertEquals(0, store.cachedProfiles());
+    }
+
+    @Test
+    void lazyOfflineLocationIsReadOnLoader() {
+        DataStore store = new DataStore(backend, LOGGER, true, 60_000L, loads::add, loads::add);
+
+        CompletableFuture<HomeLocation> lookup = store.offlineLocation("Steve");
+        assertFalse(lookup.isDone());
+        assertEquals(0, backend.offlineReads);
+
+        loads.poll().run();
+
+        assertEquals(BASE, lookup.join());
+        assertEquals(1, backend.offlineReads);
+    }
+
+    @Test
+    void eagerOfflineLocationAnswersFromMemory() {
+        DataStore store = new DataStore(backend, LOGGER, false, 0L, loads::add, loads::add);
+
+        assertEquals(BASE, store.offlineLocation("STEVE").join());
+        assertNull(store.offlineLocation("alex").join());
+        assertEquals(0, backend.offlineReads);
+        assertTrue(loads.isEmpty());
+    }
+
+    private static final class MemoryBackend implements StorageBackend {
+        private final Map<UUID, PlayerProfile> profiles = new HashMap<>();
+        private final Map<String, HomeLocation> offline = new HashMap<>();
+        private int profileReads;
+        private int offlineReads;
+
+        @Override
+        public String name() {
+            return "MEMORY";
+        }
+
+        @Override
+        public void loadAll(Map<UUID, PlayerProfile> into, Map<String, HomeLocation> offlineLocations) {
+            into.putAll(profiles);
+            offlineLocations.putAll(offline);
+        }
+
+        @Override
+        public PlayerProfile loadProfile(UUID uuid) {
+            profileReads++;
+            return profiles.get(uuid);
+        }
+
+        @Override
+        public HomeLocation loadOfflineLocation(String name) {
+            offlineReads++;
+            return offline.get(name);
+        }
+
+        @Override
+        public List<String> offlineNames(String prefix, int limit) {
+            return offline.keySet().stream().filter(name -> name.startsWith(prefix)).sorted().limit(limit).toList();
+        }
+
+        @Override
+        public void write(Batch batch) {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
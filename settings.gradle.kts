@@ -7,4 +7,4 @@ pluginManagement {
 }
 
 rootProject.name = "YATPA"
-include("paper", "fabric")
\ No newline at end of file
+include("core", "paper", "fabric", "benchmarks")
\ No newline at end of file